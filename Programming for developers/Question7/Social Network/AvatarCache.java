@@ -0,0 +1,107 @@
+package application;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.image.Image;
+
+/**
+ * Loads avatar images the first time they are shown and keeps the most recently shown ones so
+ * that users with the same avatar share one image. Users only store which of the default avatars
+ * they have, so a network with many users holds no images until one is displayed.
+ *
+ * @author Team 70
+ *
+ */
+public class AvatarCache {
+  // The avatars users are given at random, User.AVATAR_COUNT of them
+  public static final String[] DEFAULT_AVATARS =
+      {"default1.jpg", "default2.jpg", "default3.jpg", "default4.jpg", "default5.jpg"};
+  public static final int DEFAULT_CAPACITY = 32;
+
+  private static final AvatarCache SHARED = new AvatarCache(DEFAULT_CAPACITY);
+
+  // Fields
+  private LinkedHashMap<String, Image> images;
+  private int loads = 0;
+
+  /**
+   * Creates an empty cache
+   *
+   * @param capacity largest number of images kept, the least recently shown being dropped first
+   */
+  public AvatarCache(int capacity) {
+    // Access order makes the eldest entry the least recently shown image
+    this.images = new LinkedHashMap<String, Image>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Get the cache shared by every user
+   *
+   * @return the shared cache
+   */
+  public static AvatarCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Get the image in a file, loading it if it is not cached
+   *
+   * @param path path of the image file
+   * @return the image
+   */
+  public synchronized Image get(String path) {
+    Image image = images.get(path);
+    if (image == null) {
+      image = new Image("file:" + path);
+      images.put(path, image);
+      loads++;
+    }
+    return image;
+  }
+
+  /**
+   * Get one of the default avatars
+   *
+   * @param avatar position in DEFAULT_AVATARS
+   * @return the image
+   */
+  public Image getDefault(int avatar) {
+    return get(DEFAULT_AVATARS[avatar]);
+  }
+
+  /**
+   * Get a user's avatar, loading it if it is not cached
+   *
+   * @param user the user
+   * @return the image
+   */
+  public Image getAvatar(User user) {
+    return getDefault(user.getAvatar());
+  }
+
+  /**
+   * Get the number of images in the cache
+   *
+   * @return number of cached images
+   */
+  public synchronized int size() {
+    return images.size();
+  }
+
+  /**
+   * Get the number of times an image had to be loaded because it was not cached
+   *
+   * @return number of loads
+   */
+  public synchronized int getLoadCount() {
+    return loads;
+  }
+
+}
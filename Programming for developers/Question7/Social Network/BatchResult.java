@@ -0,0 +1,108 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the outcome of applying a CommandBatch: what happened to each command, and whether the
+ * batch was applied at all
+ *
+ * @author Team 70
+ *
+ */
+public class BatchResult {
+  /**
+   * What happened to one command
+   */
+  public enum Outcome {
+    // The network changed and the command was logged
+    APPLIED,
+    // The command was valid but the network already was that way, such as adding friends twice
+    UNCHANGED,
+    // The command was invalid, such as a name with illegal characters or a user as their own
+    // friend
+    REJECTED,
+    // The command was valid, but not applied because another command in the batch was rejected
+    SKIPPED
+  }
+
+  // Fields
+  private Outcome[] outcomes;
+  private int[] counts = new int[Outcome.values().length];
+  private boolean committed;
+
+  /**
+   * Initialize values
+   *
+   * @param outcomes  what happened to each command, in the order of the batch
+   * @param committed false if nothing was applied because a command was rejected
+   */
+  public BatchResult(Outcome[] outcomes, boolean committed) {
+    this.outcomes = outcomes;
+    this.committed = committed;
+    for (Outcome outcome : outcomes) {
+      counts[outcome.ordinal()]++;
+    }
+  }
+
+  /**
+   * Check if the batch was applied
+   *
+   * @return false if the batch had to be applied whole and was not, because a command was rejected
+   */
+  public boolean isCommitted() {
+    return committed;
+  }
+
+  /**
+   * Get the number of commands
+   *
+   * @return the size of the batch
+   */
+  public int size() {
+    return outcomes.length;
+  }
+
+  /**
+   * Get what happened to a command
+   *
+   * @param index position of the command in the batch, from 0
+   * @return the outcome
+   */
+  public Outcome getOutcome(int index) {
+    return outcomes[index];
+  }
+
+  /**
+   * Get the number of commands with an outcome
+   *
+   * @param outcome the outcome
+   * @return number of commands
+   */
+  public int getCount(Outcome outcome) {
+    return counts[outcome.ordinal()];
+  }
+
+  /**
+   * Get the commands that were rejected
+   *
+   * @return positions in the batch, from 0, of the rejected commands
+   */
+  public List<Integer> getRejected() {
+    List<Integer> rejected = new ArrayList<Integer>();
+    for (int i = 0; i < outcomes.length; i++) {
+      if (outcomes[i] == Outcome.REJECTED) {
+        rejected.add(i);
+      }
+    }
+    return rejected;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d commands: %d applied, %d unchanged, %d rejected, %d skipped",
+        outcomes.length, getCount(Outcome.APPLIED), getCount(Outcome.UNCHANGED),
+        getCount(Outcome.REJECTED), getCount(Outcome.SKIPPED));
+  }
+
+}
@@ -0,0 +1,85 @@
+package application;
+
+import java.util.List;
+
+/**
+ * Holds the outcome of bulk loading an edge list: what an import reports, plus how many users
+ * and friendships the file held, how many friendships were listed more than once, and how long
+ * the load took
+ *
+ * @author Team 70
+ *
+ */
+public class BulkLoadResult extends ImportResult {
+  // Fields
+  private int users;
+  private int friendships;
+  private int duplicates;
+  private long elapsedNanos;
+
+  /**
+   * Initialize values
+   *
+   * @param success      true if the whole file was read
+   * @param linesRead    number of lines read from the file
+   * @param errorLines   line numbers, starting at 1, of the lines with errors
+   * @param users        number of different users in the file
+   * @param friendships  number of different friendships in the file
+   * @param duplicates   number of friendships that repeated one listed earlier
+   * @param elapsedNanos time taken to read the file and add it to the network
+   */
+  public BulkLoadResult(boolean success, int linesRead, List<Integer> errorLines, int users,
+      int friendships, int duplicates, long elapsedNanos) {
+    super(success, linesRead, errorLines);
+    this.users = users;
+    this.friendships = friendships;
+    this.duplicates = duplicates;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the number of users
+   *
+   * @return number of different users in the file
+   */
+  public int getUsers() {
+    return users;
+  }
+
+  /**
+   * Get the number of friendships
+   *
+   * @return number of different friendships in the file
+   */
+  public int getFriendships() {
+    return friendships;
+  }
+
+  /**
+   * Get the number of repeated friendships, in either direction
+   *
+   * @return number of friendships that were dropped as duplicates
+   */
+  public int getDuplicates() {
+    return duplicates;
+  }
+
+  /**
+   * Get how long the load took
+   *
+   * @return nanoseconds to read the file and add it to the network
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get how quickly the friendships were loaded, counting duplicates as they had to be read too
+   *
+   * @return friendships per second, or 0 if no time was measured
+   */
+  public double getEdgesPerSecond() {
+    return elapsedNanos == 0 ? 0 : (friendships + duplicates) / (elapsedNanos / 1e9);
+  }
+
+}
@@ -0,0 +1,531 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a large list of friendships into a social network much faster than importing it line by
+ * line. Each line of the file holds two user names separated by spaces, or a single name for a
+ * user without friends.
+ * <p>
+ * The file is split at line ends into chunks, and a fork-join pool parses the chunks in parallel
+ * straight from memory-mapped regions of the file. The names of every chunk are then given ids in
+ * the order they first appear, the friendships are encoded as longs and sorted so that repeated
+ * friendships, in either direction, sit next to each other and are dropped, and the result is
+ * added to the network in one pass in compressed sparse row form, as a GraphSnapshot. Only that
+ * last pass locks the network.
+ * <p>
+ * Lines with more than two names, names that are not valid, users listed as their own friend and
+ * lines longer than a chunk are reported as lines with errors and skipped.
+ *
+ * @author Team 70
+ *
+ */
+public class BulkLoader {
+  // Chunks are split in half until they are no larger than this
+  private static final long CHUNK_BYTES = 8L * 1024 * 1024;
+
+  // Fields
+  private SocialNetwork socialNetwork;
+  private ForkJoinPool pool;
+
+  /**
+   * Initialize values, parsing in the common fork-join pool
+   *
+   * @param socialNetwork the network to load into
+   */
+  public BulkLoader(SocialNetwork socialNetwork) {
+    this(socialNetwork, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Initialize values
+   *
+   * @param socialNetwork the network to load into
+   * @param pool          the pool that parses chunks
+   */
+  public BulkLoader(SocialNetwork socialNetwork, ForkJoinPool pool) {
+    this.socialNetwork = socialNetwork;
+    this.pool = pool;
+  }
+
+  /**
+   * Loads an edge list into the network
+   *
+   * @param fileName the file to load
+   * @return the result of the load, with the lines with errors and the edges per second
+   */
+  public BulkLoadResult load(String fileName) {
+    long start = System.nanoTime();
+    Path path = Paths.get(fileName);
+    if (!Files.isRegularFile(path)) {
+      return new BulkLoadResult(false, 0, new ArrayList<Integer>(), 0, 0, 0, 0);
+    }
+
+    List<Chunk> chunks;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      chunks = pool.invoke(new ParseTask(channel, 0, channel.size()));
+    } catch (IOException | RuntimeException e) {
+      // The file could not be read to the end
+      return new BulkLoadResult(false, 0, new ArrayList<Integer>(), 0, 0, 0, 0);
+    }
+
+    // Give every name an id in the order it first appears, and note the lines with errors
+    NameIds ids = new NameIds();
+    List<Integer> errorLines = new ArrayList<Integer>();
+    int[] edgeStarts = new int[chunks.size() + 1];
+    int lines = 0;
+    for (int c = 0; c < chunks.size(); c++) {
+      Chunk chunk = chunks.get(c);
+      chunk.globalIds = new int[chunk.nameCount];
+      for (int i = 0; i < chunk.usedCount; i++) {
+        int id = chunk.order[i];
+        chunk.globalIds[id] = ids.idOf(chunk.names[id]);
+      }
+      chunk.names = null;
+      for (int i = 0; i < chunk.errorCount; i++) {
+        errorLines.add(lines + chunk.errorLines[i]);
+      }
+      lines += chunk.lines;
+      edgeStarts[c + 1] = edgeStarts[c] + chunk.edgeCount / 2;
+    }
+    String[] names = ids.toArray();
+    ids = null;
+
+    // Encode every friendship with the smaller id first, so both directions encode the same
+    long[] edges = new long[edgeStarts[chunks.size()]];
+    IntStream.range(0, chunks.size()).parallel().forEach(c -> {
+      Chunk chunk = chunks.get(c);
+      for (int i = 0; i < chunk.edgeCount; i += 2) {
+        int id1 = chunk.globalIds[chunk.edges[i]];
+        int id2 = chunk.globalIds[chunk.edges[i + 1]];
+        edges[edgeStarts[c] + i / 2] =
+            ((long) Math.min(id1, id2) << 32) | Math.max(id1, id2);
+      }
+    });
+
+    // Sorting puts repeated friendships next to each other, so keep only the first of each
+    Arrays.parallelSort(edges);
+    int unique = 0;
+    for (int i = 0; i < edges.length; i++) {
+      if (unique == 0 || edges[i] != edges[unique - 1]) {
+        edges[unique++] = edges[i];
+      }
+    }
+
+    boolean logged = socialNetwork.loadEdges(toSnapshot(names, edges, unique));
+
+    return new BulkLoadResult(logged, lines, errorLines, names.length, unique,
+        edges.length - unique, System.nanoTime() - start);
+  }
+
+  /**
+   * Builds the compressed sparse row form of a list of friendships
+   *
+   * @param names   user names in the order they first appeared
+   * @param edges   friendships encoded with the smaller id in the high half, in increasing order
+   * @param count   number of friendships in edges
+   * @return a snapshot holding the users and friendships
+   */
+  private static GraphSnapshot toSnapshot(String[] names, long[] edges, int count) {
+    // Count the friends of every user, then turn the counts into where each user's friends start
+    int[] offsets = new int[names.length + 1];
+    for (int i = 0; i < count; i++) {
+      offsets[(int) (edges[i] >>> 32) + 1]++;
+      offsets[(int) edges[i] + 1]++;
+    }
+    for (int i = 0; i < names.length; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // Place each friendship on both users
+    int[] friends = new int[count * 2];
+    int[] next = Arrays.copyOf(offsets, names.length);
+    for (int i = 0; i < count; i++) {
+      int id1 = (int) (edges[i] >>> 32);
+      int id2 = (int) edges[i];
+      friends[next[id1]++] = id2;
+      friends[next[id2]++] = id1;
+    }
+
+    return new GraphSnapshot(names, offsets, friends, null, 0, 0, 0);
+  }
+
+  /**
+   * Finds where the line after a position starts
+   *
+   * @param channel  the file
+   * @param position a position in the file
+   * @param end      where the search stops
+   * @return the position just after the next line end, or end if there is none before it
+   * @throws IOException if the file cannot be read
+   */
+  private static long nextLineStart(FileChannel channel, long position, long end)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    while (position < end) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read && position + i < end; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return end;
+  }
+
+  /**
+   * Finds where the line holding a position starts
+   *
+   * @param channel  the file
+   * @param position a position in the file
+   * @param start    where the search stops
+   * @return the position just after the last line end before position, or start if there is
+   *         none after it
+   * @throws IOException if the file cannot be read
+   */
+  private static long previousLineStart(FileChannel channel, long position, long start)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    while (position > start) {
+      long from = Math.max(start, position - buffer.capacity());
+      buffer.clear();
+      buffer.limit((int) (position - from));
+      int read = 0;
+      while (buffer.hasRemaining() && read >= 0) {
+        read = channel.read(buffer, from + buffer.position());
+      }
+      for (int i = buffer.position() - 1; i >= 0; i--) {
+        if (buffer.get(i) == '\n') {
+          return from + i + 1;
+        }
+      }
+      position = from;
+    }
+    return start;
+  }
+
+  /**
+   * Parses part of the file, splitting it at a line end and parsing the halves in parallel while
+   * it is larger than CHUNK_BYTES
+   */
+  private static class ParseTask extends RecursiveTask<List<Chunk>> {
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+
+    /**
+     * Initialize values
+     *
+     * @param channel the file
+     * @param start   position of the first byte, at the start of a line
+     * @param end     position after the last byte, at the start of a line or the end of the file
+     */
+    private ParseTask(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected List<Chunk> compute() {
+      try {
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        if (end - start > CHUNK_BYTES) {
+          // Split at the first line end after the middle, or else the last one before it
+          long middle = nextLineStart(channel, start + (end - start) / 2, end);
+          if (middle == end) {
+            middle = previousLineStart(channel, start + (end - start) / 2, start);
+          }
+          if (middle == start) {
+            // The part is a single line, too long to map in one piece
+            chunks.add(new Chunk());
+            return chunks;
+          }
+
+          ParseTask second = new ParseTask(channel, middle, end);
+          second.fork();
+          chunks = new ParseTask(channel, start, middle).compute();
+          chunks.addAll(second.join());
+          return chunks;
+        }
+
+        chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+        return chunks;
+
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * The users, friendships and lines with errors of one chunk of the file, with ids that only
+   * mean something within the chunk. Names are looked up by their bytes, so a name that appears
+   * many times in the chunk is only turned into a String and checked the first time.
+   */
+  private static class Chunk {
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    // name of local id i is names[i], its bytes are bytes[starts[i]] up to starts[i] + lengths[i]
+    // and its hash is hashes[i]
+    private String[] names = new String[1024];
+    private boolean[] valid = new boolean[1024];
+    private int[] hashes = new int[1024];
+    private int[] starts = new int[1024];
+    private int[] lengths = new int[1024];
+    private byte[] bytes = new byte[16 * 1024];
+    private int nameCount = 0;
+    private int byteCount = 0;
+    // Open addressing table of local ids plus one, with 0 for an empty bucket
+    private int[] table = new int[2048];
+    // local ids in the order they were first used on a line without errors
+    private int[] order = new int[1024];
+    private boolean[] used = new boolean[1024];
+    private int usedCount = 0;
+    // pairs of local ids, one pair per friendship
+    private int[] edges = new int[1024];
+    private int edgeCount = 0;
+    // line numbers within the chunk, starting at 1
+    private int[] errorLines = new int[16];
+    private int errorCount = 0;
+    private int lines = 0;
+    // ids of names across the whole file, filled in once every chunk has been parsed
+    private int[] globalIds;
+
+    /**
+     * Makes a chunk of a single line that is too long to parse, with the line as an error
+     */
+    private Chunk() {
+      lines = 1;
+      errorLines[errorCount++] = 1;
+      table = null;
+      bytes = null;
+    }
+
+    /**
+     * Parses every line of a chunk
+     *
+     * @param buffer the bytes of the chunk
+     */
+    private Chunk(MappedByteBuffer buffer) {
+      byte[] token = new byte[256];
+      int[] lineIds = new int[2];
+      int idCount = 0;
+      int tokenLength = 0;
+      boolean tooMany = false;
+      int limit = buffer.limit();
+
+      for (int i = 0; i <= limit; i++) {
+        byte b = i < limit ? buffer.get(i) : (byte) '\n';
+
+        if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+          // A name has ended
+          if (tokenLength > 0) {
+            if (idCount < 2) {
+              lineIds[idCount++] = idOf(token, tokenLength);
+            } else {
+              tooMany = true;
+            }
+            tokenLength = 0;
+          }
+
+          // A line has ended, unless this is the end of a chunk that ends with a line end
+          if (b == '\n' && (i < limit || idCount > 0 || tooMany)) {
+            lines++;
+            addLine(lineIds, idCount, tooMany);
+            idCount = 0;
+            tooMany = false;
+          }
+
+        } else {
+          if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+          }
+          token[tokenLength++] = b;
+        }
+      }
+      table = null;
+      bytes = null;
+    }
+
+    /**
+     * Adds the users and friendship of one line, or notes the line as an error
+     *
+     * @param lineIds   local ids of the names on the line
+     * @param idCount   number of names on the line
+     * @param tooMany   true if the line had more than two names
+     */
+    private void addLine(int[] lineIds, int idCount, boolean tooMany) {
+      if (idCount == 0) {
+        return;
+      }
+      if (tooMany || !valid[lineIds[0]]
+          || (idCount == 2 && (!valid[lineIds[1]] || lineIds[0] == lineIds[1]))) {
+        if (errorCount == errorLines.length) {
+          errorLines = Arrays.copyOf(errorLines, errorCount * 2);
+        }
+        errorLines[errorCount++] = lines;
+        return;
+      }
+
+      for (int i = 0; i < idCount; i++) {
+        if (!used[lineIds[i]]) {
+          used[lineIds[i]] = true;
+          order[usedCount++] = lineIds[i];
+        }
+      }
+      if (idCount == 2) {
+        if (edgeCount + 2 > edges.length) {
+          edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[edgeCount++] = lineIds[0];
+        edges[edgeCount++] = lineIds[1];
+      }
+    }
+
+    /**
+     * Finds the local id of a name, giving it the next id if it is new
+     *
+     * @param token  bytes of the name
+     * @param length number of bytes
+     * @return its id
+     */
+    private int idOf(byte[] token, int length) {
+      int hash = 0;
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + token[i];
+      }
+
+      int mask = table.length - 1;
+      int bucket = (hash ^ (hash >>> 16)) & mask;
+      for (; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+        int id = table[bucket] - 1;
+        if (hashes[id] == hash && Arrays.equals(bytes, starts[id], starts[id] + lengths[id], token,
+            0, length)) {
+          return id;
+        }
+      }
+
+      // A new name
+      if (nameCount == names.length) {
+        int capacity = nameCount * 2;
+        names = Arrays.copyOf(names, capacity);
+        valid = Arrays.copyOf(valid, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        order = Arrays.copyOf(order, capacity);
+        used = Arrays.copyOf(used, capacity);
+      }
+      if (byteCount + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + length));
+      }
+      int id = nameCount++;
+      System.arraycopy(token, 0, bytes, byteCount, length);
+      names[id] = new String(token, 0, length, CHARSET);
+      valid[id] = SocialNetwork.isValidUser(names[id]);
+      hashes[id] = hash;
+      starts[id] = byteCount;
+      lengths[id] = length;
+      byteCount += length;
+      table[bucket] = id + 1;
+
+      // Keep the table at most half full
+      if (nameCount * 2 > table.length) {
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for (int other = 0; other < nameCount; other++) {
+          int otherBucket = (hashes[other] ^ (hashes[other] >>> 16)) & mask;
+          while (table[otherBucket] != 0) {
+            otherBucket = (otherBucket + 1) & mask;
+          }
+          table[otherBucket] = other + 1;
+        }
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Gives names ids across the whole file, in the order they are first added
+   */
+  private static class NameIds {
+    private String[] names = new String[1024];
+    private int[] hashes = new int[1024];
+    private int size = 0;
+    // Open addressing table of ids plus one, with 0 for an empty bucket
+    private int[] table = new int[2048];
+
+    /**
+     * Finds the id of a name, giving it the next id if it is new
+     *
+     * @param name the name
+     * @return its id
+     */
+    private int idOf(String name) {
+      int hash = name.hashCode();
+      int mask = table.length - 1;
+      int bucket = (hash ^ (hash >>> 16)) & mask;
+      for (; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+        int id = table[bucket] - 1;
+        if (hashes[id] == hash && names[id].equals(name)) {
+          return id;
+        }
+      }
+
+      if (size == names.length) {
+        names = Arrays.copyOf(names, size * 2);
+        hashes = Arrays.copyOf(hashes, size * 2);
+      }
+      int id = size++;
+      names[id] = name;
+      hashes[id] = hash;
+      table[bucket] = id + 1;
+
+      // Keep the table at most half full
+      if (size * 2 > table.length) {
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for (int other = 0; other < size; other++) {
+          int otherBucket = (hashes[other] ^ (hashes[other] >>> 16)) & mask;
+          while (table[otherBucket] != 0) {
+            otherBucket = (otherBucket + 1) & mask;
+          }
+          table[otherBucket] = other + 1;
+        }
+      }
+      return id;
+    }
+
+    /**
+     * Get the names
+     *
+     * @return every name, in the order they were given ids
+     */
+    private String[] toArray() {
+      return Arrays.copyOf(names, size);
+    }
+  }
+
+}
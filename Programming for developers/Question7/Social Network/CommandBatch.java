@@ -0,0 +1,236 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A list of commands for SocialNetwork.applyBatch, which checks them, applies them to the network
+ * and logs them all in one go instead of one call, one lock and one log entry at a time. Commands
+ * are the same as those in log.txt and can be added one by one or as lines of a log:
+ * <p>
+ * - "a user" adds a user, and "a user1 user2" makes two users friends
+ * <p>
+ * - "r user" removes a user, and "r user1 user2" removes a friendship
+ * <p>
+ * - "s user" sets the central user
+ * <p>
+ * A batch can be applied more than once, and can be cleared to be filled again.
+ *
+ * @author Team 70
+ *
+ */
+public class CommandBatch {
+  // Kinds of command
+  static final byte ADD_USER = 0;
+  static final byte REMOVE_USER = 1;
+  static final byte ADD_FRIEND = 2;
+  static final byte REMOVE_FRIEND = 3;
+  static final byte SET_CENTRAL_USER = 4;
+
+  // Fields
+  private byte[] types;
+  private String[] users1;
+  // Only used by friendship commands
+  private String[] users2;
+  private int size = 0;
+
+  /**
+   * Initialize values
+   */
+  public CommandBatch() {
+    this(16);
+  }
+
+  /**
+   * Initialize values, making room for some number of commands up front
+   *
+   * @param capacity number of commands expected
+   */
+  public CommandBatch(int capacity) {
+    capacity = Math.max(capacity, 1);
+    this.types = new byte[capacity];
+    this.users1 = new String[capacity];
+    this.users2 = new String[capacity];
+  }
+
+  /**
+   * Adds a user
+   *
+   * @param user name of the user
+   * @return this batch
+   */
+  public CommandBatch addUser(String user) {
+    return add(ADD_USER, user, null);
+  }
+
+  /**
+   * Removes a user
+   *
+   * @param user name of the user
+   * @return this batch
+   */
+  public CommandBatch removeUser(String user) {
+    return add(REMOVE_USER, user, null);
+  }
+
+  /**
+   * Makes two users friends, adding either of them who is not in the network yet
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   * @return this batch
+   */
+  public CommandBatch addFriend(String user1, String user2) {
+    return add(ADD_FRIEND, user1, user2);
+  }
+
+  /**
+   * Removes the friendship between two users
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   * @return this batch
+   */
+  public CommandBatch removeFriend(String user1, String user2) {
+    return add(REMOVE_FRIEND, user1, user2);
+  }
+
+  /**
+   * Sets the central user
+   *
+   * @param user name of the user
+   * @return this batch
+   */
+  public CommandBatch setCentralUser(String user) {
+    return add(SET_CENTRAL_USER, user, null);
+  }
+
+  /**
+   * Adds a command written the way it is in log.txt
+   *
+   * @param command the command, such as "a user1 user2"
+   * @return this batch
+   * @throws IllegalArgumentException if the command is not one of the commands log.txt can hold
+   */
+  public CommandBatch add(String command) {
+    String[] parts = command.trim().split(" ");
+
+    switch (parts[0]) {
+      case "a":
+        if (parts.length == 3) {
+          return addFriend(parts[1].trim(), parts[2].trim());
+        } else if (parts.length == 2) {
+          return addUser(parts[1].trim());
+        }
+        throw new IllegalArgumentException("Invalid Add Command");
+
+      case "r":
+        if (parts.length == 3) {
+          return removeFriend(parts[1].trim(), parts[2].trim());
+        } else if (parts.length == 2) {
+          return removeUser(parts[1].trim());
+        }
+        throw new IllegalArgumentException("Invalid Remove Command");
+
+      case "s":
+        if (parts.length == 2) {
+          return setCentralUser(parts[1].trim());
+        }
+        throw new IllegalArgumentException("Invalid Set Command");
+
+      default:
+        throw new IllegalArgumentException("Invalid Command");
+    }
+  }
+
+  /**
+   * Get the number of commands
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes every command, keeping the room they took up
+   */
+  public void clear() {
+    Arrays.fill(users1, 0, size, null);
+    Arrays.fill(users2, 0, size, null);
+    size = 0;
+  }
+
+  /**
+   * Get a command written the way it is in log.txt
+   *
+   * @param index position of the command, from 0
+   * @return the command
+   */
+  public String getCommand(int index) {
+    switch (types[index]) {
+      case ADD_USER:
+        return "a " + users1[index];
+      case REMOVE_USER:
+        return "r " + users1[index];
+      case ADD_FRIEND:
+        return "a " + users1[index] + " " + users2[index];
+      case REMOVE_FRIEND:
+        return "r " + users1[index] + " " + users2[index];
+      default:
+        return "s " + users1[index];
+    }
+  }
+
+  /**
+   * Get the kind of a command
+   *
+   * @param index position of the command
+   * @return one of ADD_USER, REMOVE_USER, ADD_FRIEND, REMOVE_FRIEND and SET_CENTRAL_USER
+   */
+  byte getType(int index) {
+    return types[index];
+  }
+
+  /**
+   * Get the user a command is about, or the first of two users
+   *
+   * @param index position of the command
+   * @return name of the user
+   */
+  String getUser1(int index) {
+    return users1[index];
+  }
+
+  /**
+   * Get the second user of a friendship command
+   *
+   * @param index position of the command
+   * @return name of the user, or null if the command is not about a friendship
+   */
+  String getUser2(int index) {
+    return users2[index];
+  }
+
+  /**
+   * Adds a command, making more room if the batch is full
+   *
+   * @param type  kind of command
+   * @param user1 the user, or the first of two users
+   * @param user2 the second user, or null
+   * @return this batch
+   */
+  private CommandBatch add(byte type, String user1, String user2) {
+    if (size == types.length) {
+      int capacity = size * 2;
+      types = Arrays.copyOf(types, capacity);
+      users1 = Arrays.copyOf(users1, capacity);
+      users2 = Arrays.copyOf(users2, capacity);
+    }
+    types[size] = type;
+    users1[size] = user1;
+    users2[size] = user2;
+    size++;
+    return this;
+  }
+
+}
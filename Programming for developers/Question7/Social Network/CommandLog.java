@@ -0,0 +1,345 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Appends commands to the log file, buffering them so that many commands are written to the file
+ * together instead of one write per command. When the buffered commands reach the file depends on
+ * the policy:
+ * <p>
+ * - every so many records, when recordsPerFlush is above zero
+ * <p>
+ * - every so many milliseconds by a background thread, when millisPerFlush is above zero
+ * <p>
+ * - always when sync() or close() is called
+ * <p>
+ * A CRC32 of every byte that reaches the file is kept as it is written, so a snapshot can record
+ * what the log held without reading it back.
+ * <p>
+ * Like a PrintWriter, a closed log quietly ignores further commands. Commands are appended
+ * without throwing, so the first error writing them is kept and thrown by the next sync() or
+ * close(), and by every sync() after it, since commands may have been lost.
+ *
+ * @author Team 70
+ *
+ */
+public class CommandLog {
+  // Default policy: write at least every 1000 commands, and within 200 ms of a command
+  public static final int DEFAULT_RECORDS_PER_FLUSH = 1000;
+  public static final long DEFAULT_MILLIS_PER_FLUSH = 200;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // Fields
+  private FileOutputStream fileStream;
+  private Writer writer;
+  private int recordsPerFlush;
+  private long millisPerFlush;
+  private int unflushedRecords = 0;
+  private int totalRecords = 0;
+  private long totalChars = 0;
+  private boolean closed = false;
+  // Checksum of every byte written to the file so far, including any it held when opened
+  private CRC32 checksum = new CRC32();
+  // The first error writing to the file, or null if there has been none
+  private IOException error = null;
+  private ScheduledExecutorService flusher;
+  private ScheduledFuture<?> flushTask;
+
+  /**
+   * Creates an empty log file, replacing any existing one, using the default policy
+   *
+   * @param file the log file
+   * @throws IOException if the file cannot be created
+   */
+  public CommandLog(File file) throws IOException {
+    this(file, DEFAULT_RECORDS_PER_FLUSH, DEFAULT_MILLIS_PER_FLUSH);
+  }
+
+  /**
+   * Creates an empty log file, replacing any existing one
+   *
+   * @param file            the log file
+   * @param recordsPerFlush write buffered commands after this many, or 0 to not count commands
+   * @param millisPerFlush  write buffered commands after this long, or 0 to not use a timer
+   * @throws IOException if the file cannot be created
+   */
+  public CommandLog(File file, int recordsPerFlush, long millisPerFlush) throws IOException {
+    this(file, false, recordsPerFlush, millisPerFlush);
+  }
+
+  /**
+   * Opens a log file, either replacing it or adding to the commands already in it
+   *
+   * @param file            the log file
+   * @param append          true to keep the commands already in the file
+   * @param recordsPerFlush write buffered commands after this many, or 0 to not count commands
+   * @param millisPerFlush  write buffered commands after this long, or 0 to not use a timer
+   * @throws IOException if the file cannot be opened
+   */
+  public CommandLog(File file, boolean append, int recordsPerFlush, long millisPerFlush)
+      throws IOException {
+    // Count the commands already in the file so the totals and checksum cover the whole file
+    if (append && file.exists()) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+          new CheckedInputStream(new FileInputStream(file), checksum)), BUFFER_SIZE)) {
+        while (reader.readLine() != null) {
+          totalRecords++;
+        }
+      }
+      totalChars = file.length();
+    }
+
+    this.fileStream = new FileOutputStream(file, append);
+    this.writer = new BufferedWriter(
+        new OutputStreamWriter(new CheckedOutputStream(fileStream, checksum)), BUFFER_SIZE);
+    this.recordsPerFlush = recordsPerFlush;
+    setMillisPerFlush(millisPerFlush);
+  }
+
+  /**
+   * Adds a command to the log
+   *
+   * @param record the command, without a line separator
+   */
+  public synchronized void append(String record) {
+    if (closed) {
+      return;
+    }
+
+    try {
+      writer.write(record);
+      writer.write(System.lineSeparator());
+      unflushedRecords++;
+      totalRecords++;
+      totalChars += record.length() + System.lineSeparator().length();
+
+      if (recordsPerFlush > 0 && unflushedRecords >= recordsPerFlush) {
+        flush();
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Adds several commands to the log in one go, checking the flush policy once at the end
+   *
+   * @param records the commands, without line separators
+   * @param count   number of commands to take from the start of records
+   */
+  public synchronized void append(String[] records, int count) {
+    if (closed || count == 0) {
+      return;
+    }
+
+    try {
+      String separator = System.lineSeparator();
+      for (int i = 0; i < count; i++) {
+        writer.write(records[i]);
+        writer.write(separator);
+        totalChars += records[i].length() + separator.length();
+      }
+      unflushedRecords += count;
+      totalRecords += count;
+
+      if (recordsPerFlush > 0 && unflushedRecords >= recordsPerFlush) {
+        flush();
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Writes every buffered command to the file and asks the operating system to store it on disk
+   *
+   * @throws IOException if this or any earlier write to the file failed
+   */
+  public synchronized void sync() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    try {
+      flush();
+      fileStream.getFD().sync();
+    } catch (IOException e) {
+      fail(e);
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Writes every buffered command and closes the file
+   *
+   * @throws IOException if this or any earlier write to the file failed
+   */
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    setMillisPerFlush(0);
+    try {
+      flush();
+      writer.close();
+    } catch (IOException e) {
+      fail(e);
+    }
+    closed = true;
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Check if the log has been closed
+   *
+   * @return true if the log no longer accepts commands
+   */
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Get the number of commands added since the log was created
+   *
+   * @return number of lines in the log
+   */
+  public synchronized int getRecordCount() {
+    return totalRecords;
+  }
+
+  /**
+   * Get the length of the log, counting one byte for each character
+   *
+   * @return approximate size of the log file in bytes
+   */
+  public synchronized long getLength() {
+    return totalChars;
+  }
+
+  /**
+   * Get the checksum of the file, which only covers buffered commands once they are written, as
+   * they are by sync()
+   *
+   * @return CRC32 of every byte written to the file, including any it held when opened
+   */
+  public synchronized long getChecksum() {
+    return checksum.getValue();
+  }
+
+  /**
+   * Set how many commands may be buffered before they are written
+   *
+   * @param recordsPerFlush number of commands, or 0 to not count commands
+   */
+  public synchronized void setRecordsPerFlush(int recordsPerFlush) {
+    this.recordsPerFlush = recordsPerFlush;
+  }
+
+  /**
+   * Set how long a command may stay buffered before the background thread writes it
+   *
+   * @param millisPerFlush milliseconds, or 0 to stop the background thread
+   */
+  public synchronized void setMillisPerFlush(long millisPerFlush) {
+    this.millisPerFlush = millisPerFlush;
+
+    // Replace the current timer, if any
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+    if (millisPerFlush <= 0) {
+      if (flusher != null) {
+        flusher.shutdown();
+        flusher = null;
+      }
+      return;
+    }
+
+    if (flusher == null) {
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "command-log-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    flushTask = flusher.scheduleWithFixedDelay(this::flushIfNeeded, millisPerFlush,
+        millisPerFlush, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Get how many commands may be buffered before they are written
+   *
+   * @return number of commands, or 0 if commands are not counted
+   */
+  public synchronized int getRecordsPerFlush() {
+    return recordsPerFlush;
+  }
+
+  /**
+   * Get how long a command may stay buffered before the background thread writes it
+   *
+   * @return milliseconds, or 0 if there is no background thread
+   */
+  public synchronized long getMillisPerFlush() {
+    return millisPerFlush;
+  }
+
+  /**
+   * Called by the background thread to write any commands buffered since it last ran
+   */
+  private synchronized void flushIfNeeded() {
+    if (closed || unflushedRecords == 0) {
+      return;
+    }
+
+    try {
+      flush();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Keeps the first error writing to the file, for sync() and close() to throw
+   *
+   * @param e the error
+   */
+  private void fail(IOException e) {
+    if (error == null) {
+      error = e;
+    }
+  }
+
+  /**
+   * Writes every buffered command to the file
+   *
+   * @throws IOException if the file cannot be written
+   */
+  private void flush() throws IOException {
+    writer.flush();
+    unflushedRecords = 0;
+  }
+
+}
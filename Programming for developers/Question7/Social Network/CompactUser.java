@@ -0,0 +1,141 @@
+package application;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * A user of a compact graph. The name is kept in the graph's name pool and the friends are kept
+ * as ids in an IntSet, so the user holds no String and no set entry per friend. Names and friend
+ * sets are built when they are asked for.
+ *
+ * @author Team 70
+ *
+ */
+public class CompactUser extends User {
+  // Header, the fields of User and the two fields added here
+  private static final int SHALLOW_BYTES = 12 + 1 + 1 + 4 + 4 * 4 + 4 * 2;
+
+  // Fields
+  private Graph graph;
+  private IntSet friendIds = new IntSet();
+
+  /**
+   * Initialize a user whose name is already in the graph's name pool
+   *
+   * @param graph the graph that stores the name and finds users by id
+   * @param id    position of the user in the graph, which never changes
+   */
+  public CompactUser(Graph graph, int id) {
+    super(null, id, null);
+    this.graph = graph;
+  }
+
+  /**
+   * Get User Name from the graph's name pool
+   * @return name
+   */
+  @Override
+  public String getName() {
+    return graph.getNameOf(getId());
+  }
+
+  /**
+   * Get Friends
+   * @return read-only Set of friends, looked up by id as it is read
+   */
+  @Override
+  public Set<User> getFriends() {
+    return new FriendSet();
+  }
+
+  /**
+   * Add a friend
+   * @param friend the new friend
+   * @return true if they were not already a friend
+   */
+  @Override
+  public boolean addFriend(User friend) {
+    boolean added = friendIds.add(friend.getId());
+    if (added) {
+      friendsChanged();
+    }
+    return added;
+  }
+
+  /**
+   * Remove a friend
+   * @param friend the friend to remove
+   * @return true if they were a friend
+   */
+  @Override
+  public boolean removeFriend(User friend) {
+    boolean removed = friendIds.remove(friend.getId());
+    if (removed) {
+      friendsChanged();
+    }
+    return removed;
+  }
+
+  /**
+   * Remove every friend
+   */
+  @Override
+  public void clearFriends() {
+    friendsChanged();
+    friendIds.clear();
+  }
+
+  @Override
+  protected int[] copyFriendIds() {
+    return friendIds.toArray();
+  }
+
+  @Override
+  long estimateBytes() {
+    return MemoryFootprint.objectBytes(SHALLOW_BYTES);
+  }
+
+  @Override
+  long estimateFriendBytes() {
+    return friendIds.estimateBytes() + estimateSortedIdBytes();
+  }
+
+  /**
+   * Read-only view of the friend ids as users of the graph
+   */
+  private class FriendSet extends AbstractSet<User> {
+
+    @Override
+    public Iterator<User> iterator() {
+      PrimitiveIterator.OfInt ids = friendIds.iterator();
+      return new Iterator<User>() {
+        @Override
+        public boolean hasNext() {
+          return ids.hasNext();
+        }
+
+        @Override
+        public User next() {
+          return graph.getNodeById(ids.nextInt());
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return friendIds.size();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+      if (!(object instanceof User)) {
+        return false;
+      }
+      User user = (User) object;
+      return friendIds.contains(user.getId()) && graph.getNodeById(user.getId()) == user;
+    }
+  }
+
+}
@@ -0,0 +1,497 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A social network that many threads can read and change at the same time. Users are kept in a
+ * ConcurrentHashMap, and every user's friends are guarded by one of STRIPES read-write locks,
+ * chosen by the hash of the user's name. A change locks only the stripes of the users it touches
+ * and a query only reads those stripes, so readers are never held up by edits to unrelated users
+ * and edits to unrelated users run side by side. Whenever more than one stripe is needed they are
+ * locked in increasing order, so threads can never wait on each other in a circle.
+ * <p>
+ * Unlike SocialNetwork it keeps no command log and fires no events; it only holds the network.
+ * Methods that look at many users, such as getAllUsers and getShortestPath, do not stop the
+ * network from changing while they run, so they may or may not see changes made meanwhile.
+ *
+ * @author Team 70
+ *
+ */
+public class ConcurrentSocialNetwork implements SocialNetworkADT {
+  // Number of locks that guard the users' friends, a power of two
+  public static final int STRIPES = 64;
+
+  // Fields
+  private final ConcurrentHashMap<String, Vertex> users = new ConcurrentHashMap<String, Vertex>();
+  private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+  // Gives each user the position they joined in, so users can be listed in that order
+  private final AtomicLong joinCounter = new AtomicLong();
+  private volatile String centralUser;
+
+  /**
+   * Initialize values
+   */
+  public ConcurrentSocialNetwork() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  @Override
+  /**
+   * Get friends of a user
+   * @param user
+   * @return names of the friends, in the order they became friends
+   */
+  public List<String> displayNetwork(String user) {
+    List<String> friends = new ArrayList<String>();
+    if (user == null) {
+      return friends;
+    }
+
+    int[] held = lock(false, user);
+    try {
+      Vertex vertex = users.get(user);
+      if (vertex != null) {
+        for (Vertex friend : vertex.friends) {
+          friends.add(friend.name);
+        }
+      }
+    } finally {
+      unlock(false, held);
+    }
+    return friends;
+  }
+
+  @Override
+  /**
+   * Set central user
+   * @param centralUser
+   * @return true if works
+   */
+  public boolean setCentralUser(String centralUser) {
+    this.centralUser = centralUser;
+    return true;
+  }
+
+  @Override
+  /**
+   * Get the central user, which is the user who joined first if none has been set
+   * @return string central user
+   */
+  public String getCentralUser() {
+    if (centralUser == null) {
+      Vertex first = null;
+      for (Vertex vertex : users.values()) {
+        if (first == null || vertex.joined < first.joined) {
+          first = vertex;
+        }
+      }
+      if (first != null) {
+        centralUser = first.name;
+      }
+    }
+    return centralUser;
+  }
+
+  @Override
+  /**
+   * Add user
+   * @param user
+   * @return true if added
+   */
+  public boolean addUser(String user) {
+    if (user == null || !SocialNetwork.isValidUser(user)) {
+      return false;
+    }
+
+    int[] held = lock(true, user);
+    try {
+      if (users.containsKey(user)) {
+        return false;
+      }
+      users.put(user, new Vertex(user, joinCounter.getAndIncrement()));
+      return true;
+    } finally {
+      unlock(true, held);
+    }
+  }
+
+  @Override
+  /**
+   * Remove user and all of their friendships
+   * @param user
+   * @return true if removed
+   */
+  public boolean removeUser(String user) {
+    if (user == null) {
+      return false;
+    }
+
+    // The user's friends are guarded by their own stripes, so find out who they are, lock every
+    // stripe involved in order, and start again if someone became their friend in between
+    while (true) {
+      List<String> names = displayNetwork(user);
+      names.add(user);
+      int[] held = lock(true, names.toArray(new String[names.size()]));
+      try {
+        Vertex vertex = users.get(user);
+        if (vertex == null) {
+          return false;
+        }
+        if (holdsStripesOf(held, vertex.friends)) {
+          for (Vertex friend : vertex.friends) {
+            friend.friends.remove(vertex);
+          }
+          vertex.friends.clear();
+          users.remove(user);
+          return true;
+        }
+      } finally {
+        unlock(true, held);
+      }
+    }
+  }
+
+  @Override
+  /**
+   * Add friend to the central user
+   * @param friend
+   * @return true if added
+   */
+  public boolean addFriend(String friend) {
+    String central = centralUser;
+    return central != null && addFriend(central, friend);
+  }
+
+  @Override
+  /**
+   * Remove friend of the central user
+   * @param friend
+   * @return true if removed
+   */
+  public boolean removeFriend(String friend) {
+    String central = centralUser;
+    return central != null && removeFriend(central, friend);
+  }
+
+  @Override
+  /**
+   * Add Friend between any two users, adding either user if they do not exist
+   * @param friend1
+   * @param friend2
+   * @return true if added
+   */
+  public boolean addFriend(String friend1, String friend2) {
+    if (friend1 == null || friend2 == null || friend1.equals(friend2)
+        || !SocialNetwork.isValidUser(friend1) || !SocialNetwork.isValidUser(friend2)) {
+      return false;
+    }
+
+    int[] held = lock(true, friend1, friend2);
+    try {
+      Vertex vertex1 = users.get(friend1);
+      if (vertex1 == null) {
+        vertex1 = new Vertex(friend1, joinCounter.getAndIncrement());
+        users.put(friend1, vertex1);
+      }
+      Vertex vertex2 = users.get(friend2);
+      if (vertex2 == null) {
+        vertex2 = new Vertex(friend2, joinCounter.getAndIncrement());
+        users.put(friend2, vertex2);
+      }
+
+      if (vertex1.friends.add(vertex2)) {
+        vertex2.friends.add(vertex1);
+      }
+      return true;
+    } finally {
+      unlock(true, held);
+    }
+  }
+
+  @Override
+  /**
+   * Remove the friendship between two users
+   * @param friend1
+   * @param friend2
+   * @return true if the users are different
+   */
+  public boolean removeFriend(String friend1, String friend2) {
+    if (friend1 == null || friend2 == null || friend1.equals(friend2)) {
+      return false;
+    }
+
+    int[] held = lock(true, friend1, friend2);
+    try {
+      Vertex vertex1 = users.get(friend1);
+      Vertex vertex2 = users.get(friend2);
+      if (vertex1 != null && vertex2 != null && vertex1.friends.remove(vertex2)) {
+        vertex2.friends.remove(vertex1);
+      }
+      return true;
+    } finally {
+      unlock(true, held);
+    }
+  }
+
+  @Override
+  /**
+   * Remove every user, waiting for changes already under way to finish
+   */
+  public void removeAllUsers() {
+    for (ReentrantReadWriteLock stripe : stripes) {
+      stripe.writeLock().lock();
+    }
+    try {
+      users.clear();
+      centralUser = null;
+    } finally {
+      for (int i = STRIPES - 1; i >= 0; i--) {
+        stripes[i].writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  /**
+   * Find mutual friends
+   * @param user1
+   * @param user2
+   * @return names of the mutual friends, in the order they joined the network
+   */
+  public List<String> getMutualFriends(String user1, String user2) {
+    List<Vertex> mutual = new ArrayList<Vertex>();
+    if (user1 == null || user2 == null) {
+      return new ArrayList<String>();
+    }
+
+    int[] held = lock(false, user1, user2);
+    try {
+      Vertex vertex1 = users.get(user1);
+      Vertex vertex2 = users.get(user2);
+      if (vertex1 != null && vertex2 != null) {
+        // Look up each friend of the user with fewer friends among the other user's friends
+        if (vertex1.friends.size() > vertex2.friends.size()) {
+          Vertex swap = vertex1;
+          vertex1 = vertex2;
+          vertex2 = swap;
+        }
+        for (Vertex friend : vertex1.friends) {
+          if (vertex2.friends.contains(friend)) {
+            mutual.add(friend);
+          }
+        }
+      }
+    } finally {
+      unlock(false, held);
+    }
+    return namesInJoinOrder(mutual);
+  }
+
+  @Override
+  /**
+   * Get all users
+   * @return list of all users, in the order they joined
+   */
+  public List<String> getAllUsers() {
+    return namesInJoinOrder(users.values());
+  }
+
+  /**
+   * Get the number of users
+   *
+   * @return number of users
+   */
+  public int getUserCount() {
+    return users.size();
+  }
+
+  /**
+   * Finds the Shortest Path between two users. Each user's friends are read under their own
+   * stripe's lock as the search reaches them, so the network is free to change during a long
+   * search.
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   * @return List of Users, or an empty list if there is no path
+   */
+  public LinkedList<String> getShortestPath(String user1, String user2) {
+    LinkedList<String> path = new LinkedList<String>();
+    Vertex start = user1 == null ? null : users.get(user1);
+    Vertex target = user2 == null ? null : users.get(user2);
+    if (start == null || target == null) {
+      return path;
+    }
+
+    Map<Vertex, Vertex> pred = new HashMap<Vertex, Vertex>();
+    ArrayDeque<Vertex> queue = new ArrayDeque<Vertex>();
+    pred.put(start, start);
+    queue.add(start);
+
+    while (!queue.isEmpty() && !pred.containsKey(target)) {
+      Vertex curr = queue.poll();
+      for (Vertex friend : friendsOf(curr)) {
+        if (!pred.containsKey(friend)) {
+          pred.put(friend, curr);
+          queue.add(friend);
+          if (friend == target) {
+            break;
+          }
+        }
+      }
+    }
+
+    // Walk back from user2 to user1
+    if (pred.containsKey(target)) {
+      for (Vertex crawl = target; crawl != start; crawl = pred.get(crawl)) {
+        path.addFirst(crawl.name);
+      }
+      path.addFirst(start.name);
+    }
+    return path;
+  }
+
+  /**
+   * Copies the friends of a user under their stripe's lock
+   *
+   * @param vertex the user
+   * @return their friends
+   */
+  private Vertex[] friendsOf(Vertex vertex) {
+    int[] held = lock(false, vertex.name);
+    try {
+      return vertex.friends.toArray(new Vertex[vertex.friends.size()]);
+    } finally {
+      unlock(false, held);
+    }
+  }
+
+  /**
+   * Sorts users by when they joined
+   *
+   * @param vertices the users
+   * @return their names in the order they joined
+   */
+  private static List<String> namesInJoinOrder(Collection<Vertex> vertices) {
+    Vertex[] sorted = vertices.toArray(new Vertex[0]);
+    Arrays.sort(sorted, Comparator.comparingLong(vertex -> vertex.joined));
+    List<String> names = new ArrayList<String>(sorted.length);
+    for (Vertex vertex : sorted) {
+      names.add(vertex.name);
+    }
+    return names;
+  }
+
+  /**
+   * Finds the stripe that guards a user's friends
+   *
+   * @param name name of the user
+   * @return the stripe's position
+   */
+  private static int stripeOf(String name) {
+    int hash = name.hashCode() * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+  }
+
+  /**
+   * Locks the stripes of some users in increasing order, each stripe once
+   *
+   * @param write true for the write locks, false for the read locks
+   * @param names names of the users
+   * @return the positions of the locked stripes, in increasing order
+   */
+  private int[] lock(boolean write, String... names) {
+    int[] held = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      held[i] = stripeOf(names[i]);
+    }
+    Arrays.sort(held);
+
+    // Drop stripes that appear more than once
+    int count = held.length == 0 ? 0 : 1;
+    for (int i = 1; i < held.length; i++) {
+      if (held[i] != held[count - 1]) {
+        held[count++] = held[i];
+      }
+    }
+    if (count < held.length) {
+      held = Arrays.copyOf(held, count);
+    }
+
+    for (int stripe : held) {
+      if (write) {
+        stripes[stripe].writeLock().lock();
+      } else {
+        stripes[stripe].readLock().lock();
+      }
+    }
+    return held;
+  }
+
+  /**
+   * Unlocks stripes locked by lock, in the opposite order
+   *
+   * @param write true for the write locks, false for the read locks
+   * @param held  the positions of the stripes
+   */
+  private void unlock(boolean write, int[] held) {
+    for (int i = held.length - 1; i >= 0; i--) {
+      if (write) {
+        stripes[held[i]].writeLock().unlock();
+      } else {
+        stripes[held[i]].readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Checks that the stripe of every user in a collection is held
+   *
+   * @param held     positions of the held stripes, in increasing order
+   * @param vertices the users
+   * @return true if all of their stripes are held
+   */
+  private static boolean holdsStripesOf(int[] held, Collection<Vertex> vertices) {
+    for (Vertex vertex : vertices) {
+      if (Arrays.binarySearch(held, stripeOf(vertex.name)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A user and their friends, which may only be read or changed while holding the lock of the
+   * user's stripe
+   */
+  private static class Vertex {
+    private final String name;
+    private final long joined;
+    private final LinkedHashSet<Vertex> friends = new LinkedHashSet<Vertex>();
+
+    /**
+     * Initialize values
+     *
+     * @param name   name of the user
+     * @param joined position the user joined in
+     */
+    private Vertex(String name, long joined) {
+      this.name = name;
+      this.joined = joined;
+    }
+  }
+
+}
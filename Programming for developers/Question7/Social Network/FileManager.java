@@ -1,10 +1,18 @@
 package application;
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.LinkedList;
-import java.util.Scanner;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 /**
  * This manages files that are trying to be read or saved to a file
  * 
@@ -12,6 +20,15 @@ import java.util.Scanner;
  *
  */
 public class FileManager {
+  // Number of lines read from an imported file before they are applied
+  private static final int IMPORT_BATCH_SIZE = 4096;
+  // Most records each sort keeps in memory while a log is compacted
+  private static final int COMPACTION_RUN_SIZE = 256 * 1024;
+  // Fields of compaction records are separated by tabs, and events are marked ADDED or REMOVED
+  private static final String TAB = "\t";
+  private static final String ADDED = "a";
+  private static final String REMOVED = "r";
+
   private SocialNetwork socialNetwork;
 
   /**
@@ -23,183 +40,487 @@ public class FileManager {
   }
 
   /**
-   * Imports the file and reads it
+   * Imports the file and reads it in a single pass. Lines are read in batches and each batch is
+   * applied before the next is read. The log is synced once the whole file has been applied.
+   * <p>
+   * If the network is empty and the file has a snapshot that still matches it, the snapshot is
+   * loaded and only the lines after it are read.
    * @param fileName
-   * @param printStatements determines if everything should be logged
-   * @return Linked lisk of errors
+   * @return the result of the import, including the lines with errors
    */
-  public LinkedList<Object> importFile(String fileName, boolean printStatements) {
-   // Makes variables to hold hold file for parsing and 
-   File file = new File(fileName);
-   LinkedList<Object> out = new LinkedList<>();
-   int count=0;
-
-   	// If valid file was entered, then scan
-    if (file.exists()) {
-    	 count = 0;
-      // Create scanner of the file
-      try (Scanner readFile = new Scanner(file)) {
-
-    	// Loop through each line of the file
-        while (readFile.hasNextLine()) {
-        	
-          try {
-        	// parse each line 
-            String instruction = readFile.nextLine();
-            instructionParser(instruction, printStatements);
-
-          } catch (IllegalArgumentException ie) {
-        	// Lee[ Track of how many errors were found
-        	count++;
-            continue;
-          }
+  public ImportResult importFile(String fileName) {
+    return importFile(fileName, null);
+  }
 
-        }
-      } catch (Exception e) {
-    	  // Keep track of each error
-    	  out.add(false);
-    	  out.add(count);
-        return out;
+  /**
+   * Imports the file as importFile(String) does, reporting progress after each batch of lines.
+   * If the import is cancelled, the lines applied so far stay in the network and the result is
+   * not successful.
+   * @param fileName
+   * @param progress receives progress and can stop the import, or null
+   * @return the result of the import, including the lines with errors
+   */
+  public ImportResult importFile(String fileName, ImportProgress progress) {
+    // Makes variables to hold the lines with errors and the current line number
+    Path path = Paths.get(fileName);
+    List<Integer> errorLines = new ArrayList<Integer>();
+    int lineNumber = 0;
+
+    // If an invalid file was entered, then nothing is read
+    if (!Files.isRegularFile(path)) {
+      return new ImportResult(false, lineNumber, errorLines);
+    }
+
+    // Start after the snapshot, if there is one that can be used
+    long startByte = 0;
+    synchronized (socialNetwork) {
+      GraphSnapshot snapshot = socialNetwork.isEmpty() ? GraphSnapshot.read(path) : null;
+      if (snapshot != null) {
+        socialNetwork.loadSnapshot(snapshot);
+        startByte = snapshot.getLogBytes();
+        lineNumber = snapshot.getLogLines();
       }
+    }
+
+    String[] batch = new String[IMPORT_BATCH_SIZE];
+    try (BufferedReader reader = openReader(path, startByte)) {
+      long totalBytes = Files.size(path);
+      long bytesRead = startByte;
+      int batchSize;
+      do {
+        if (progress != null && progress.isCancelled()) {
+          socialNetwork.syncLog();
+          return new ImportResult(false, lineNumber, errorLines);
+        }
 
-    } else {
-      // Keep track of number of errors
-  	  out.add(false);
-  	  out.add(count);
-      return out;
+        // Read up to a full batch of lines, counting one byte per character and line separator
+        batchSize = 0;
+        String line;
+        while (batchSize < batch.length && (line = reader.readLine()) != null) {
+          batch[batchSize++] = line;
+          bytesRead += line.length() + 1;
+        }
+
+        lineNumber = applyBatch(batch, batchSize, lineNumber, errorLines);
+        if (progress != null) {
+          progress.update(lineNumber, Math.min(bytesRead, totalBytes), totalBytes);
+        }
+      } while (batchSize == batch.length);
+
+    } catch (IOException | RuntimeException e) {
+      // The file could not be read to the end
+      socialNetwork.syncLog();
+      return new ImportResult(false, lineNumber, errorLines);
     }
-	  out.add(true);
-	  out.add(count);
-	  return out;
+
+    // The import only succeeded if the commands it logged reached log.txt
+    return new ImportResult(socialNetwork.syncLog(), lineNumber, errorLines);
   }
 
+  /**
+   * Opens a file for reading lines, starting part way through it
+   * @param path the file
+   * @param startByte number of bytes to skip
+   * @return the reader
+   * @throws IOException if the file cannot be opened
+   */
+  private BufferedReader openReader(Path path, long startByte) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      channel.position(startByte);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new BufferedReader(Channels.newReader(channel, Charset.defaultCharset()), 64 * 1024);
+  }
 
   /**
-   * Exports a the log of commands to a new file
+   * Applies a batch of lines from an imported file to the network as one CommandBatch. Lines that
+   * cannot be parsed and commands the network rejects are both lines with errors.
+   * @param batch lines read from the file
+   * @param batchSize number of lines in the batch
+   * @param lineNumber number of lines applied before this batch
+   * @param errorLines line numbers of lines with errors, which lines from this batch are added to
+   * @return number of lines applied including this batch
+   */
+  private int applyBatch(String[] batch, int batchSize, int lineNumber, List<Integer> errorLines) {
+    // Loop through each line of the batch, noting which command each line became, or -1 for a
+    // line that could not be parsed
+    CommandBatch commands = new CommandBatch(batchSize);
+    int[] commandOfLine = new int[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      try {
+        // parse each line
+        commands.add(batch[i]);
+        commandOfLine[i] = commands.size() - 1;
+
+      } catch (IllegalArgumentException ie) {
+        commandOfLine[i] = -1;
+      }
+      batch[i] = null;
+    }
+    BatchResult result = socialNetwork.applyBatch(commands);
+
+    // Keep Track of which lines had errors, in order
+    for (int i = 0; i < batchSize; i++) {
+      lineNumber++;
+      if (commandOfLine[i] < 0
+          || result.getOutcome(commandOfLine[i]) == BatchResult.Outcome.REJECTED) {
+        errorLines.add(lineNumber);
+      }
+    }
+    return lineNumber;
+  }
+
+
+  /**
+   * Exports a the log of commands to a new file. The bytes are handed from one file to the other
+   * by FileChannel.transferTo, so the operating system can copy them without the log being read
+   * into memory or split into lines. Anything still buffered for the log must be written first.
    * 
    * @param fileName
-   * @param printStatements determines if everything should be logged
    * @return true if success
    */
   public boolean exportFile(String fileName) {
 	// Checks if this is the log file
-    if (!fileName.equals("log.txt")) {
-      // Creates variables for parsing
-      PrintWriter printWriter = null;
-      Scanner scanner = null;
-      File file = new File(fileName);
-
-      
-      try {
-    	// Initializes variables for parsing
-        file.createNewFile();
-        printWriter = new PrintWriter(file);
-        scanner = new Scanner(new File("log.txt"));
-
-        // Loop each line and add to new file
-        while (scanner.hasNextLine()) {
-          printWriter.println(scanner.nextLine());
+    if (!fileName.equals(SocialNetwork.LOG_FILE)) {
+      try (FileChannel source = FileChannel.open(Paths.get(SocialNetwork.LOG_FILE),
+          StandardOpenOption.READ);
+          FileChannel target = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        // transferTo may copy less than asked for, so keep going until the whole log is copied
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+          long copied = source.transferTo(position, size - position, target);
+          if (copied <= 0) {
+            break;
+          }
+          position += copied;
         }
 
       } catch (IOException e) {
         return false;
-
-      } finally {
-    	// Close out  variables used for parsing when finished
-        if (printWriter != null) {
-          printWriter.close();
-        }
-        if (scanner != null) {
-          scanner.close();
-        }
       }
     }
     return true;
   }
 
   /**
-   * Parses the instructions
-   * 
-   * @param instruction
-   * @param printStatements determines if everything should be logged
+   * Rewrites a log as the shortest list of commands that builds the same network: every user in
+   * the order they joined, every friendship once, then the central user. Users and friendships
+   * that were later removed, repeated commands and lines with errors are left out.
+   * <p>
+   * Neither the history nor the resulting network is kept in memory. Every command becomes a
+   * record of what happened to a user or a friendship and when, and the records are put in order
+   * with LineSorter, which keeps at most COMPACTION_RUN_SIZE of them in memory at a time and the
+   * rest in temporary files. Reading the records of each user together shows whether they are
+   * still in the network and when they last joined, and reading the records of each friendship
+   * together, after the times its users were last removed, shows whether it still exists.
+   * <p>
+   * The compacted log is written to a temporary file first, so the destination may be the source.
+   * This is for compacting any log file; a live network compacts log.txt from memory instead.
+   * @param source the log to compact
+   * @param destination the file to write the compacted log to
+   * @return number of lines in the compacted log, or -1 if it could not be written
    */
-  private void instructionParser(String instruction, boolean printStatements) {
-	// Clean up string instruction
-    instruction = instruction.trim();
-    String[] instructionArray = instruction.split(" ");
-
-    
-    // Checks if this is supposed to be printed
-    if(printStatements) {
-    	switch (instructionArray[0]) {
-        // Check Instruction
-        
-        // add
-        case "a":
-      	  
-          if (instructionArray.length == 3) { // a user1 user2
-            String user1 = instructionArray[1].trim();
-            String user2 = instructionArray[2].trim();
-
-            socialNetwork.addFriend(user1, user2);
-
-          } else if (instructionArray.length == 2) { // a user
-            String user = instructionArray[1].trim();
-
-            socialNetwork.addUser(user);
-
-          } else { // invalid add
-            throw new IllegalArgumentException("Invalid Add Command");
-          }
-          break;
-        
-        // remove
-        case "r":
-
-          if (instructionArray.length == 3) { // r user1 user2
-            String user1 = instructionArray[1].trim();
-            String user2 = instructionArray[2].trim();
+  public int compactLog(String source, String destination) {
+    return compactLog(source, destination, COMPACTION_RUN_SIZE);
+  }
 
-            socialNetwork.removeFriend(user1, user2);
+  /**
+   * Compacts a log as compactLog(String, String) does
+   * @param source the log to compact
+   * @param destination the file to write the compacted log to
+   * @param runSize most records each sort keeps in memory
+   * @return number of lines in the compacted log, or -1 if it could not be written
+   */
+  int compactLog(String source, String destination, int runSize) {
+    // Records are fields separated by tabs, which no user name can hold. Numbers are padded so
+    // they sort in order.
+    try (LineSorter userEvents = new LineSorter(runSize);
+        LineSorter friendEvents = new LineSorter(runSize);
+        LineSorter users = new LineSorter(runSize);
+        LineSorter joined = new LineSorter(runSize);
+        LineSorter bySecondUser = new LineSorter(runSize);
+        LineSorter byFriendship = new LineSorter(runSize);
+        LineSorter friendships = new LineSorter(runSize)) {
+      // name, order, ADDED or REMOVED for users, and first name, second name, line, ADDED or
+      // REMOVED for friendships, whose names are in order so both directions match
+      String centralUser = readEvents(source, userEvents, friendEvents);
+      if (centralUser == null) {
+        return -1;
+      }
 
-          } else if (instructionArray.length == 2) { // r user
-            String user = instructionArray[1].trim();
+      // name, order they last joined or 0 if removed, line they were last removed or 0, sorted by
+      // name; and order they last joined, name, for the users still in the network
+      try (LineSorter.Reader reader = userEvents.read()) {
+        String user = null;
+        long joinedAt = -1;
+        long removedAt = 0;
+        for (String record = reader.next(); ; record = reader.next()) {
+          String[] fields = record == null ? null : record.split(TAB, -1);
+          if (user != null && (fields == null || !fields[0].equals(user))) {
+            users.add(user + TAB + pad(Math.max(joinedAt, 0)) + TAB + pad(removedAt));
+            if (joinedAt >= 0) {
+              joined.add(pad(joinedAt) + TAB + user);
+            }
+            joinedAt = -1;
+            removedAt = 0;
+          }
+          if (fields == null) {
+            break;
+          }
 
-            socialNetwork.removeUser(user);
+          user = fields[0];
+          long order = Long.parseLong(fields[1]);
+          if (fields[2].equals(REMOVED)) {
+            joinedAt = -1;
+            removedAt = order / 2;
+          } else if (joinedAt < 0) {
+            joinedAt = order;
+          }
+        }
+      }
+      userEvents.close();
+
+      // Add what is known of the first user of each friendship, sorted by the second user
+      try (LineSorter.Reader reader = friendEvents.read();
+          LineSorter.Reader userReader = users.read()) {
+        String[] user = null;
+        for (String record = reader.next(); record != null; record = reader.next()) {
+          String[] fields = record.split(TAB, -1);
+          user = findUser(userReader, user, fields[0]);
+          bySecondUser.add(fields[1] + TAB + fields[0] + TAB + fields[2] + TAB + fields[3] + TAB
+              + user[2] + TAB + user[1]);
+        }
+      }
+      friendEvents.close();
+
+      // Then what is known of the second user, sorted by friendship and line. Only the commands
+      // after either user was last removed count.
+      try (LineSorter.Reader reader = bySecondUser.read();
+          LineSorter.Reader userReader = users.read()) {
+        String[] user = null;
+        for (String record = reader.next(); record != null; record = reader.next()) {
+          String[] fields = record.split(TAB, -1);
+          user = findUser(userReader, user, fields[0]);
+          String removedAt = fields[4].compareTo(user[2]) > 0 ? fields[4] : user[2];
+          byFriendship.add(fields[1] + TAB + fields[0] + TAB + fields[2] + TAB + fields[3] + TAB
+              + removedAt + TAB + fields[5] + TAB + user[1]);
+        }
+      }
+      bySecondUser.close();
+      users.close();
+
+      // Each friendship that still exists, listed under whichever user joined first, in the order
+      // it was added to them: order that user joined, line, first user, second user
+      try (LineSorter.Reader reader = byFriendship.read()) {
+        String[] friendship = null;
+        long addedAt = -1;
+        for (String record = reader.next(); ; record = reader.next()) {
+          String[] fields = record == null ? null : record.split(TAB, -1);
+          if (friendship != null && (fields == null || !fields[0].equals(friendship[0])
+              || !fields[1].equals(friendship[1]))) {
+            if (addedAt >= 0) {
+              boolean firstJoinedFirst = friendship[5].compareTo(friendship[6]) < 0;
+              friendships.add((firstJoinedFirst ? friendship[5] : friendship[6]) + TAB
+                  + pad(addedAt) + TAB + (firstJoinedFirst ? friendship[0] : friendship[1]) + TAB
+                  + (firstJoinedFirst ? friendship[1] : friendship[0]));
+            }
+            addedAt = -1;
+          }
+          if (fields == null) {
+            break;
+          }
 
-          } else { // invalid remove
-            throw new IllegalArgumentException("Invalid Remove Command");
+          friendship = fields;
+          if (fields[2].compareTo(fields[4]) > 0) {
+            if (fields[3].equals(REMOVED)) {
+              addedAt = -1;
+            } else if (addedAt < 0) {
+              addedAt = Long.parseLong(fields[2]);
+            }
           }
+        }
+      }
+      byFriendship.close();
 
-          break;
-        
-        // set central user
-        case "s":
-          String user = instructionArray[1].trim();
+      return writeCompactedLog(destination, joined, friendships, centralUser);
 
-          if (instructionArray.length == 2) {
-            socialNetwork.setCentralUser(user);
-          }
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads a log, turning each command into records of what happened to users and friendships
+   * @param source the log
+   * @param userEvents receives a record for each user added or removed
+   * @param friendEvents receives a record for each friendship added or removed
+   * @return the central user set last, the empty string if none was set, or null if the log
+   *         could not be read
+   * @throws IOException if a record cannot be stored
+   */
+  private String readEvents(String source, LineSorter userEvents, LineSorter friendEvents)
+      throws IOException {
+    String centralUser = "";
+    int lineNumber = 0;
+
+    try (BufferedReader reader = openReader(Paths.get(source), 0)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+
+        // Split the same way as CommandBatch.add, skipping lines it would reject
+        String[] instructionArray = line.trim().split(" ");
+        String user1 = instructionArray.length > 1 ? instructionArray[1].trim() : null;
+        String user2 = instructionArray.length > 2 ? instructionArray[2].trim() : null;
+        if (instructionArray.length > 3) {
+          continue;
+        }
+
+        switch (instructionArray[0]) {
+          case "a":
+            if (user2 != null) { // a user1 user2
+              if (!user1.equals(user2) && SocialNetwork.isValidUser(user1)
+                  && SocialNetwork.isValidUser(user2)) {
+                // Adding a friendship adds both users, the first one first
+                userEvents.add(user1 + TAB + pad(2L * lineNumber) + TAB + ADDED);
+                userEvents.add(user2 + TAB + pad(2L * lineNumber + 1) + TAB + ADDED);
+                friendEvents.add(friendEvent(user1, user2, lineNumber, ADDED));
+              }
+            } else if (user1 != null && SocialNetwork.isValidUser(user1)) { // a user
+              userEvents.add(user1 + TAB + pad(2L * lineNumber) + TAB + ADDED);
+            }
+            break;
+
+          case "r":
+            // A user who could not have been added cannot be removed either
+            if (user2 != null) { // r user1 user2
+              if (!user1.equals(user2) && SocialNetwork.isValidUser(user1)
+                  && SocialNetwork.isValidUser(user2)) {
+                friendEvents.add(friendEvent(user1, user2, lineNumber, REMOVED));
+              }
+            } else if (user1 != null && SocialNetwork.isValidUser(user1)) { // r user
+              userEvents.add(user1 + TAB + pad(2L * lineNumber) + TAB + REMOVED);
+            }
+            break;
+
+          case "s":
+            if (user1 != null && user2 == null) { // s user
+              centralUser = user1;
+            }
+            break;
+
+          default:
+            break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+    return centralUser;
+  }
 
-          break;
+  /**
+   * Writes a compacted log: the users still in the network in the order they joined, the
+   * friendships that still exist, then the central user
+   * @param destination the file to write the compacted log to
+   * @param joined records of the users, sorted by the order they joined
+   * @param friendships records of the friendships, sorted by the order they are written in
+   * @param centralUser the central user, or the empty string if there is none
+   * @return number of lines in the compacted log, or -1 if it could not be written
+   * @throws IOException if the records cannot be read
+   */
+  private int writeCompactedLog(String destination, LineSorter joined, LineSorter friendships,
+      String centralUser) throws IOException {
+    Path target = Paths.get(destination);
+    Path temporaryFile = Paths.get(destination + ".tmp");
+    int lines = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, Charset.defaultCharset());
+        LineSorter.Reader userReader = joined.read();
+        LineSorter.Reader friendshipReader = friendships.read()) {
+      for (String record = userReader.next(); record != null; record = userReader.next()) {
+        writer.write("a " + record.split(TAB, -1)[1]);
+        writer.newLine();
+        lines++;
+      }
 
-        default:
-      	// If not found
-          throw new IllegalArgumentException("Invalid Set Command");
+      for (String record = friendshipReader.next(); record != null;
+          record = friendshipReader.next()) {
+        String[] fields = record.split(TAB, -1);
+        writer.write("a " + fields[2] + " " + fields[3]);
+        writer.newLine();
+        lines++;
+      }
 
+      if (!centralUser.isEmpty()) {
+        writer.write("s " + centralUser);
+        writer.newLine();
+        lines++;
       }
+    } catch (IOException e) {
+      return -1;
+    }
+
+    try {
+      Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      return -1;
+    }
+    return lines;
+  }
+
+  /**
+   * Makes the record of a friendship being added or removed, with the names in order
+   * @param user1 one user
+   * @param user2 the other user
+   * @param lineNumber line of the command
+   * @param event ADDED or REMOVED
+   * @return the record
+   */
+  private static String friendEvent(String user1, String user2, int lineNumber, String event) {
+    boolean inOrder = user1.compareTo(user2) < 0;
+    return (inOrder ? user1 : user2) + TAB + (inOrder ? user2 : user1) + TAB + pad(lineNumber)
+        + TAB + event;
+  }
+
+  /**
+   * Reads the user records, which are sorted by name, up to the record of a user
+   * @param reader the user records
+   * @param current the record read last, split into fields, or null before the first
+   * @param name the user, whose name is no earlier than the one read last
+   * @return the user's record, split into fields
+   * @throws IOException if the records cannot be read
+   */
+  private static String[] findUser(LineSorter.Reader reader, String[] current, String name)
+      throws IOException {
+    while (current == null || current[0].compareTo(name) < 0) {
+      current = reader.next().split(TAB, -1);
     }
-    
+    return current;
+  }
+
+  /**
+   * Pads a number with zeros so numbers sort in order as text
+   * @param number a number with at most ten digits
+   * @return the padded number
+   */
+  private static String pad(long number) {
+    String digits = Long.toString(number);
+    return "0000000000".substring(digits.length()) + digits;
   }
 
   /**
-   * Updates the log
+   * Updates the log. The instruction is buffered and reaches the file according to the log's
+   * flush policy.
    * @param instruction the instruction
-   * @param logFileWriter the File Writer
+   * @param commandLog the log
    */
-  public void updateLog(String instruction, PrintWriter logFileWriter) {
-    logFileWriter.println(instruction);
-    logFileWriter.flush();
+  public void updateLog(String instruction, CommandLog commandLog) {
+    commandLog.append(instruction);
   }
 
 }
@@ -0,0 +1,488 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A read-only copy of a graph in compressed sparse row form: the friends of every user sit next
+ * to each other in one int array, and an offsets array says where each user's friends start.
+ * Searches step through plain arrays instead of following references from user to user, and
+ * since nothing in a frozen graph ever changes, any number of threads can search it while the
+ * graph it came from goes on being edited.
+ * <p>
+ * Users keep the ids they have in the graph, so a removed user leaves an id with no name and no
+ * friends. Friends are stored in the order they were added, so searches find the same paths as
+ * the same searches on the graph.
+ *
+ * @author Team 70
+ *
+ */
+public class FrozenGraph {
+  private static final int NO_ID = -1;
+  // A neighborhood search checks unreached users against the frontier instead of going out from
+  // the frontier once the frontier's friendships are more than 1/ALPHA of the unreached users'
+  // friendships, and goes back once fewer than 1/BETA of the users are on the frontier
+  private static final int ALPHA = 14;
+  private static final int BETA = 24;
+
+  // Fields
+  // Graph.getVersion() when the copy was made
+  private final long version;
+  // name of each id, or null for the id of a removed user
+  private final String[] names;
+  // friends of id i are friends[offsets[i]] up to friends[offsets[i + 1]]
+  private final int[] offsets;
+  private final int[] friends;
+  private final int users;
+  // Open addressing table of ids plus one, with 0 for an empty bucket, that finds ids by name
+  private final int[] table;
+  // Counted the first time it is asked for, or -1 until then
+  private int groups = -1;
+
+  /**
+   * Initialize values
+   *
+   * @param version version of the graph that was copied
+   * @param names   name of each id, or null for removed users
+   * @param offsets offsets into the friends array, with one extra entry marking the end
+   * @param friends ids of every user's friends
+   */
+  FrozenGraph(long version, String[] names, int[] offsets, int[] friends) {
+    this.version = version;
+    this.names = names;
+    this.offsets = offsets;
+    this.friends = friends;
+
+    int count = 0;
+    for (String name : names) {
+      if (name != null) {
+        count++;
+      }
+    }
+    this.users = count;
+
+    // Keep the table at most half full
+    int capacity = Integer.highestOneBit(Math.max(count, 8) * 2 - 1) << 1;
+    this.table = new int[capacity];
+    for (int id = 0; id < names.length; id++) {
+      if (names[id] != null) {
+        int bucket = names[id].hashCode() & (capacity - 1);
+        while (table[bucket] != 0) {
+          bucket = (bucket + 1) & (capacity - 1);
+        }
+        table[bucket] = id + 1;
+      }
+    }
+  }
+
+  /**
+   * Get the version of the graph this is a copy of
+   *
+   * @return the value of Graph.getVersion() when the copy was made
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the number of vertices
+   *
+   * @return number of users
+   */
+  public int order() {
+    return users;
+  }
+
+  /**
+   * Returns the number of edges
+   *
+   * @return number of friendships
+   */
+  public int size() {
+    return friends.length / 2;
+  }
+
+  /**
+   * Returns one more than the largest user id, including the ids of removed users
+   *
+   * @return the number of ids
+   */
+  public int getIdLimit() {
+    return names.length;
+  }
+
+  /**
+   * Finds the id of a user
+   *
+   * @param name name of the user
+   * @return the id, or -1 if there is no such user
+   */
+  public int getId(String name) {
+    if (name == null) {
+      return NO_ID;
+    }
+    int mask = table.length - 1;
+    for (int bucket = name.hashCode() & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      if (names[table[bucket] - 1].equals(name)) {
+        return table[bucket] - 1;
+      }
+    }
+    return NO_ID;
+  }
+
+  /**
+   * Get the name of a user
+   *
+   * @param id id of the user
+   * @return the name, or null if the id belongs to a removed user
+   */
+  public String getName(int id) {
+    return names[id];
+  }
+
+  /**
+   * Get the number of friends of a user
+   *
+   * @param id id of the user
+   * @return number of friends
+   */
+  public int getDegree(int id) {
+    return offsets[id + 1] - offsets[id];
+  }
+
+  /**
+   * Get where each user's friends start. The array is shared, so it must not be modified.
+   *
+   * @return offsets into the friends array, with one extra entry marking the end
+   */
+  int[] getOffsets() {
+    return offsets;
+  }
+
+  /**
+   * Get the friends of every user. The array is shared, so it must not be modified.
+   *
+   * @return ids of every user's friends, in the order they were added
+   */
+  int[] getFriends() {
+    return friends;
+  }
+
+  /**
+   * Get the names of every id. The array is shared, so it must not be modified.
+   *
+   * @return the name of each id, or null for removed users
+   */
+  String[] getNames() {
+    return names;
+  }
+
+  /**
+   * Finds the Shortest Path between two users
+   *
+   * @param user1 name of the first user
+   * @param user2 name of the second user
+   * @return List of Users, or an empty list if there is no path
+   */
+  public LinkedList<String> shortestPath(String user1, String user2) {
+    LinkedList<String> path = new LinkedList<String>();
+    int start = getId(user1);
+    int target = getId(user2);
+    if (start == NO_ID || target == NO_ID) {
+      return path;
+    }
+
+    // Users are added to the queue at most once, so it needs a slot per id
+    int[] queue = new int[names.length];
+    int[] pred = new int[names.length];
+    boolean[] visited = new boolean[names.length];
+    int head = 0;
+    int tail = 0;
+    boolean found = false;
+    visited[start] = true;
+    queue[tail++] = start;
+
+    while (head < tail && !found) {
+      int curr = queue[head++];
+      for (int i = offsets[curr]; i < offsets[curr + 1]; i++) {
+        int friend = friends[i];
+        if (!visited[friend]) {
+          visited[friend] = true;
+          queue[tail++] = friend;
+          pred[friend] = curr;
+          if (friend == target) {
+            found = true;
+            break;
+          }
+        }
+      }
+    }
+
+    // Walk back from user2 to user1
+    if (found) {
+      for (int crawl = target; crawl != start; crawl = pred[crawl]) {
+        path.addFirst(names[crawl]);
+      }
+      path.addFirst(names[start]);
+    }
+    return path;
+  }
+
+  /**
+   * Finds the Shortest Path between two users by searching from both users at once, growing
+   * whichever side has the smaller frontier by a whole level each round
+   *
+   * @param user1 name of the first user
+   * @param user2 name of the second user
+   * @return List of Users, the same length as the path found by shortestPath
+   */
+  public LinkedList<String> bidirectionalShortestPath(String user1, String user2) {
+    LinkedList<String> path = new LinkedList<String>();
+    int start = getId(user1);
+    int target = getId(user2);
+    if (start == NO_ID || target == NO_ID || start == target) {
+      return path;
+    }
+
+    // dist is the distance from that side's user plus one, so zero means not reached
+    int[][] dist = {new int[names.length], new int[names.length]};
+    int[][] pred = {new int[names.length], new int[names.length]};
+    int[][] queue = {new int[names.length], new int[names.length]};
+    int[] head = {0, 0};
+    int[] tail = {1, 1};
+    int[] meet = {NO_ID, NO_ID};
+    queue[0][0] = start;
+    queue[1][0] = target;
+    dist[0][start] = 1;
+    dist[1][target] = 1;
+    int best = Integer.MAX_VALUE;
+
+    while (best == Integer.MAX_VALUE && head[0] < tail[0] && head[1] < tail[1]) {
+      int side = tail[0] - head[0] <= tail[1] - head[1] ? 0 : 1;
+      int other = 1 - side;
+      int levelEnd = tail[side];
+
+      while (head[side] < levelEnd) {
+        int curr = queue[side][head[side]++];
+        for (int i = offsets[curr]; i < offsets[curr + 1]; i++) {
+          int friend = friends[i];
+
+          // A friend the other search reached joins the two searches
+          if (dist[other][friend] != 0 && dist[side][curr] + dist[other][friend] - 1 < best) {
+            best = dist[side][curr] + dist[other][friend] - 1;
+            meet[side] = curr;
+            meet[other] = friend;
+          }
+          if (dist[side][friend] == 0) {
+            dist[side][friend] = dist[side][curr] + 1;
+            pred[side][friend] = curr;
+            queue[side][tail[side]++] = friend;
+          }
+        }
+      }
+    }
+
+    // Walk back to user1 and forward to user2 from the edge where the searches met
+    if (best != Integer.MAX_VALUE) {
+      for (int crawl = meet[0]; crawl != start; crawl = pred[0][crawl]) {
+        path.addFirst(names[crawl]);
+      }
+      path.addFirst(names[start]);
+      for (int crawl = meet[1]; crawl != target; crawl = pred[1][crawl]) {
+        path.addLast(names[crawl]);
+      }
+      path.addLast(names[target]);
+    }
+    return path;
+  }
+
+  /**
+   * Finds the friends two users have in common
+   *
+   * @param user1 name of the first user
+   * @param user2 name of the second user
+   * @return names of the mutual friends, in the order they joined the network
+   */
+  public List<String> getMutualFriends(String user1, String user2) {
+    List<String> mutualFriends = new ArrayList<String>();
+    int id1 = getId(user1);
+    int id2 = getId(user2);
+    if (id1 == NO_ID || id2 == NO_ID) {
+      return mutualFriends;
+    }
+
+    int[] ids1 = Arrays.copyOfRange(friends, offsets[id1], offsets[id1 + 1]);
+    int[] ids2 = Arrays.copyOfRange(friends, offsets[id2], offsets[id2 + 1]);
+    Arrays.sort(ids1);
+    Arrays.sort(ids2);
+    for (int id : Graph.intersectSorted(ids1, ids2)) {
+      mutualFriends.add(names[id]);
+    }
+    return mutualFriends;
+  }
+
+  /**
+   * Finds everyone within a number of hops of a user, one hop at a time. Reached users are kept
+   * in bitsets, and when the frontier grows large the search switches from going out from the
+   * frontier to checking each unreached user for a friend on it, which can stop at the first one
+   * found.
+   *
+   * @param user name of the user
+   * @param hops largest number of hops, where a negative number is taken as 0 and a number larger
+   *             than the number of users as the number of users
+   * @return the members at each hop, or no members if there is no such user
+   */
+  public Neighborhood getNeighborhood(String user, int hops) {
+    return getNeighborhood(user, hops, true);
+  }
+
+  /**
+   * Finds everyone within a number of hops of a user, optionally only ever going out from the
+   * frontier, so the two ways of searching can be compared
+   *
+   * @param user              name of the user
+   * @param hops              largest number of hops, where a negative number is taken as 0
+   * @param directionOptimize true to check unreached users against large frontiers
+   * @return the members at each hop, or no members if there is no such user
+   */
+  Neighborhood getNeighborhood(String user, int hops, boolean directionOptimize) {
+    // No user is further away than the number of users
+    hops = Math.max(Math.min(hops, users), 0);
+    int[] hopStarts = new int[hops + 2];
+    int start = getId(user);
+    if (start == NO_ID) {
+      return new Neighborhood(this, hops, new int[0], hopStarts);
+    }
+
+    int idLimit = names.length;
+    long[] reached = new long[(idLimit + 63) >>> 6];
+    // Only needed once the search checks unreached users against the frontier
+    long[] frontier = null;
+    // Users are added at most once, in the order they were reached, so hop h is a slice of it. It
+    // grows a hop at a time, so searching a few hops of a large graph stays small.
+    int[] members = new int[Math.min(users, getDegree(start) + 1)];
+    int count = 0;
+    members[count++] = start;
+    reached[start >>> 6] |= 1L << start;
+    hopStarts[1] = count;
+    // Friendships left to check from the unreached users, for choosing how to search
+    long unreachedEdges = friends.length - getDegree(start);
+    boolean bottomUp = false;
+
+    for (int hop = 1; hop <= hops; hop++) {
+      int first = hopStarts[hop - 1];
+      int last = hopStarts[hop];
+      if (first == last) {
+        hopStarts[hop + 1] = count;
+        continue;
+      }
+
+      long frontierEdges = 0;
+      for (int i = first; i < last; i++) {
+        frontierEdges += getDegree(members[i]);
+      }
+      if (directionOptimize) {
+        if (!bottomUp && frontierEdges > unreachedEdges / ALPHA) {
+          bottomUp = true;
+        } else if (bottomUp && last - first < idLimit / BETA) {
+          bottomUp = false;
+        }
+      }
+
+      // A hop adds no more users than there are unreached users or friendships on the frontier
+      int room = (int) Math.min(users, count + (bottomUp ? users - count : frontierEdges));
+      if (members.length < room) {
+        members = Arrays.copyOf(members, Math.max(room, Math.min(users, members.length * 2)));
+      }
+
+      if (bottomUp) {
+        if (frontier == null) {
+          frontier = new long[reached.length];
+        } else {
+          Arrays.fill(frontier, 0);
+        }
+        for (int i = first; i < last; i++) {
+          frontier[members[i] >>> 6] |= 1L << members[i];
+        }
+        for (int word = 0; word < reached.length; word++) {
+          // Bits past the last id are never set in frontier, and have no friends to check
+          for (long unreached = ~reached[word]; unreached != 0; unreached &= unreached - 1) {
+            int id = (word << 6) + Long.numberOfTrailingZeros(unreached);
+            if (id >= idLimit) {
+              break;
+            }
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+              if ((frontier[friends[i] >>> 6] & (1L << friends[i])) != 0) {
+                reached[word] |= 1L << id;
+                members[count++] = id;
+                unreachedEdges -= getDegree(id);
+                break;
+              }
+            }
+          }
+        }
+      } else {
+        for (int i = first; i < last; i++) {
+          int curr = members[i];
+          for (int j = offsets[curr]; j < offsets[curr + 1]; j++) {
+            int friend = friends[j];
+            if ((reached[friend >>> 6] & (1L << friend)) == 0) {
+              reached[friend >>> 6] |= 1L << friend;
+              members[count++] = friend;
+              unreachedEdges -= getDegree(friend);
+            }
+          }
+        }
+      }
+      hopStarts[hop + 1] = count;
+    }
+    return new Neighborhood(this, hops, members, hopStarts);
+  }
+
+  /**
+   * Finds how many groups of friends there are. The count is worked out the first time it is
+   * asked for and then kept.
+   *
+   * @return the number of groups
+   */
+  public int getConnectedComponents() {
+    if (groups < 0) {
+      groups = countGroups();
+    }
+    return groups;
+  }
+
+  /**
+   * Counts the groups with a depth first search from every user not yet reached
+   *
+   * @return the number of groups
+   */
+  private int countGroups() {
+    boolean[] visited = new boolean[names.length];
+    int[] stack = new int[names.length];
+    int count = 0;
+
+    for (int id = 0; id < names.length; id++) {
+      if (names[id] == null || visited[id]) {
+        continue;
+      }
+      count++;
+      int top = 0;
+      visited[id] = true;
+      stack[top++] = id;
+      while (top > 0) {
+        int curr = stack[--top];
+        for (int i = offsets[curr]; i < offsets[curr + 1]; i++) {
+          if (!visited[friends[i]]) {
+            visited[friends[i]] = true;
+            stack[top++] = friends[i];
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+}
@@ -1,8 +1,16 @@
 package application;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
 
 /**
  * Creates graph that manages user relationships to one another and 
@@ -15,14 +23,76 @@ import java.util.List;
 public class Graph implements GraphADT {
 
   // Fields that hold information about the graph
+  // allNodes is indexed by user id, and a removed user leaves an empty (null) slot so that ids
+  // stay stable. nodeIndex finds a user by name and keeps users in the order they were added.
+  // A compact graph has no nodeIndex; names are found in namePool instead, and users are in the
+  // order they were added simply by going through allNodes in id order.
   private ArrayList<User> allNodes = new ArrayList<User>();
+  private LinkedHashMap<String, User> nodeIndex;
+  private NamePool namePool;
   private int totalEdges = 0;
   private int totalVerticies = 0;
+  // Number of users the most recent shortest path search reached
+  private int lastSearchVisited = 0;
+  // Union-find forest over user ids that tracks the groups of friends as edges are added.
+  // Removing a friendship may split a group, which union-find cannot undo, so the groups
+  // are then marked stale and recounted the next time they are asked for
+  private int[] groupParent = new int[16];
+  private int[] groupSize = new int[16];
+  private int totalGroups = 0;
+  private boolean groupsStale = false;
+  // Goes up by one with every change
+  private long version = 0;
+  // The last frozen copy of the graph, and every change made since, as described in
+  // GraphChanges, so that a new copy can be made by patching the last one
+  private FrozenGraph lastFrozen = new FrozenGraph(0, new String[0], new int[1], new int[0]);
+  private int[] changeUsers = new int[16];
+  private int[] changeFriends = new int[16];
+  private int changeCount = 0;
+  // The version at which each user, by id, was added or last gained or lost a friend
+  private long[] friendsVersion = new long[16];
+  // The version at which a friendship was last added
+  private long additionVersion = 0;
+  // Finds users by prefix or by similar name. Built the first time it is needed, then kept up to
+  // date as users are added and removed.
+  private UserIndex userIndex;
+
+  // Mutual friends are found by galloping once one user has this many times more friends
+  private static final int GALLOP_RATIO = 16;
+  // Most changes kept beyond one for each user and two for each friendship before they are
+  // patched into the last frozen copy
+  private static final int MIN_CHANGES = 4096;
 
   /*
    * Default no-argument constructor
    */
-  public Graph() {}
+  public Graph() {
+    this(false);
+  }
+
+  /**
+   * Creates an empty graph, choosing how users are stored. A compact graph keeps names in a
+   * NamePool and friends as ids in an IntSet per user, which takes far less memory on large
+   * networks; names and friend sets are then built each time they are asked for.
+   *
+   * @param compact true to store users compactly
+   */
+  public Graph(boolean compact) {
+    if (compact) {
+      namePool = new NamePool();
+    } else {
+      nodeIndex = new LinkedHashMap<String, User>();
+    }
+  }
+
+  /**
+   * Check how users are stored
+   *
+   * @return true if the graph stores users compactly
+   */
+  public boolean isCompact() {
+    return namePool != null;
+  }
 
   /**
    * Method that could be used, but was decided not to be in favor of testing through the GraphTest
@@ -43,23 +113,12 @@ public class Graph implements GraphADT {
    * @param vertex the vertex to be added
    */
   public void addVertex(String vertex) {
-    // Ends method if vertex does not have a value
-    if (vertex == null) {
+    // Ends method if vertex does not have a value or already exists
+    if (vertex == null || getNode(vertex) != null) {
       return;
     }
 
-    // Loop through each vertex to see if it already exists
-    // If vertex exists, then don't add it
-    for (int i = 0; i < allNodes.size(); i++) {
-      if (allNodes.get(i).getName().equals(vertex)) {
-        return;
-      }
-    }
-
-    // Create a new vertex and add it to the graph
-    User newVertex = new User(vertex);
-    allNodes.add(newVertex);
-    totalVerticies += 1;
+    createVertex(vertex);
   }
 
   /**
@@ -77,27 +136,42 @@ public class Graph implements GraphADT {
     if (vertex == null) {
       return;
     }
-    // Remove Vertex
-    // Loops through until vertex if found and removes it
-    for (int i = 0; i < allNodes.size(); i++) {
-      if (allNodes.get(i).getName().equals(vertex)) {
-        totalEdges -= allNodes.get(i).getFriends().size();
-        allNodes.remove(i);
-        totalVerticies -= 1;
-      }
+
+    // Remove Vertex, ending the method if it does not exist
+    User node = getNode(vertex);
+    if (node == null) {
+      return;
+    }
+    changed();
+    if (namePool != null) {
+      namePool.remove(node.getId());
+    } else {
+      nodeIndex.remove(vertex);
+    }
+    if (userIndex != null) {
+      userIndex.remove(vertex);
     }
+    allNodes.set(node.getId(), null);
+    totalEdges -= node.getFriends().size();
+    totalVerticies -= 1;
 
-    // Remove Edge
-    // Loops through until a nod's successor equals the vertex of interest
-    // if found and remove the vertex from the successor list
-    for (int i = 0; i < allNodes.size(); i++) {
-      for (int j = 0; j < allNodes.get(i).getFriends().size(); j++) {
-        if (allNodes.get(i).getFriends().get(j).getName().equals(vertex)) {
-          allNodes.get(i).getFriends().remove(j);
-        }
-      }
+    // A user without friends is a group of their own, anyone else may leave a split group
+    if (node.getFriends().isEmpty()) {
+      totalGroups -= 1;
+    } else {
+      groupsStale = true;
     }
 
+    // Remove Edge
+    // Only the friends of the vertex can point back to it, so remove the vertex from each of
+    // their friend lists
+    for (User friend : node.getFriends()) {
+      friend.removeFriend(node);
+      friendsVersion[friend.getId()] = version;
+      recordChange(friend.getId(), ~node.getId());
+    }
+    node.clearFriends();
+    recordChange(node.getId(), GraphChanges.REMOVED_USER);
   }
 
   /**
@@ -117,52 +191,71 @@ public class Graph implements GraphADT {
       return;
     }
 
-    // Create some variables to indicate if a node was found and where
-    boolean node1 = false;
-    int node1Index = 0;
-    boolean node2 = false;
-    int node2Index = 0;
-
-    // Loop until both nodes are found
-    while (!node1 || !node2) {
-
-      // Loop through all Nodes
-      for (int i = 0; i < allNodes.size(); i++) {
-        // Check if equal to first Vertex
-        if (allNodes.get(i).getName().equals(vertex1)) {
-          node1 = true;
-          node1Index = i;
-
-          // See if edge exists by looping through succesors and if any of them
-          // are vertex 2
-          for (int j = 0; j < allNodes.get(i).getFriends().size(); j++) {
-            if (allNodes.get(i).getFriends().get(j).getName().equals(vertex2)) {
-              return;
-            }
-          }
-        }
-        // Check if second vertex exists
-        if (allNodes.get(i).getName().equals(vertex2)) {
-          node2 = true;
-          node2Index = i;
-        }
-      }
+    // If either vertex did not exist, then add it to the graph.
+    User node1 = getNode(vertex1);
+    if (node1 == null) {
+      node1 = createVertex(vertex1);
+    }
+    User node2 = getNode(vertex2);
+    if (node2 == null) {
+      node2 = createVertex(vertex2);
+    }
 
-      // If either vertex did not exist, then add it to the graph.
-      if (!node1) {
-        this.addVertex(vertex1);
+    connect(node1, node2);
+  }
 
-      }
-      if (!node2) {
-        this.addVertex(vertex2);
-      }
+  /**
+   * Adds the friendship between two users of this graph, unless they are the same user or are
+   * already friends
+   *
+   * @param node1 first user
+   * @param node2 second user
+   */
+  private void connect(User node1, User node2) {
+    // A user cannot be their own friend, and an existing edge is not added twice
+    if (node1 == node2 || !node1.addFriend(node2)) {
+      return;
     }
 
     // Add the edge to the graph
-    allNodes.get(node1Index).getFriends().add(allNodes.get(node2Index));
-    allNodes.get(node2Index).getFriends().add(allNodes.get(node1Index));
+    node2.addFriend(node1);
     totalEdges += 1;
+    unionGroups(node1.getId(), node2.getId());
+    changed();
+    friendsVersion[node1.getId()] = version;
+    friendsVersion[node2.getId()] = version;
+    additionVersion = version;
+    recordChange(node1.getId(), node2.getId());
+  }
+
+  /**
+   * Adds every user and friendship of a snapshot to this graph, without looking up users by name
+   * for each friendship
+   *
+   * @param snapshot the snapshot to add
+   */
+  public void load(GraphSnapshot snapshot) {
+    String[] names = snapshot.getNames();
+    int[] offsets = snapshot.getOffsets();
+    int[] friends = snapshot.getFriends();
+
+    // Find or create every user first
+    User[] nodes = new User[names.length];
+    for (int i = 0; i < names.length; i++) {
+      nodes[i] = getNode(names[i]);
+      if (nodes[i] == null) {
+        nodes[i] = createVertex(names[i]);
+      }
+    }
 
+    // Each friendship is stored for both users, so only add it from the earlier user
+    for (int i = 0; i < names.length; i++) {
+      for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+        if (friends[j] > i) {
+          connect(nodes[i], nodes[friends[j]]);
+        }
+      }
+    }
   }
 
   /**
@@ -180,28 +273,21 @@ public class Graph implements GraphADT {
     if (vertex1 == null || vertex2 == null) {
       return;
     }
+    User node1 = getNode(vertex1);
+    User node2 = getNode(vertex2);
+    if (node1 == null || node2 == null) {
+      return;
+    }
 
-    // Loops through until a node's neighbor equals the vertex of interest
-    // if found, remove the vertex from the neighbor's list
-    for (int i = 0; i < allNodes.size(); i++) {
-      // compares for vertex 1 to vertex 2
-      if (allNodes.get(i).getName().equals(vertex1)) {
-        for (int j = 0; j < allNodes.get(i).getFriends().size(); j++) {
-          if (allNodes.get(i).getFriends().get(j).getName().equals(vertex2)) {
-            allNodes.get(i).getFriends().remove(j);
-            totalEdges -= 1;
-          }
-        }
-      }
-      // compares vertex 2 to vertex 1
-      if (allNodes.get(i).getName().equals(vertex2)) {
-        for (int j = 0; j < allNodes.get(i).getFriends().size(); j++) {
-          if (allNodes.get(i).getFriends().get(j).getName().equals(vertex1)) {
-            allNodes.get(i).getFriends().remove(j);
-            totalEdges -= 1;
-          }
-        }
-      }
+    // The edge is stored on both users, but only counts once
+    if (node1.removeFriend(node2)) {
+      node2.removeFriend(node1);
+      totalEdges -= 1;
+      groupsStale = true;
+      changed();
+      friendsVersion[node1.getId()] = version;
+      friendsVersion[node2.getId()] = version;
+      recordChange(node1.getId(), ~node2.getId());
     }
   }
 
@@ -210,13 +296,52 @@ public class Graph implements GraphADT {
    */
   public List<String> getAllVertices() {
     // Create List and then add all nodes the that before returning it
-    List<String> allVertices = new ArrayList<String>();
-
-    for (int i = 0; i < allNodes.size(); i++) {
-      allVertices.add(allNodes.get(i).getName());
+    if (namePool == null) {
+      return new ArrayList<String>(nodeIndex.keySet());
+    }
+    ArrayList<String> names = new ArrayList<String>(totalVerticies);
+    for (User node : getAllNodes()) {
+      names.add(node.getName());
     }
+    return names;
+  }
+
+  /**
+   * Returns the first vertices, in order, whose names start with some text
+   *
+   * @param prefix text the names must start with
+   * @param limit  largest number of vertices to return
+   * @return the names of the vertices
+   */
+  public List<String> getVerticesStartingWith(String prefix, int limit) {
+    return getUserIndex().complete(prefix, limit);
+  }
 
-    return allVertices;
+  /**
+   * Returns the first vertices, in order, whose names are at most one inserted, removed or
+   * changed letter away from some text
+   *
+   * @param text  the text
+   * @param limit largest number of vertices to return
+   * @return the names of the vertices
+   */
+  public List<String> getSimilarVertices(String text, int limit) {
+    return getUserIndex().findSimilar(text, limit);
+  }
+
+  /**
+   * Returns the index of the names of the vertices, building it the first time it is needed
+   *
+   * @return the index
+   */
+  private UserIndex getUserIndex() {
+    if (userIndex == null) {
+      userIndex = new UserIndex();
+      for (User node : getAllNodes()) {
+        userIndex.add(node.getName());
+      }
+    }
+    return userIndex;
   }
 
   /**
@@ -228,22 +353,98 @@ public class Graph implements GraphADT {
     // Make new list to hold all new strings
     ArrayList<String> stringList = new ArrayList<String>();
 
-    // loops through all vertexes in graph
-    for (int i = 0; i < allNodes.size(); i++) {
-
-      // Find vertex that equals vertex of interest
-      if (allNodes.get(i).getName().equals(vertex)) {
-
-        // Loop through all edges that the vertex of interest in pointing to
-        for (int j = 0; j < allNodes.get(i).getFriends().size(); j++) {
-          stringList.add(allNodes.get(i).getFriends().get(j).getName());
-        }
+    // Find vertex that equals vertex of interest
+    User node = vertex == null ? null : getNode(vertex);
+    if (node != null) {
+      // Loop through all edges that the vertex of interest in pointing to
+      for (User friend : node.getFriends()) {
+        stringList.add(friend.getName());
       }
     }
 
     return stringList;
   }
 
+  /**
+   * Creates a user with the next free id and adds it to the graph
+   *
+   * @param vertex name of the new user
+   * @return the new user
+   */
+  private User createVertex(String vertex) {
+    User newVertex;
+    if (namePool != null) {
+      newVertex = new CompactUser(this, allNodes.size());
+      namePool.add(vertex, newVertex.getId());
+    } else {
+      newVertex = new User(vertex, allNodes.size());
+      nodeIndex.put(vertex, newVertex);
+    }
+    if (userIndex != null) {
+      userIndex.add(vertex);
+    }
+    changed();
+    allNodes.add(newVertex);
+    totalVerticies += 1;
+
+    // A new user starts out as a group of their own
+    if (groupParent.length < allNodes.size()) {
+      groupParent = Arrays.copyOf(groupParent, groupParent.length * 2);
+      groupSize = Arrays.copyOf(groupSize, groupSize.length * 2);
+      friendsVersion = Arrays.copyOf(friendsVersion, friendsVersion.length * 2);
+    }
+    // A user added again after being removed gets a new id and a newer version than before
+    friendsVersion[newVertex.getId()] = version;
+    groupParent[newVertex.getId()] = newVertex.getId();
+    groupSize[newVertex.getId()] = 1;
+    totalGroups += 1;
+    return newVertex;
+  }
+
+  /**
+   * Finds the id that represents the group a user is in
+   *
+   * @param id id of the user
+   * @return id of the group's representative
+   */
+  private int findGroup(int id) {
+    // Point each user visited at its grandparent so later lookups take fewer steps
+    while (groupParent[id] != id) {
+      groupParent[id] = groupParent[groupParent[id]];
+      id = groupParent[id];
+    }
+    return id;
+  }
+
+  /**
+   * Joins the groups of two users that just became friends
+   *
+   * @param id1 id of the first user
+   * @param id2 id of the second user
+   */
+  private void unionGroups(int id1, int id2) {
+    // Stale groups are rebuilt from scratch, so there is nothing to join
+    if (groupsStale) {
+      return;
+    }
+
+    int group1 = findGroup(id1);
+    int group2 = findGroup(id2);
+    if (group1 == group2) {
+      return;
+    }
+
+    // Hang the smaller group under the larger one to keep the trees shallow
+    if (groupSize[group1] < groupSize[group2]) {
+      int swap = group1;
+      group1 = group2;
+      group2 = swap;
+    }
+    groupParent[group2] = group1;
+    groupSize[group1] += groupSize[group2];
+    totalGroups -= 1;
+  }
+
   /**
    * Returns the number of edges in this graph.
    */
@@ -265,13 +466,102 @@ public class Graph implements GraphADT {
    * @return node corresponding to string
    */
   public User getNode(String name) {
-    for (User u : allNodes) {
-      if (name.equals(u.getName())) {
-        return u;
+    if (namePool == null) {
+      return nodeIndex.get(name);
+    }
+    if (name == null) {
+      return null;
+    }
+    int id = namePool.find(name);
+    return id < 0 ? null : allNodes.get(id);
+  }
+
+  /**
+   * Returns the user with an id
+   * 
+   * @param id id of the user
+   * @return the user, or null if they were removed
+   */
+  User getNodeById(int id) {
+    return allNodes.get(id);
+  }
+
+  /**
+   * Returns the name of a user of a compact graph
+   * 
+   * @param id id of the user
+   * @return the name, or null if the user was removed
+   */
+  String getNameOf(int id) {
+    return namePool.get(id);
+  }
+
+  /**
+   * Returns every user in the order they were added
+   * 
+   * @return read-only collection of users
+   */
+  public Collection<User> getAllNodes() {
+    if (namePool == null) {
+      return Collections.unmodifiableCollection(nodeIndex.values());
+    }
+
+    // Ids are given out in the order users are added, so skip the slots of removed users
+    return new AbstractCollection<User>() {
+      @Override
+      public Iterator<User> iterator() {
+        return allNodes.stream().filter(Objects::nonNull).iterator();
+      }
+
+      @Override
+      public int size() {
+        return totalVerticies;
+      }
+    };
+  }
+
+  /**
+   * Estimates how much memory the graph uses
+   * 
+   * @return the estimate
+   */
+  public MemoryFootprint getFootprint() {
+    long userBytes = 0;
+    long nameBytes = 0;
+    long friendBytes = 0;
+    for (User node : getAllNodes()) {
+      userBytes += node.estimateBytes();
+      friendBytes += node.estimateFriendBytes();
+      if (namePool == null) {
+        nameBytes += MemoryFootprint.stringBytes(node.getName());
       }
     }
+    nameBytes += namePool != null ? namePool.estimateBytes()
+        : MemoryFootprint.linkedHashMapBytes(nodeIndex.size());
+
+    // The list of users by id, the union-find arrays, the friend versions, the changes since the
+    // last frozen copy and the name index
+    long otherBytes = MemoryFootprint.objectBytes(24)
+        + MemoryFootprint.referenceArrayBytes(allNodes.size())
+        + MemoryFootprint.intArrayBytes(groupParent.length)
+        + MemoryFootprint.intArrayBytes(groupSize.length)
+        + MemoryFootprint.intArrayBytes(friendsVersion.length * 2)
+        + MemoryFootprint.intArrayBytes(changeUsers.length)
+        + MemoryFootprint.intArrayBytes(changeFriends.length)
+        + (userIndex == null ? 0 : userIndex.estimateBytes());
+
+    return new MemoryFootprint(totalVerticies, totalEdges, userBytes, nameBytes, friendBytes,
+        otherBytes);
+  }
 
-    return null;
+  /**
+   * Returns one more than the largest id given to a user so far, which is the size an array
+   * needs to have a slot for every id
+   * 
+   * @return the id limit
+   */
+  public int getIdLimit() {
+    return allNodes.size();
   }
 
   /**
@@ -284,97 +574,580 @@ public class Graph implements GraphADT {
   public LinkedList<String> shortestPath(User user1, User user2) {
 	// Holds the shortest path
     LinkedList<String> path = new LinkedList<>();
+    if (user1 == null || user2 == null) {
+      return path;
+    }
 
-    // Initiate variables that keep track of visited, found, and predecessors
-    LinkedList<User> queue = new LinkedList<>();
+    // Initiate variables that keep track of visited, found, and predecessors.
+    // Users are added to the queue at most once, so an array with a slot for
+    // every id is big enough to be used as the queue
+    int[] queue = new int[allNodes.size()];
+    int head = 0;
+    int tail = 0;
     boolean[] visited = new boolean[allNodes.size()];
-    User[] pred = new User[allNodes.size()];
+    int[] pred = new int[allNodes.size()];
+    int target = user2.getId();
     boolean found = false;
 
     // Set this node to visited and add to queue
-    visited[allNodes.indexOf(user1)] = true;
-    queue.add(0, user1);
+    visited[user1.getId()] = true;
+    queue[tail++] = user1.getId();
 
     // Loop through until the queue is empty
-    while (!queue.isEmpty()) {
-      User curr = queue.remove(queue.size() - 1);
+    while (head < tail && !found) {
+      int curr = queue[head++];
 
       // loop through each friend of the current user in queue
-      for (User friend : curr.getFriends()) {
+      for (User friend : allNodes.get(curr).getFriends()) {
+        int friendId = friend.getId();
 
     	// Check if they are visited
-        if (!visited[allNodes.indexOf(friend)]) {
+        if (!visited[friendId]) {
           // If they are not, then update that they have and 
           // add them to the queue
-          visited[allNodes.indexOf(friend)] = true;
-          queue.add(0, friend);
-          pred[allNodes.indexOf(friend)] = curr;
+          visited[friendId] = true;
+          queue[tail++] = friendId;
+          pred[friendId] = curr;
 
           // If user2 is found, then break
-          if (friend.equals(user2)) {
+          if (friendId == target) {
             found = true;
             break;
           }
         }
       }
-
-      if (found) {
-        break;
-      }
     }
 
+    lastSearchVisited = tail;
+
     // If they are found, then loop until path is created
     if (found) {
-      User crawl = user2;
-      while (!crawl.equals(user1)) {
-        path.add(0, crawl.getName());
-        crawl = pred[allNodes.indexOf(crawl)];
+      int crawl = target;
+      while (crawl != user1.getId()) {
+        path.addFirst(allNodes.get(crawl).getName());
+        crawl = pred[crawl];
+      }
+      path.addFirst(user1.getName());
+    }
+
+    return path;
+  }
+
+  /**
+   * Finds the Shortest Path between two users by searching from both users at once and stopping
+   * where the two searches meet. Each round grows whichever search has the smaller frontier by one
+   * whole level, so on large graphs far fewer users are reached than when searching from one side.
+   * 
+   * @param user1
+   * @param user2
+   * @return List of Users, the same length as the path found by shortestPath
+   */
+  public LinkedList<String> bidirectionalShortestPath(User user1, User user2) {
+    // Holds the shortest path
+    LinkedList<String> path = new LinkedList<>();
+    if (user1 == null || user2 == null || user1 == user2) {
+      lastSearchVisited = 0;
+      return path;
+    }
+
+    SearchSide forward = new SearchSide(allNodes.size(), user1.getId());
+    SearchSide backward = new SearchSide(allNodes.size(), user2.getId());
+    int best = Integer.MAX_VALUE;
+
+    // Grow the smaller frontier until the searches meet or one side runs out of users
+    while (best == Integer.MAX_VALUE && forward.frontier() > 0 && backward.frontier() > 0) {
+      if (forward.frontier() <= backward.frontier()) {
+        best = expandLevel(forward, backward);
+      } else {
+        best = expandLevel(backward, forward);
       }
-      path.add(0, user1.getName());
+    }
+
+    lastSearchVisited = forward.tail + backward.tail;
+
+    // If they met, then walk back to user1 and forward to user2 from the meeting edge
+    if (best != Integer.MAX_VALUE) {
+      for (int crawl = forward.meet; crawl != user1.getId(); crawl = forward.pred[crawl]) {
+        path.addFirst(allNodes.get(crawl).getName());
+      }
+      path.addFirst(user1.getName());
+      for (int crawl = backward.meet; crawl != user2.getId(); crawl = backward.pred[crawl]) {
+        path.addLast(allNodes.get(crawl).getName());
+      }
+      path.addLast(user2.getName());
     }
 
     return path;
   }
 
   /**
-   * Finds how Groups exist
+   * Returns how many users the most recent shortest path search reached
+   * 
+   * @return number of users visited
+   */
+  public int getLastSearchVisited() {
+    return lastSearchVisited;
+  }
+
+  /**
+   * Visits every friend of the users in one level of a search. Any friend already reached by the
+   * other search joins the two into a path, and the shortest such path in the level is kept.
+   * 
+   * @param side search being grown
+   * @param other search from the other user
+   * @return number of edges in the shortest joined path, or Integer.MAX_VALUE if none was found
+   */
+  private int expandLevel(SearchSide side, SearchSide other) {
+    int best = Integer.MAX_VALUE;
+    int levelEnd = side.tail;
+
+    while (side.head < levelEnd) {
+      int curr = side.queue[side.head++];
+
+      for (User friend : allNodes.get(curr).getFriends()) {
+        int friendId = friend.getId();
+
+        // Check if the other search reached this friend, which joins the two searches
+        if (other.dist[friendId] != 0 && side.dist[curr] + other.dist[friendId] - 1 < best) {
+          best = side.dist[curr] + other.dist[friendId] - 1;
+          side.meet = curr;
+          other.meet = friendId;
+        }
+
+        // Otherwise keep searching outward from this side
+        if (side.dist[friendId] == 0) {
+          side.dist[friendId] = side.dist[curr] + 1;
+          side.pred[friendId] = curr;
+          side.queue[side.tail++] = friendId;
+        }
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Finds the friends two users have in common by merging their sorted friend ids. When one user
+   * has far fewer friends than the other, each of their friends is found in the longer list with
+   * a galloping search instead of stepping through it one id at a time.
+   * 
+   * @param user1
+   * @param user2
+   * @return names of the mutual friends, in the order they joined the network
+   */
+  public List<String> getMutualFriends(User user1, User user2) {
+    List<String> mutualFriends = new ArrayList<String>();
+    if (user1 == null || user2 == null) {
+      return mutualFriends;
+    }
+
+    int[] mutualIds = intersectSorted(user1.getSortedFriendIds(), user2.getSortedFriendIds());
+    for (int id : mutualIds) {
+      mutualFriends.add(allNodes.get(id).getName());
+    }
+    return mutualFriends;
+  }
+
+  /**
+   * Suggests new friends for a user: the friends of their friends, ranked by how many friends they
+   * have in common with the user. Ties go to whoever joined the network first.
+   * 
+   * @param user the user to make suggestions for
+   * @param limit most suggestions to return
+   * @return names of the suggested users, best suggestion first
+   */
+  public List<String> getFriendSuggestions(User user, int limit) {
+    List<String> suggestions = new ArrayList<String>();
+    if (user == null || limit <= 0) {
+      return suggestions;
+    }
+
+    // There can be no more friends of friends than the friends of the user's friends, so the
+    // work is sized by them rather than by the whole graph
+    long friendsOfFriends = 0;
+    for (User friend : user.getFriends()) {
+      friendsOfFriends += friend.getFriends().size();
+    }
+    int reachable = (int) Math.min(friendsOfFriends, allNodes.size());
+    if (reachable == 0) {
+      return suggestions;
+    }
+
+    // Count the mutual friends of every friend of a friend in an open addressing table of ids
+    // plus one, with 0 for an empty bucket, remembering the buckets used so only they need to be
+    // looked at afterwards
+    int capacity = Integer.highestOneBit(reachable * 2 - 1) << 1;
+    int mask = capacity - 1;
+    int[] keys = new int[capacity];
+    int[] mutualCounts = new int[capacity];
+    int[] counted = new int[reachable];
+    int totalCounted = 0;
+    for (User friend : user.getFriends()) {
+      for (User candidate : friend.getFriends()) {
+        if (candidate == user || user.getFriends().contains(candidate)) {
+          continue;
+        }
+        int key = candidate.getId() + 1;
+        int bucket = hash(key) & mask;
+        while (keys[bucket] != 0 && keys[bucket] != key) {
+          bucket = (bucket + 1) & mask;
+        }
+        if (keys[bucket] == 0) {
+          keys[bucket] = key;
+          counted[totalCounted++] = bucket;
+        }
+        mutualCounts[bucket]++;
+      }
+    }
+
+    // Keep the best suggestions in a heap of buckets whose head is the weakest one kept
+    PriorityQueue<Integer> best = new PriorityQueue<Integer>(limit + 1, (bucket1, bucket2) -> {
+      if (mutualCounts[bucket1] != mutualCounts[bucket2]) {
+        return Integer.compare(mutualCounts[bucket1], mutualCounts[bucket2]);
+      }
+      return Integer.compare(keys[bucket2], keys[bucket1]);
+    });
+    for (int i = 0; i < totalCounted; i++) {
+      best.add(counted[i]);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+
+    while (!best.isEmpty()) {
+      suggestions.add(0, allNodes.get(keys[best.poll()] - 1).getName());
+    }
+    return suggestions;
+  }
+
+  /**
+   * Spreads the bits of an id so that ids close together land in different buckets
+   * 
+   * @param id the id
+   * @return the hash
+   */
+  private static int hash(int id) {
+    int hash = id * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns a number that goes up every time a user or friendship is added or removed, so two
+   * reads of the same version saw the same graph
+   * 
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the version at which a user was added or last gained or lost a friend. Anything
+   * worked out from the user's friends alone stays true while this stays the same, even as the
+   * rest of the graph changes.
+   * 
+   * @param vertex name of the user
+   * @return the version, or -1 if there is no such user
+   */
+  public long getFriendsVersion(String vertex) {
+    User node = vertex == null ? null : getNode(vertex);
+    return node == null ? -1 : friendsVersion[node.getId()];
+  }
+
+  /**
+   * Returns the version at which a friendship was last added. Only an added friendship can make
+   * the distance between two users shorter, so a shortest path stays a shortest path while this
+   * stays the same, unless one of its own users or friendships is removed.
+   * 
+   * @return the version
+   */
+  public long getAdditionVersion() {
+    return additionVersion;
+  }
+
+  /**
+   * Returns a read-only copy of the graph in compressed sparse row form that can be searched from
+   * any thread, even while this graph is changed. The copy is made when it is first asked for
+   * after a change, by patching the last copy with the changes made since, and the same copy is
+   * returned until the next change. To make the copy without holding the graph's lock, use
+   * getChanges and keepFrozen instead.
+   * 
+   * @return the frozen graph
+   */
+  public FrozenGraph freeze() {
+    if (lastFrozen.getVersion() != version) {
+      GraphChanges changes = getChanges();
+      keepFrozen(changes, changes.apply());
+    }
+    return lastFrozen;
+  }
+
+  /**
+   * Get the changes made since the last frozen copy. Only the changes are copied, so this takes
+   * time for the number of changes rather than the size of the graph, and applying them, which
+   * goes through the whole graph, can be left until the graph's lock is released.
+   * 
+   * @return the changes, which apply to a frozen copy of the graph as it is now
+   */
+  public GraphChanges getChanges() {
+    int baseLimit = lastFrozen.getIdLimit();
+    String[] addedNames = new String[allNodes.size() - baseLimit];
+    for (int i = 0; i < addedNames.length; i++) {
+      User node = allNodes.get(baseLimit + i);
+      addedNames[i] = node == null ? null : node.getName();
+    }
+    return new GraphChanges(lastFrozen, version, addedNames,
+        Arrays.copyOf(changeUsers, changeCount), Arrays.copyOf(changeFriends, changeCount));
+  }
+
+  /**
+   * Keeps a frozen copy made from changes, so later copies only need the changes made after it.
+   * A copy made from changes to an older copy than the last one kept is left alone.
+   * 
+   * @param changes the changes the copy was made from, taken from this graph
+   * @param copy    the result of applying them
+   */
+  public void keepFrozen(GraphChanges changes, FrozenGraph copy) {
+    if (changes.getBase() != lastFrozen || copy == lastFrozen) {
+      return;
+    }
+    int applied = changes.getCount();
+    System.arraycopy(changeUsers, applied, changeUsers, 0, changeCount - applied);
+    System.arraycopy(changeFriends, applied, changeFriends, 0, changeCount - applied);
+    changeCount -= applied;
+    lastFrozen = copy;
+
+    // Give back the room taken by a long run of changes
+    if (changeUsers.length > 16 && changeCount < changeUsers.length / 4) {
+      changeUsers = Arrays.copyOf(changeUsers, Math.max(16, changeCount * 2));
+      changeFriends = Arrays.copyOf(changeFriends, Math.max(16, changeCount * 2));
+    }
+  }
+
+  /**
+   * Moves to the next version. It is called before the change is made, so once more changes
+   * have piled up than the graph has users and friendships they are patched into the last frozen
+   * copy first, which keeps them from taking more memory than a copy of the graph. Patching then
+   * takes time for the size of the graph at most once for as many changes.
+   */
+  private void changed() {
+    if (changeCount > MIN_CHANGES + allNodes.size() + 2L * totalEdges) {
+      GraphChanges changes = getChanges();
+      keepFrozen(changes, changes.apply());
+    }
+    version += 1;
+  }
+
+  /**
+   * Adds a change to the changes since the last frozen copy
+   * 
+   * @param user   id of the user
+   * @param friend id of the friend, flipped for a removal, or GraphChanges.REMOVED_USER
+   */
+  private void recordChange(int user, int friend) {
+    if (changeCount == changeUsers.length) {
+      changeUsers = Arrays.copyOf(changeUsers, changeCount * 2);
+      changeFriends = Arrays.copyOf(changeFriends, changeCount * 2);
+    }
+    changeUsers[changeCount] = user;
+    changeFriends[changeCount] = friend;
+    changeCount++;
+  }
+
+  /**
+   * Finds the ids in both sorted arrays
+   * 
+   * @param ids1 ids in increasing order
+   * @param ids2 ids in increasing order
+   * @return the shared ids in increasing order
+   */
+  static int[] intersectSorted(int[] ids1, int[] ids2) {
+    // Always step through the shorter array
+    if (ids1.length > ids2.length) {
+      int[] swap = ids1;
+      ids1 = ids2;
+      ids2 = swap;
+    }
+
+    int[] shared = new int[ids1.length];
+    int count = 0;
+    int j = 0;
+
+    if ((long) ids1.length * GALLOP_RATIO < ids2.length) {
+      // Gallop through the longer array for each id of the shorter one
+      for (int i = 0; i < ids1.length && j < ids2.length; i++) {
+        j = gallop(ids2, j, ids1[i]);
+        if (j < ids2.length && ids2[j] == ids1[i]) {
+          shared[count++] = ids1[i];
+          j++;
+        }
+      }
+    } else {
+      // Merge the two arrays, moving past whichever id is smaller
+      int i = 0;
+      while (i < ids1.length && j < ids2.length) {
+        if (ids1[i] < ids2[j]) {
+          i++;
+        } else if (ids1[i] > ids2[j]) {
+          j++;
+        } else {
+          shared[count++] = ids1[i];
+          i++;
+          j++;
+        }
+      }
+    }
+
+    return Arrays.copyOf(shared, count);
+  }
+
+  /**
+   * Finds the first position at or after from that holds an id of at least target, by doubling the
+   * step until it is passed and then searching that range by halves
+   * 
+   * @param ids ids in increasing order
+   * @param from position to start searching at
+   * @param target id being looked for
+   * @return position of the first id that is not smaller than target, or ids.length
+   */
+  private static int gallop(int[] ids, int from, int target) {
+    int step = 1;
+    int low = from;
+    int high = from;
+    while (high < ids.length && ids[high] < target) {
+      low = high + 1;
+      high = from + step;
+      step *= 2;
+    }
+    high = Math.min(high, ids.length);
+
+    // ids[low - 1] < target <= ids[high], so search between them
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ids[mid] < target) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Finds how Groups exist. The count is kept up to date as users and friendships are added, so
+   * this only searches the graph after a friendship or user has been removed.
    * 
    * @return the number of groups in the graph
    */
   public int getConnectedComponents() {
+    if (groupsStale) {
+      recountGroups();
+    }
+    return totalGroups;
+  }
+
+  /**
+   * Check if the number of groups is known without searching the graph
+   * 
+   * @return false if a friendship or user has been removed since the groups were last counted
+   */
+  public boolean hasGroupCount() {
+    return !groupsStale;
+  }
+
+  /**
+   * Rebuilds the groups by searching the whole graph
+   */
+  private void recountGroups() {
 	// Variables that keep track of visited and number of groups
     int connectedComponents = 0;
     boolean[] visited = new boolean[allNodes.size()];
+    int[] stack = new int[allNodes.size()];
 
     // Loop through each individual in the graph
     for (int i = 0; i < allNodes.size(); i++) {
       // Perform depth first search on each unvisited user as this
       // will mark entire group as visited and one group
-      if (!visited[i]) {
-        depthFirstSearch(allNodes.get(i), visited);
+      if (allNodes.get(i) != null && !visited[i]) {
+        groupSize[i] = depthFirstSearch(i, visited, stack);
         connectedComponents++;
       }
     }
 
-    return connectedComponents;
+    totalGroups = connectedComponents;
+    groupsStale = false;
   }
 
   /**
-   * Searches through the graph 
-   * @param user current User
+   * Searches through the graph, using an explicit stack instead of recursion so that long chains
+   * of friends cannot overflow the call stack. Every user reached joins the group of the user
+   * the search started from.
+   * 
+   * @param start id of the user to start from
    * @param visited Visited users
+   * @param stack space for the ids waiting to be searched, one slot per id
+   * @return number of users in the group
    */
-  private void depthFirstSearch(User user, boolean[] visited) {
-    visited[allNodes.indexOf(user)] = true;
+  private int depthFirstSearch(int start, boolean[] visited, int[] stack) {
+    int top = 0;
+    int reached = 1;
+    visited[start] = true;
+    groupParent[start] = start;
+    stack[top++] = start;
 
-    // Search through each friend and mark as visited before recursively
-    // visiting all of these friend's friends while marking each as visited
-    for (User friend : user.getFriends()) {
-      if (!visited[allNodes.indexOf(friend)]) {
-        depthFirstSearch(friend, visited);
+    // Search through each friend and mark as visited before visiting
+    // all of these friend's friends while marking each as visited.
+    // Each user is pushed once, so the stack never holds more than one slot per id
+    while (top > 0) {
+      User user = allNodes.get(stack[--top]);
+      for (User friend : user.getFriends()) {
+        if (!visited[friend.getId()]) {
+          visited[friend.getId()] = true;
+          groupParent[friend.getId()] = start;
+          stack[top++] = friend.getId();
+          reached++;
+        }
       }
     }
 
+    return reached;
+  }
+
+  /**
+   * Holds the state of one half of a bidirectional search
+   */
+  private static class SearchSide {
+    // distance from the starting user plus one, so zero means not reached
+    private int[] dist;
+    private int[] pred;
+    private int[] queue;
+    private int head = 0;
+    private int tail = 0;
+    // user on this side of the edge where the two searches met
+    private int meet = -1;
+
+    /**
+     * Starts a search from a user
+     * 
+     * @param size number of user ids in the graph
+     * @param start id of the starting user
+     */
+    private SearchSide(int size, int start) {
+      dist = new int[size];
+      pred = new int[size];
+      queue = new int[size];
+      dist[start] = 1;
+      queue[tail++] = start;
+    }
+
+    /**
+     * Returns how many users are waiting to be searched
+     * 
+     * @return size of the frontier
+     */
+    private int frontier() {
+      return tail - head;
+    }
   }
 
 }
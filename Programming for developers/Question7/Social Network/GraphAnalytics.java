@@ -0,0 +1,496 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the shape of a network: how many friends users have, how closely knit their friends
+ * are, which users lie on the most shortest paths, and which users are the most influential by
+ * PageRank. Everything is computed on a FrozenGraph, which never changes, so the work is spread
+ * over every core of the common fork-join pool and the network can go on changing meanwhile.
+ * <p>
+ * Results are indexed by user id, the same ids the frozen graph uses, and removed users have a
+ * value of 0. Clustering coefficients and PageRank are worked out the first time they are asked
+ * for and then kept.
+ *
+ * @author Team 70
+ *
+ */
+public class GraphAnalytics {
+  // Chance that PageRank's random surfer follows a friendship rather than jumping anywhere
+  public static final double DAMPING = 0.85;
+  // PageRank stops once the ranks change by less than this in total
+  public static final double TOLERANCE = 1e-9;
+  public static final int MAX_ITERATIONS = 100;
+
+  // Fields
+  private final FrozenGraph graph;
+  // Every user's friends sorted by id, laid out like the frozen graph's friends
+  private int[] sortedFriends;
+  private int[] triangles;
+  private double[] pageRank;
+
+  /**
+   * Initialize values
+   *
+   * @param graph the graph to measure
+   */
+  public GraphAnalytics(FrozenGraph graph) {
+    this.graph = graph;
+  }
+
+  /**
+   * Get the graph being measured
+   *
+   * @return the frozen graph
+   */
+  public FrozenGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * Counts the users with each number of friends
+   *
+   * @return the number of users with i friends at position i, up to the largest number of friends
+   */
+  public int[] getDegreeDistribution() {
+    int maxDegree = 0;
+    for (int id = 0; id < graph.getIdLimit(); id++) {
+      maxDegree = Math.max(maxDegree, graph.getDegree(id));
+    }
+
+    int[] distribution = new int[maxDegree + 1];
+    for (int id = 0; id < graph.getIdLimit(); id++) {
+      if (graph.getName(id) != null) {
+        distribution[graph.getDegree(id)]++;
+      }
+    }
+    return distribution;
+  }
+
+  /**
+   * Finds how many of the pairs of a user's friends are friends with each other
+   *
+   * @param user name of the user
+   * @return the share of pairs of friends that are friends, or 0 for a user with fewer than two
+   *         friends or who is not in the graph
+   */
+  public double getClusteringCoefficient(String user) {
+    int id = graph.getId(user);
+    return id < 0 ? 0 : localClustering(id);
+  }
+
+  /**
+   * Finds the clustering coefficient of every user
+   *
+   * @return the coefficient of each id
+   */
+  public double[] getClusteringCoefficients() {
+    countTriangles();
+    double[] coefficients = new double[graph.getIdLimit()];
+    for (int id = 0; id < coefficients.length; id++) {
+      coefficients[id] = localClustering(id);
+    }
+    return coefficients;
+  }
+
+  /**
+   * Averages the clustering coefficient over every user, counting users with fewer than two
+   * friends as 0
+   *
+   * @return the average local clustering coefficient
+   */
+  public double getAverageClusteringCoefficient() {
+    if (graph.order() == 0) {
+      return 0;
+    }
+    double total = 0;
+    for (double coefficient : getClusteringCoefficients()) {
+      total += coefficient;
+    }
+    return total / graph.order();
+  }
+
+  /**
+   * Finds how many of the pairs of friends of a common friend are friends themselves, over the
+   * whole network (its transitivity)
+   *
+   * @return three times the number of triangles over the number of connected triples
+   */
+  public double getGlobalClusteringCoefficient() {
+    countTriangles();
+    long closed = 0;
+    long triples = 0;
+    for (int id = 0; id < graph.getIdLimit(); id++) {
+      long degree = graph.getDegree(id);
+      closed += triangles[id];
+      triples += degree * (degree - 1) / 2;
+    }
+    // Each triangle was counted once at each of its three corners
+    return triples == 0 ? 0 : (double) closed / triples;
+  }
+
+  /**
+   * Estimates betweenness centrality, the number of shortest paths between other users that go
+   * through each user, with Brandes' algorithm from a random sample of starting users. The counts
+   * from the sample are scaled up to the whole network, and each path is counted from both ends.
+   *
+   * @param samples number of starting users, or the number of users if that is smaller
+   * @param seed    seed for choosing the sample
+   * @return the estimated betweenness of each id
+   */
+  public double[] getBetweenness(int samples, long seed) {
+    int[] sources = sampleUsers(samples, seed);
+    int idLimit = graph.getIdLimit();
+    if (sources.length == 0) {
+      return new double[idLimit];
+    }
+
+    // Split the sources between the workers, each summing into its own array
+    int batches = Math.min(sources.length, ForkJoinPool.getCommonPoolParallelism());
+    double[] betweenness = IntStream.range(0, batches).parallel().mapToObj(batch -> {
+      double[] sum = new double[idLimit];
+      BrandesSearch search = new BrandesSearch(idLimit);
+      for (int i = batch; i < sources.length; i += batches) {
+        search.accumulate(sources[i], sum);
+      }
+      return sum;
+    }).reduce((sum1, sum2) -> {
+      for (int id = 0; id < idLimit; id++) {
+        sum1[id] += sum2[id];
+      }
+      return sum1;
+    }).get();
+
+    double scale = (double) graph.order() / sources.length;
+    for (int id = 0; id < idLimit; id++) {
+      betweenness[id] *= scale;
+    }
+    return betweenness;
+  }
+
+  /**
+   * Ranks users by PageRank: the chance that someone who keeps moving to a random friend of
+   * whoever they are on, and now and then jumps to anyone at all, is on that user
+   *
+   * @return the rank of each id, adding up to 1 over every user
+   */
+  public double[] getPageRank() {
+    return pageRank().clone();
+  }
+
+  /**
+   * Finds the most influential users by PageRank
+   *
+   * @param limit most users to return
+   * @return names of the users with the highest rank, highest first
+   */
+  public List<String> getInfluentialUsers(int limit) {
+    return top(pageRank(), limit);
+  }
+
+  /**
+   * Finds the users with the highest scores
+   *
+   * @param scores score of each id
+   * @param limit  most users to return
+   * @return names of the users with the highest score, highest first, ties going to whoever
+   *         joined first
+   */
+  public List<String> top(double[] scores, int limit) {
+    List<String> best = new ArrayList<String>();
+    if (limit <= 0) {
+      return best;
+    }
+
+    // Keep the best users in a heap whose head is the weakest one kept
+    PriorityQueue<Integer> heap = new PriorityQueue<Integer>(limit + 1, (id1, id2) -> {
+      if (scores[id1] != scores[id2]) {
+        return Double.compare(scores[id1], scores[id2]);
+      }
+      return Integer.compare(id2, id1);
+    });
+    for (int id = 0; id < scores.length; id++) {
+      if (graph.getName(id) != null) {
+        heap.add(id);
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      }
+    }
+
+    while (!heap.isEmpty()) {
+      best.add(0, graph.getName(heap.poll()));
+    }
+    return best;
+  }
+
+  /**
+   * Works out the local clustering coefficient of a user
+   *
+   * @param id id of the user
+   * @return the coefficient
+   */
+  private double localClustering(int id) {
+    long degree = graph.getDegree(id);
+    if (degree < 2) {
+      return 0;
+    }
+    countTriangles();
+    return triangles[id] / (degree * (degree - 1) / 2.0);
+  }
+
+  /**
+   * Counts the triangles each user is part of, once for the whole graph. The triangles of a user
+   * are the friendships among their friends, found by intersecting the user's sorted friends with
+   * each friend's sorted friends.
+   */
+  private synchronized void countTriangles() {
+    if (triangles != null) {
+      return;
+    }
+
+    int[] offsets = graph.getOffsets();
+    int[] friends = sortedFriends();
+    int[] counts = new int[graph.getIdLimit()];
+    IntStream.range(0, counts.length).parallel().forEach(id -> {
+      long found = 0;
+      for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+        int friend = friends[i];
+        found += countShared(friends, offsets[id], offsets[id + 1], offsets[friend],
+            offsets[friend + 1]);
+      }
+      // Each friendship among the user's friends was found from both of its ends
+      counts[id] = (int) (found / 2);
+    });
+    triangles = counts;
+  }
+
+  /**
+   * Counts the ids found in two sorted ranges of an array
+   *
+   * @param ids    the array
+   * @param start1 start of the first range
+   * @param end1   end of the first range
+   * @param start2 start of the second range
+   * @param end2   end of the second range
+   * @return number of ids in both ranges
+   */
+  private static int countShared(int[] ids, int start1, int end1, int start2, int end2) {
+    int shared = 0;
+    while (start1 < end1 && start2 < end2) {
+      if (ids[start1] < ids[start2]) {
+        start1++;
+      } else if (ids[start1] > ids[start2]) {
+        start2++;
+      } else {
+        shared++;
+        start1++;
+        start2++;
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Copies the frozen graph's friends with every user's friends sorted by id, once
+   *
+   * @return the sorted friends
+   */
+  private synchronized int[] sortedFriends() {
+    if (sortedFriends == null) {
+      int[] offsets = graph.getOffsets();
+      int[] friends = graph.getFriends().clone();
+      IntStream.range(0, graph.getIdLimit()).parallel()
+          .forEach(id -> Arrays.sort(friends, offsets[id], offsets[id + 1]));
+      sortedFriends = friends;
+    }
+    return sortedFriends;
+  }
+
+  /**
+   * Runs PageRank the first time it is needed
+   *
+   * @return the rank of each id, which must not be modified
+   */
+  private synchronized double[] pageRank() {
+    if (pageRank == null) {
+      pageRank = computePageRank();
+    }
+    return pageRank;
+  }
+
+  /**
+   * Runs PageRank until the ranks settle. Each round every user's new rank is gathered from their
+   * friends, which lets the users be shared between workers without any locking.
+   *
+   * @return the rank of each id
+   */
+  private double[] computePageRank() {
+    int idLimit = graph.getIdLimit();
+    int users = graph.order();
+    double[] rank = new double[idLimit];
+    if (users == 0) {
+      return rank;
+    }
+    int[] offsets = graph.getOffsets();
+    int[] friends = graph.getFriends();
+
+    // Every user starts with the same rank, and shares it out evenly between their friends
+    double[] share = new double[idLimit];
+    for (int id = 0; id < idLimit; id++) {
+      if (graph.getName(id) != null) {
+        rank[id] = 1.0 / users;
+      }
+    }
+
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      // Users without friends hand their rank to everyone
+      double dangling = 0;
+      for (int id = 0; id < idLimit; id++) {
+        int degree = offsets[id + 1] - offsets[id];
+        if (degree == 0) {
+          dangling += rank[id];
+        } else {
+          share[id] = rank[id] / degree;
+        }
+      }
+      double base = (1 - DAMPING) / users + DAMPING * dangling / users;
+
+      double[] current = rank;
+      double[] next = new double[idLimit];
+      IntStream.range(0, idLimit).parallel().forEach(id -> {
+        if (graph.getName(id) != null) {
+          double gathered = 0;
+          for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            gathered += share[friends[i]];
+          }
+          next[id] = base + DAMPING * gathered;
+        }
+      });
+
+      double change = 0;
+      for (int id = 0; id < idLimit; id++) {
+        change += Math.abs(next[id] - current[id]);
+      }
+      rank = next;
+      if (change < TOLERANCE) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Chooses starting users at random without repeats
+   *
+   * @param samples number of users wanted
+   * @param seed    seed for the choice
+   * @return ids of the chosen users
+   */
+  private int[] sampleUsers(int samples, long seed) {
+    int[] ids = new int[graph.order()];
+    int count = 0;
+    for (int id = 0; id < graph.getIdLimit(); id++) {
+      if (graph.getName(id) != null) {
+        ids[count++] = id;
+      }
+    }
+
+    // Shuffle just the front of the list
+    Random rand = new Random(seed);
+    int wanted = Math.max(0, Math.min(samples, count));
+    for (int i = 0; i < wanted; i++) {
+      int j = i + rand.nextInt(count - i);
+      int swap = ids[i];
+      ids[i] = ids[j];
+      ids[j] = swap;
+    }
+    return Arrays.copyOf(ids, wanted);
+  }
+
+  /**
+   * The arrays of one worker's Brandes searches, reused from one starting user to the next
+   */
+  private class BrandesSearch {
+    // distance from the start plus one, so zero means not reached
+    private int[] dist;
+    // number of shortest paths from the start
+    private double[] paths;
+    private double[] dependency;
+    private int[] order;
+
+    /**
+     * Initialize values
+     *
+     * @param size number of ids
+     */
+    private BrandesSearch(int size) {
+      dist = new int[size];
+      paths = new double[size];
+      dependency = new double[size];
+      order = new int[size];
+    }
+
+    /**
+     * Searches from one user and adds how much each other user lies on the shortest paths from
+     * them
+     *
+     * @param start id of the starting user
+     * @param sum   betweenness to add to
+     */
+    private void accumulate(int start, double[] sum) {
+      int[] offsets = graph.getOffsets();
+      int[] friends = graph.getFriends();
+
+      // Breadth first search, counting the shortest paths to every user. The order users are
+      // reached in doubles as the queue.
+      int reached = 0;
+      dist[start] = 1;
+      paths[start] = 1;
+      order[reached++] = start;
+      for (int head = 0; head < reached; head++) {
+        int curr = order[head];
+        for (int i = offsets[curr]; i < offsets[curr + 1]; i++) {
+          int friend = friends[i];
+          if (dist[friend] == 0) {
+            dist[friend] = dist[curr] + 1;
+            order[reached++] = friend;
+          }
+          if (dist[friend] == dist[curr] + 1) {
+            paths[friend] += paths[curr];
+          }
+        }
+      }
+
+      // Walk back from the furthest users, passing each user's share of paths to the users
+      // one step closer to the start
+      for (int k = reached - 1; k >= 0; k--) {
+        int curr = order[k];
+        for (int i = offsets[curr]; i < offsets[curr + 1]; i++) {
+          int friend = friends[i];
+          if (dist[friend] == dist[curr] - 1) {
+            dependency[friend] += paths[friend] / paths[curr] * (1 + dependency[curr]);
+          }
+        }
+        if (curr != start) {
+          sum[curr] += dependency[curr];
+        }
+      }
+
+      // Clear only what this search touched
+      for (int k = 0; k < reached; k++) {
+        int id = order[k];
+        dist[id] = 0;
+        paths[id] = 0;
+        dependency[id] = 0;
+      }
+    }
+  }
+
+}
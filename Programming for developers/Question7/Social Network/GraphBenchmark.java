@@ -0,0 +1,1105 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Times the graph on generated friendship logs so that changes to Graph can be compared from one
+ * version to the next. Sizes are given as edge counts on the command line, for example:
+ *
+ * java application.GraphBenchmark 100000 1000000
+ *
+ * The network itself does not use JavaFX, but the user list benchmark times the JavaFX observable
+ * lists the user page fills and needs javafx.base on the class path. The file import
+ * benchmark goes through SocialNetwork, which rewrites log.txt in the working directory, so run it
+ * from a scratch directory.
+ *
+ * @author Team 70
+ *
+ */
+public class GraphBenchmark {
+
+  // Generated graphs use an average of ten friends per user
+  private static final int AVERAGE_DEGREE = 10;
+  private static final long SEED = 70;
+
+  /**
+   * Runs the benchmark for each requested number of edges
+   *
+   * @param args edge counts, defaults to 10^5, 3*10^5 and 10^6
+   */
+  public static void main(String[] args) {
+    int[] sizes = {100000, 300000, 1000000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    // Small untimed run so the JIT has seen the code before measuring
+    importEdges(randomFriendships(10000, new Random(SEED)));
+
+    for (int edges : sizes) {
+      String[][] friendships = randomFriendships(edges, new Random(SEED));
+
+      long start = System.nanoTime();
+      Graph graph = importEdges(friendships);
+      long elapsed = System.nanoTime() - start;
+
+      System.out.printf("import %,10d edges %,9d users %10.1f ms%n", graph.size(),
+          graph.order(), elapsed / 1e6);
+
+      benchmarkTraversals(graph, new Random(SEED));
+      benchmarkFrozenTraversals(graph, new Random(SEED));
+      benchmarkMutualFriends(graph, new Random(SEED));
+    }
+
+    benchmarkCelebrity(100000);
+    benchmarkChain(1000000);
+    benchmarkBidirectional(1000000, new Random(SEED));
+    benchmarkGroupCounter(200000, new Random(SEED));
+    benchmarkImportFile(2000000, new Random(SEED));
+    benchmarkBulkLoad(5000000, new Random(SEED));
+    benchmarkCommandLog(1000000);
+    benchmarkColdStart(2000000, new Random(SEED));
+    benchmarkCompaction(2000000, new Random(SEED));
+    benchmarkExport(2000000, new Random(SEED));
+    benchmarkUserListing(1000000, new Random(SEED));
+    benchmarkUserSearch(1000000, new Random(SEED));
+    benchmarkImportHeap(1000000, false);
+    benchmarkImportHeap(1000000, true);
+    benchmarkConcurrentNetwork(100000, 2000000);
+    benchmarkAnalytics(
+        GraphGenerator.smallWorld(100000, AVERAGE_DEGREE / 2, 0.1, new Random(SEED)),
+        "small world");
+    benchmarkAnalytics(randomFriendships(1000000, new Random(SEED)), "random");
+    benchmarkNeighborhood(5000000, new Random(SEED));
+    benchmarkQueryCache(1000000, 0);
+    benchmarkQueryCache(1000000, SocialNetwork.DEFAULT_QUERY_CACHE_CAPACITY);
+    benchmarkBatch(1000000, 1, new Random(SEED));
+    benchmarkBatch(1000000, 100, new Random(SEED));
+    benchmarkBatch(1000000, 10000, new Random(SEED));
+  }
+
+  /**
+   * Measures the heap still in use after importing a large network, and compares it with the
+   * graph's own estimate
+   *
+   * @param users   number of users
+   * @param compact true to build a compact graph
+   */
+  private static void benchmarkImportHeap(int users, boolean compact) {
+    long before = LoadTest.usedHeap();
+    String[][] friendships =
+        GraphGenerator.smallWorld(users, AVERAGE_DEGREE / 2, 0.1, new Random(SEED));
+
+    Graph graph = importEdges(friendships, compact);
+    friendships = null;
+    long after = LoadTest.usedHeap();
+
+    System.out.printf("heap after importing %,d users and %,d friendships into a %s graph:%n",
+        graph.order(), graph.size(), compact ? "compact" : "standard");
+    System.out.printf("  measured %,d bytes, %,d bytes per user%n", after - before,
+        (after - before) / graph.order());
+    System.out.println("  estimated " + graph.getFootprint());
+  }
+
+  /**
+   * Runs the same mix of edits and queries from several threads at once on a SocialNetwork, whose
+   * methods take turns on one lock, and on a ConcurrentSocialNetwork, whose methods only lock the
+   * users they touch. Afterwards every friendship must still be recorded on both users.
+   *
+   * @param users      number of users each network starts with
+   * @param operations number of operations in each run, shared between the threads
+   */
+  private static void benchmarkConcurrentNetwork(int users, int operations) {
+    String[][] friendships =
+        GraphGenerator.smallWorld(users, AVERAGE_DEGREE / 2, 0.1, new Random(SEED));
+
+    for (int threads : new int[] {1, 2, 4, 8}) {
+      SocialNetwork socialNetwork = new SocialNetwork();
+      socialNetwork.setCompactionThreshold(0);
+      socialNetwork.setSnapshotInterval(0);
+      runMixedWorkload("synchronized", socialNetwork, friendships, users, threads, operations);
+      socialNetwork.close();
+
+      runMixedWorkload("striped", new ConcurrentSocialNetwork(), friendships, users, threads,
+          operations);
+    }
+  }
+
+  /**
+   * Times a mix of operations on a network from several threads: half of them list a user's
+   * friends, 15% find mutual friends, 20% add and 10% remove a friendship, and the rest add or
+   * remove a user
+   *
+   * @param label       name of the network in the output
+   * @param network     the network to run on
+   * @param friendships friendships to add before timing
+   * @param users       number of users the friendships are between
+   * @param threads     number of threads
+   * @param operations  number of operations, shared between the threads
+   */
+  private static void runMixedWorkload(String label, SocialNetworkADT network,
+      String[][] friendships, int users, int threads, int operations) {
+    for (String[] friendship : friendships) {
+      network.addFriend(friendship[0], friendship[1]);
+    }
+
+    List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+    for (int t = 0; t < threads; t++) {
+      Random rand = new Random(SEED + t);
+      tasks.add(() -> {
+        long checksum = 0;
+        for (int i = 0; i < operations / threads; i++) {
+          String user1 = "user" + rand.nextInt(users);
+          String user2 = "user" + rand.nextInt(users);
+          int operation = rand.nextInt(100);
+          if (operation < 50) {
+            checksum += network.displayNetwork(user1).size();
+          } else if (operation < 65) {
+            checksum += network.getMutualFriends(user1, user2).size();
+          } else if (operation < 85) {
+            network.addFriend(user1, user2);
+          } else if (operation < 95) {
+            network.removeFriend(user1, user2);
+          } else if (operation < 98) {
+            network.addUser(user1);
+          } else {
+            network.removeUser(user1);
+          }
+        }
+        return checksum;
+      });
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      long start = System.nanoTime();
+      long checksum = 0;
+      for (Future<Long> result : pool.invokeAll(tasks)) {
+        checksum += result.get();
+      }
+      long elapsed = System.nanoTime() - start;
+
+      // Every friendship has to be on both users' lists
+      for (String user : network.getAllUsers()) {
+        for (String friend : network.displayNetwork(user)) {
+          if (!network.displayNetwork(friend).contains(user)) {
+            throw new IllegalStateException(label + ": " + user + " is a friend of " + friend
+                + " on one side only");
+          }
+        }
+      }
+
+      System.out.printf("%-12s %d threads: %,10.0f operations/s (checksum %d), consistent%n", label,
+          threads, operations / (elapsed / 1e9), checksum);
+
+    } catch (InterruptedException | ExecutionException e) {
+      e.printStackTrace();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Times what the user page does when a user is clicked: rebuilding the whole user list and the
+   * friend list, against listing one page of users and the new central user's friends
+   *
+   * @param users number of users
+   * @param rand  random number generator
+   */
+  private static void benchmarkUserListing(int users, Random rand) {
+    SocialNetwork socialNetwork = new SocialNetwork();
+    socialNetwork.setCompactionThreshold(0);
+    for (String[] friendship : GraphGenerator.smallWorld(users, 2, 0.1, rand)) {
+      socialNetwork.addFriend(friendship[0], friendship[1]);
+    }
+
+    ObservableList<String> userList = FXCollections.observableArrayList();
+    ObservableList<String> friendList = FXCollections.observableArrayList();
+    int clicks = 20;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < clicks; i++) {
+      String user = "user" + rand.nextInt(users);
+      userList.clear();
+      userList.addAll(socialNetwork.getAllUsers());
+      friendList.clear();
+      friendList.addAll(socialNetwork.displayNetwork(user));
+    }
+    long rebuild = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < clicks; i++) {
+      String user = "user" + rand.nextInt(users);
+      userList.setAll(socialNetwork.getUsers(0, 500, ""));
+      friendList.setAll(socialNetwork.displayNetwork(user));
+    }
+    long paged = System.nanoTime() - start;
+
+    System.out.printf("clicking a user among %,d users:%n", socialNetwork.getUserCount());
+    System.out.printf("  rebuild both lists %8.2f ms per click%n", rebuild / 1e6 / clicks);
+    System.out.printf("  page and friends   %8.2f ms per click%n", paged / 1e6 / clicks);
+    socialNetwork.close();
+  }
+
+  /**
+   * Times autocompleting and correcting user names against the name index, compared with
+   * scanning every name, after timing how long the index takes to build
+   *
+   * @param users number of users
+   * @param rand  source of randomness
+   */
+  private static void benchmarkUserSearch(int users, Random rand) {
+    Graph graph = new Graph(true);
+    for (int i = 0; i < users; i++) {
+      graph.addVertex("user" + i);
+    }
+    long start = System.nanoTime();
+    graph.getVerticesStartingWith("", 1);
+    long built = System.nanoTime() - start;
+
+    // Typed so far: "user" and the first few digits of a user
+    int searches = 10000;
+    String[] prefixes = new String[searches];
+    String[] typos = new String[searches];
+    for (int i = 0; i < searches; i++) {
+      String name = "user" + rand.nextInt(users);
+      prefixes[i] = name.substring(0, 5 + rand.nextInt(name.length() - 4));
+      typos[i] = name.substring(0, name.length() - 1) + (char) ('a' + rand.nextInt(26));
+    }
+
+    start = System.nanoTime();
+    int found = 0;
+    for (String prefix : prefixes) {
+      found += graph.getVerticesStartingWith(prefix, 10).size();
+    }
+    long completed = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (String typo : typos) {
+      found += graph.getSimilarVertices(typo, 10).size();
+    }
+    long corrected = System.nanoTime() - start;
+
+    // The same prefix search by going through every name
+    int scans = 10;
+    start = System.nanoTime();
+    for (int i = 0; i < scans; i++) {
+      List<String> matches = new ArrayList<String>();
+      for (String name : graph.getAllVertices()) {
+        if (matches.size() < 10 && name.startsWith(prefixes[i])) {
+          matches.add(name);
+        }
+      }
+      found += matches.size();
+    }
+    long scanned = System.nanoTime() - start;
+
+    System.out.printf("user search among %,d users: index built in %.1f ms, autocomplete "
+        + "%.1f us, similar names %.1f us, scan %.2f ms (%d found)%n", users, built / 1e6,
+        completed / 1e3 / searches, corrected / 1e3 / searches, scanned / 1e6 / scans, found);
+  }
+
+  /**
+   * Times importing a long exported history with and without its snapshot. The history keeps
+   * adding and removing users and friendships and switching the central user, so the network at
+   * the end is much smaller than the history.
+   *
+   * @param lines number of lines in the history
+   * @param rand  source of randomness
+   */
+  private static void benchmarkColdStart(int lines, Random rand) {
+    try {
+      File history = File.createTempFile("benchmark", ".txt");
+      File exported = File.createTempFile("benchmark", ".txt");
+      history.deleteOnExit();
+      exported.deleteOnExit();
+
+      writeHistory(history, lines, rand);
+
+      // Build the network once and keep its log with a snapshot, as a later session would find
+      // them. A new network replaces log.txt, so they are copied first.
+      SocialNetwork socialNetwork = new SocialNetwork();
+      socialNetwork.importFile(history.getPath());
+      socialNetwork.saveSnapshot();
+      socialNetwork.close();
+      Path snapshot = GraphSnapshot.snapshotFileOf(exported.toPath());
+      snapshot.toFile().deleteOnExit();
+      Files.copy(Paths.get(SocialNetwork.LOG_FILE), exported.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+      Files.copy(GraphSnapshot.snapshotFileOf(Paths.get(SocialNetwork.LOG_FILE)), snapshot,
+          StandardCopyOption.REPLACE_EXISTING);
+
+      long start = System.nanoTime();
+      SocialNetwork fromSnapshot = new SocialNetwork();
+      fromSnapshot.importFile(exported.getPath());
+      long loaded = System.nanoTime();
+      Files.delete(snapshot);
+      SocialNetwork fromHistory = new SocialNetwork();
+      fromHistory.importFile(exported.getPath());
+      long replayed = System.nanoTime();
+
+      System.out.printf("cold start from %,d line history (%,d users left):%n", lines,
+          fromHistory.getAllUsers().size());
+      System.out.printf("  replay whole log %8.1f ms%n", (replayed - loaded) / 1e6);
+      System.out.printf("  snapshot + tail  %8.1f ms (same users: %b)%n", (loaded - start) / 1e6,
+          fromSnapshot.getAllUsers().equals(fromHistory.getAllUsers()));
+      fromSnapshot.close();
+      fromHistory.close();
+      history.delete();
+      exported.delete();
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Times compacting a long history, and replaying the history and the compacted log
+   *
+   * @param lines number of lines in the history
+   * @param rand  random number generator
+   */
+  private static void benchmarkCompaction(int lines, Random rand) {
+    try {
+      File history = File.createTempFile("benchmark", ".txt");
+      File compacted = File.createTempFile("benchmark", ".txt");
+      history.deleteOnExit();
+      compacted.deleteOnExit();
+      writeHistory(history, lines, rand);
+
+      SocialNetwork fromHistory = new SocialNetwork();
+      long start = System.nanoTime();
+      int compactedLines = new FileManager(fromHistory).compactLog(history.getPath(),
+          compacted.getPath());
+      long compactTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fromHistory.importFile(history.getPath());
+      long historyTime = System.nanoTime() - start;
+      fromHistory.close();
+
+      start = System.nanoTime();
+      SocialNetwork fromCompacted = new SocialNetwork();
+      fromCompacted.importFile(compacted.getPath());
+      long compactedTime = System.nanoTime() - start;
+
+      System.out.printf("compaction of %,d line history:%n", lines);
+      System.out.printf("  compact          %8.1f ms (%,d bytes to %,d lines, %,d bytes)%n",
+          compactTime / 1e6, history.length(), compactedLines, compacted.length());
+      System.out.printf("  replay history   %8.1f ms%n", historyTime / 1e6);
+      System.out.printf("  replay compacted %8.1f ms (same users: %b)%n", compactedTime / 1e6,
+          fromCompacted.getAllUsers().equals(fromHistory.getAllUsers()));
+      fromCompacted.close();
+      history.delete();
+      compacted.delete();
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Times exporting the log of a long history: copying it line by line as export used to,
+   * handing it to FileChannel.transferTo, the whole export including syncing the log, and
+   * exporting only the network as it is now with its snapshot
+   *
+   * @param lines number of lines in the history
+   * @param rand  source of randomness
+   */
+  private static void benchmarkExport(int lines, Random rand) {
+    try {
+      File history = File.createTempFile("benchmark", ".txt");
+      File copied = File.createTempFile("benchmark", ".txt");
+      File exported = File.createTempFile("benchmark", ".txt");
+      File state = File.createTempFile("benchmark", ".txt");
+      for (File file : new File[] {history, copied, exported, state}) {
+        file.deleteOnExit();
+        GraphSnapshot.snapshotFileOf(file.toPath()).toFile().deleteOnExit();
+      }
+
+      writeHistory(history, lines, rand);
+      SocialNetwork socialNetwork = new SocialNetwork();
+      socialNetwork.setCompactionThreshold(0);
+      socialNetwork.setSnapshotInterval(0);
+      socialNetwork.importFile(history.getPath(), null);
+      socialNetwork.syncLog();
+
+      long start = System.nanoTime();
+      try (Scanner scanner = new Scanner(new File(SocialNetwork.LOG_FILE));
+          PrintWriter writer = new PrintWriter(copied)) {
+        while (scanner.hasNextLine()) {
+          writer.println(scanner.nextLine());
+        }
+      }
+      long lineCopy = System.nanoTime();
+      new FileManager(socialNetwork).exportFile(copied.getPath());
+      long transferred = System.nanoTime();
+      socialNetwork.exportFile(exported.getPath());
+      long exportedAll = System.nanoTime();
+      socialNetwork.exportFile(state.getPath(), true);
+      long currentState = System.nanoTime();
+
+      System.out.printf("export %,d byte log (%,d users left):%n", exported.length(),
+          socialNetwork.getUserCount());
+      System.out.printf("  line by line copy     %8.1f ms%n", (lineCopy - start) / 1e6);
+      System.out.printf("  transferTo copy       %8.1f ms%n", (transferred - lineCopy) / 1e6);
+      System.out.printf("  whole export          %8.1f ms%n", (exportedAll - transferred) / 1e6);
+      System.out.printf("  current state only    %8.1f ms (%,d bytes)%n",
+          (currentState - exportedAll) / 1e6, state.length());
+      socialNetwork.close();
+      for (File file : new File[] {history, copied, exported, state}) {
+        file.delete();
+        Files.deleteIfExists(GraphSnapshot.snapshotFileOf(file.toPath()));
+      }
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Writes a history of random commands in which most friendships are later removed and the
+   * central user keeps changing
+   *
+   * @param file  the file to write
+   * @param lines number of commands
+   * @param rand  random number generator
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeHistory(File file, int lines, Random rand) throws IOException {
+    String[][] friendships = randomFriendships(lines, rand);
+    try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+      for (int i = 0; i < lines; i++) {
+        if (i % 1000 == 999) {
+          writer.println("r " + friendships[i][0]);
+        } else if (i % 10 < 3) {
+          writer.println("a " + friendships[i][0] + " " + friendships[i][1]);
+        } else if (i % 10 == 3) {
+          writer.println("r " + friendships[i - 3][0] + " " + friendships[i - 3][1]);
+        } else {
+          writer.println("s " + friendships[i][1]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Times writing commands to a log with different flush policies
+   *
+   * @param records number of commands to write
+   */
+  private static void benchmarkCommandLog(int records) {
+    // records per flush and milliseconds per flush for each policy
+    long[][] policies = {{1, 0}, {CommandLog.DEFAULT_RECORDS_PER_FLUSH,
+        CommandLog.DEFAULT_MILLIS_PER_FLUSH}, {0, 0}};
+    String[] names = {"flush every record", "default policy", "sync only"};
+
+    try {
+      File file = File.createTempFile("benchmark", ".log");
+      file.deleteOnExit();
+
+      for (int i = 0; i < policies.length; i++) {
+        CommandLog log = new CommandLog(file, (int) policies[i][0], policies[i][1]);
+        long start = System.nanoTime();
+        for (int j = 0; j < records; j++) {
+          log.append("a user" + j + " user" + (j + 1));
+        }
+        log.sync();
+        long elapsed = System.nanoTime() - start;
+        log.close();
+
+        System.out.printf("command log %-18s %,d records in %8.1f ms%n", names[i], records,
+            elapsed / 1e6);
+      }
+      file.delete();
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Times importing a generated command log through SocialNetwork, which parses every line,
+   * applies it and writes it to log.txt in the working directory
+   *
+   * @param lines number of lines in the generated log
+   * @param rand  source of randomness
+   */
+  private static void benchmarkImportFile(int lines, Random rand) {
+    try {
+      File file = File.createTempFile("benchmark", ".txt");
+      file.deleteOnExit();
+
+      // Mostly friendships, with some central user changes and removed friendships
+      String[][] friendships = randomFriendships(lines, rand);
+      try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+        for (int i = 0; i < lines; i++) {
+          if (i % 10 == 9) {
+            writer.println("s " + friendships[i][0]);
+          } else if (i % 50 == 49) {
+            writer.println("r " + friendships[i / 2][0] + " " + friendships[i / 2][1]);
+          } else {
+            writer.println("a " + friendships[i][0] + " " + friendships[i][1]);
+          }
+        }
+      }
+
+      SocialNetwork socialNetwork = new SocialNetwork();
+      long start = System.nanoTime();
+      boolean imported = socialNetwork.importFile(file.getPath());
+      long elapsed = System.nanoTime() - start;
+
+      System.out.printf("import file %,d lines (%,d bytes): %s in %.1f ms, %,.0f lines/s%n", lines,
+          file.length(), imported ? "ok" : "failed", elapsed / 1e6, lines / (elapsed / 1e9));
+      file.delete();
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Compares importing friendships one command at a time against bulk loading the same
+   * friendships from an edge list, and checks both give the same number of users and friendships
+   *
+   * @param edges number of friendships, some of which are repeated
+   * @param rand  source of randomness
+   */
+  private static void benchmarkBulkLoad(int edges, Random rand) {
+    try {
+      File commands = File.createTempFile("benchmark", ".txt");
+      File edgeList = File.createTempFile("benchmark", ".edges");
+      commands.deleteOnExit();
+      edgeList.deleteOnExit();
+
+      String[][] friendships = randomFriendships(edges, rand);
+      try (PrintWriter commandWriter = new PrintWriter(new BufferedWriter(new FileWriter(commands)));
+          PrintWriter edgeWriter = new PrintWriter(new BufferedWriter(new FileWriter(edgeList)))) {
+        for (String[] friendship : friendships) {
+          commandWriter.println("a " + friendship[0] + " " + friendship[1]);
+          edgeWriter.println(friendship[0] + " " + friendship[1]);
+        }
+      }
+      friendships = null;
+
+      SocialNetwork imported = new SocialNetwork();
+      long start = System.nanoTime();
+      imported.importFile(commands.getPath(), null);
+      long elapsed = System.nanoTime() - start;
+      int users = imported.getUserCount();
+      int unique = imported.getFrozenGraph().size();
+      imported.close();
+      imported = null;
+
+      SocialNetwork loaded = new SocialNetwork();
+      BulkLoadResult result = loaded.bulkLoad(edgeList.getPath());
+      boolean same = users == loaded.getUserCount() && unique == loaded.getFrozenGraph().size();
+      loaded.close();
+
+      System.out.printf("import %,d friendships: %.1f ms, %,.0f edges/s%n", edges, elapsed / 1e6,
+          edges / (elapsed / 1e9));
+      System.out.printf("bulk load %,d friendships (%,d repeated): %.1f ms, %,.0f edges/s, "
+          + "same network: %b%n", result.getFriendships(), result.getDuplicates(),
+          result.getElapsedNanos() / 1e6, result.getEdgesPerSecond(), same);
+      commands.delete();
+      edgeList.delete();
+
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Times mutual friend lookups between random users and friend suggestions for random users
+   *
+   * @param graph graph to search
+   * @param rand  source of randomness
+   */
+  private static void benchmarkMutualFriends(Graph graph, Random rand) {
+    List<String> users = graph.getAllVertices();
+    int lookups = 100000;
+    int suggestions = 1000;
+    long found = 0;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      User user1 = graph.getNode(users.get(rand.nextInt(users.size())));
+      User user2 = graph.getNode(users.get(rand.nextInt(users.size())));
+      found += graph.getMutualFriends(user1, user2).size();
+    }
+    long looked = System.nanoTime();
+    for (int i = 0; i < suggestions; i++) {
+      found += graph.getFriendSuggestions(graph.getNode(users.get(rand.nextInt(users.size()))), 10)
+          .size();
+    }
+    long suggested = System.nanoTime();
+
+    System.out.printf("  mutual friends %.2f us avg, top-10 suggestions %.2f ms avg (found %d)%n",
+        (looked - start) / 1e3 / lookups, (suggested - looked) / 1e6 / suggestions, found);
+  }
+
+  /**
+   * Times reading the number of groups after every change, the way the user page refreshes its
+   * group counter, while friendships are added and occasionally removed
+   *
+   * @param edges number of friendships to add
+   * @param rand  source of randomness
+   */
+  private static void benchmarkGroupCounter(int edges, Random rand) {
+    String[][] friendships = randomFriendships(edges, rand);
+    Graph graph = new Graph();
+    long groups = 0;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < friendships.length; i++) {
+      graph.addEdge(friendships[i][0], friendships[i][1]);
+      // one change in a thousand is an unfriending
+      if (i % 1000 == 999) {
+        graph.removeEdge(friendships[i / 2][0], friendships[i / 2][1]);
+      }
+      groups += graph.getConnectedComponents();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("group counter after each of %,d changes: %.1f ms (checksum %d)%n",
+        friendships.length, elapsed / 1e6, groups);
+  }
+
+  /**
+   * Compares searching from one user against searching from both users on a small-world graph,
+   * where most users are a few friends apart
+   *
+   * @param users number of users in the graph
+   * @param rand  source of randomness
+   */
+  private static void benchmarkBidirectional(int users, Random rand) {
+    Graph graph = importEdges(GraphGenerator.smallWorld(users, AVERAGE_DEGREE / 2, 0.05, rand));
+    int searches = 50;
+    long[] visited = new long[2];
+    long[] nanos = new long[2];
+
+    for (int i = 0; i < searches; i++) {
+      User user1 = graph.getNode("user" + rand.nextInt(users));
+      User user2 = graph.getNode("user" + rand.nextInt(users));
+
+      long start = System.nanoTime();
+      int length = graph.shortestPath(user1, user2).size();
+      nanos[0] += System.nanoTime() - start;
+      visited[0] += graph.getLastSearchVisited();
+
+      start = System.nanoTime();
+      int bidirectionalLength = graph.bidirectionalShortestPath(user1, user2).size();
+      nanos[1] += System.nanoTime() - start;
+      visited[1] += graph.getLastSearchVisited();
+
+      if (length != bidirectionalLength) {
+        throw new IllegalStateException("Paths differ between " + user1.getName() + " and "
+            + user2.getName() + ": " + length + " vs " + bidirectionalLength);
+      }
+    }
+
+    System.out.printf("small world %,d users, %,d edges%n", graph.order(), graph.size());
+    System.out.printf("  one side:  %,10d users visited, %7.2f ms avg%n", visited[0] / searches,
+        nanos[0] / 1e6 / searches);
+    System.out.printf("  both sides:%,10d users visited, %7.2f ms avg%n", visited[1] / searches,
+        nanos[1] / 1e6 / searches);
+  }
+
+  /**
+   * Times shortest path searches between random users and counting the groups of a graph
+   *
+   * @param graph graph to search
+   * @param rand  source of randomness
+   */
+  private static void benchmarkTraversals(Graph graph, Random rand) {
+    List<String> users = graph.getAllVertices();
+    int searches = 20;
+
+    long start = System.nanoTime();
+    int totalLength = 0;
+    for (int i = 0; i < searches; i++) {
+      User user1 = graph.getNode(users.get(rand.nextInt(users.size())));
+      User user2 = graph.getNode(users.get(rand.nextInt(users.size())));
+      totalLength += graph.shortestPath(user1, user2).size();
+    }
+    long searched = System.nanoTime();
+    int groups = graph.getConnectedComponents();
+    long counted = System.nanoTime();
+
+    System.out.printf("  shortest path %.2f ms avg (avg length %.1f), groups %,d in %.1f ms%n",
+        (searched - start) / 1e6 / searches, (double) totalLength / searches, groups,
+        (counted - searched) / 1e6);
+  }
+
+  /**
+   * Times freezing a graph, then the same shortest path searches as benchmarkTraversals on the
+   * frozen graph, and counting its groups from scratch
+   *
+   * @param graph graph to freeze
+   * @param rand  source of randomness
+   */
+  private static void benchmarkFrozenTraversals(Graph graph, Random rand) {
+    List<String> users = graph.getAllVertices();
+    int searches = 20;
+
+    long start = System.nanoTime();
+    FrozenGraph frozen = graph.freeze();
+    long frozenAt = System.nanoTime();
+    int totalLength = 0;
+    for (int i = 0; i < searches; i++) {
+      String user1 = users.get(rand.nextInt(users.size()));
+      String user2 = users.get(rand.nextInt(users.size()));
+      totalLength += frozen.shortestPath(user1, user2).size();
+    }
+    long searched = System.nanoTime();
+    int groups = frozen.getConnectedComponents();
+    long counted = System.nanoTime();
+
+    System.out.printf("  frozen in %.1f ms: shortest path %.2f ms avg (avg length %.1f), "
+        + "groups %,d counted in %.1f ms%n", (frozenAt - start) / 1e6,
+        (searched - frozenAt) / 1e6 / searches, (double) totalLength / searches, groups,
+        (counted - searched) / 1e6);
+  }
+
+  /**
+   * Times shortest path and mutual friend queries that keep coming back to the same few hundred
+   * pairs of users, as a user interface does, while a friendship between other users is removed
+   * and one added every 50 queries
+   *
+   * @param edges    number of friendships in the network
+   * @param capacity number of results of each kind the network keeps, or 0 to keep none
+   */
+  private static void benchmarkQueryCache(int edges, int capacity) {
+    Random rand = new Random(SEED);
+    SocialNetwork socialNetwork = new SocialNetwork(true);
+    for (String[] friendship : randomFriendships(edges, rand)) {
+      socialNetwork.addFriend(friendship[0], friendship[1]);
+    }
+    socialNetwork.setQueryCacheCapacity(capacity);
+
+    List<String> users = socialNetwork.getAllUsers();
+    String[][] pairs = new String[300][];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = new String[] {users.get(rand.nextInt(users.size())),
+          users.get(rand.nextInt(users.size()))};
+    }
+
+    int queries = 20000;
+    long start = System.nanoTime();
+    for (int i = 0; i < queries; i++) {
+      String[] pair = pairs[rand.nextInt(pairs.length)];
+      if (i % 2 == 0) {
+        socialNetwork.getShortestPath(pair[0], pair[1]);
+      } else {
+        socialNetwork.getMutualFriends(pair[0], pair[1]);
+      }
+      if (i % 50 == 24) {
+        String user = users.get(rand.nextInt(users.size()));
+        for (String friend : socialNetwork.displayNetwork(user)) {
+          socialNetwork.removeFriend(user, friend);
+          break;
+        }
+      } else if (i % 50 == 49) {
+        socialNetwork.addFriend(users.get(rand.nextInt(users.size())),
+            users.get(rand.nextInt(users.size())));
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("query cache of %d, %,d edges: %.3f ms per query%n  paths: %s%n"
+        + "  mutual friends: %s%n", capacity, edges, elapsed / 1e6 / queries,
+        socialNetwork.getPathCacheStats(), socialNetwork.getMutualFriendsCacheStats());
+    socialNetwork.close();
+  }
+
+  /**
+   * Compares applying commands one method call at a time against applying them in batches, and
+   * checks both leave the same number of users and friendships. Each network logs to log.txt in
+   * turn.
+   *
+   * @param commands  number of commands
+   * @param batchSize number of commands in each batch
+   * @param rand      source of randomness
+   */
+  private static void benchmarkBatch(int commands, int batchSize, Random rand) {
+    // Mostly friendships, with some new users, removed friendships and central user changes
+    String[][] friendships = randomFriendships(commands, rand);
+    CommandBatch all = new CommandBatch(commands);
+    for (int i = 0; i < commands; i++) {
+      if (i % 20 == 19) {
+        all.removeFriend(friendships[i / 2][0], friendships[i / 2][1]);
+      } else if (i % 20 == 13) {
+        all.addUser("new" + i);
+      } else if (i % 100 == 7) {
+        all.setCentralUser(friendships[i][0]);
+      } else {
+        all.addFriend(friendships[i][0], friendships[i][1]);
+      }
+    }
+
+    SocialNetwork single = new SocialNetwork();
+    long start = System.nanoTime();
+    for (int i = 0; i < commands; i++) {
+      String user1 = all.getUser1(i);
+      String user2 = all.getUser2(i);
+      switch (all.getType(i)) {
+        case CommandBatch.ADD_USER:
+          single.addUser(user1);
+          break;
+        case CommandBatch.ADD_FRIEND:
+          single.addFriend(user1, user2);
+          break;
+        case CommandBatch.REMOVE_FRIEND:
+          single.removeFriend(user1, user2);
+          break;
+        default:
+          single.setCentralUser(user1);
+          break;
+      }
+    }
+    single.syncLog();
+    long singleTime = System.nanoTime() - start;
+    int singleLogged = single.getCommandLog().getRecordCount();
+    int singleUsers = single.getUserCount();
+    int singleFriendships = single.getFrozenGraph().size();
+    single.close();
+
+    SocialNetwork batched = new SocialNetwork();
+    CommandBatch batch = new CommandBatch(batchSize);
+    int applied = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < commands; i++) {
+      String user1 = all.getUser1(i);
+      String user2 = all.getUser2(i);
+      switch (all.getType(i)) {
+        case CommandBatch.ADD_USER:
+          batch.addUser(user1);
+          break;
+        case CommandBatch.ADD_FRIEND:
+          batch.addFriend(user1, user2);
+          break;
+        case CommandBatch.REMOVE_FRIEND:
+          batch.removeFriend(user1, user2);
+          break;
+        default:
+          batch.setCentralUser(user1);
+          break;
+      }
+      if (batch.size() == batchSize || i == commands - 1) {
+        applied += batched.applyBatch(batch).getCount(BatchResult.Outcome.APPLIED);
+        batch.clear();
+      }
+    }
+    batched.syncLog();
+    long batchTime = System.nanoTime() - start;
+    boolean same = batched.getUserCount() == singleUsers
+        && batched.getFrozenGraph().size() == singleFriendships;
+
+    System.out.printf("batch of %,d, %,d commands: one by one %.1f ms (%,.0f/s), batched %.1f ms "
+        + "(%,.0f/s), %,d vs %,d logged, same network: %b%n", batchSize, commands,
+        singleTime / 1e6, commands / (singleTime / 1e9), batchTime / 1e6,
+        commands / (batchTime / 1e9), singleLogged, applied, same);
+    batched.close();
+  }
+
+  /**
+   * Times finding everyone within two to eight hops of random users, both going out from every
+   * frontier and switching to checking unreached users once the frontier grows large
+   *
+   * @param edges number of friendships to generate
+   * @param rand  source of randomness
+   */
+  private static void benchmarkNeighborhood(int edges, Random rand) {
+    FrozenGraph frozen = importEdges(randomFriendships(edges, rand), true).freeze();
+    int searches = 20;
+    String[] users = new String[searches];
+    for (int i = 0; i < searches; i++) {
+      users[i] = frozen.getName(rand.nextInt(frozen.getIdLimit()));
+    }
+    for (int i = 0; i < searches; i++) {
+      frozen.getNeighborhood(users[i], 8, true);
+      frozen.getNeighborhood(users[i], 8, false);
+    }
+
+    for (int hops = 2; hops <= 8; hops += 2) {
+      long start = System.nanoTime();
+      long total = 0;
+      for (String user : users) {
+        total += frozen.getNeighborhood(user, hops, false).getTotal();
+      }
+      long topDown = System.nanoTime();
+      long reached = total;
+      for (String user : users) {
+        total -= frozen.getNeighborhood(user, hops, true).getTotal();
+      }
+      long optimized = System.nanoTime();
+      if (total != 0) {
+        throw new IllegalStateException("Neighborhoods differ within " + hops + " hops");
+      }
+
+      System.out.printf("neighborhood %d hops, %,d edges (avg %,d users reached): top down "
+          + "%.2f ms avg, direction optimizing %.2f ms avg%n", hops, frozen.size(),
+          reached / searches, (topDown - start) / 1e6 / searches,
+          (optimized - topDown) / 1e6 / searches);
+    }
+  }
+
+  /**
+   * Times each measure in GraphAnalytics on a frozen copy of a generated network. Every measure is
+   * run once on a small network first so the JIT has seen it, and each one is timed on a fresh
+   * GraphAnalytics so nothing worked out earlier is reused.
+   *
+   * @param friendships pairs of users who are friends
+   * @param label       name of the kind of network, for the output
+   */
+  private static void benchmarkAnalytics(String[][] friendships, String label) {
+    int samples = 100;
+    GraphAnalytics warmUp = new GraphAnalytics(
+        importEdges(randomFriendships(10000, new Random(SEED))).freeze());
+    warmUp.getDegreeDistribution();
+    warmUp.getGlobalClusteringCoefficient();
+    warmUp.getBetweenness(samples, SEED);
+    warmUp.getInfluentialUsers(10);
+
+    FrozenGraph frozen = importEdges(friendships).freeze();
+
+    long start = System.nanoTime();
+    int[] distribution = new GraphAnalytics(frozen).getDegreeDistribution();
+    long degrees = System.nanoTime();
+    GraphAnalytics clustering = new GraphAnalytics(frozen);
+    double average = clustering.getAverageClusteringCoefficient();
+    double global = clustering.getGlobalClusteringCoefficient();
+    long clustered = System.nanoTime();
+    new GraphAnalytics(frozen).getBetweenness(samples, SEED);
+    long sampled = System.nanoTime();
+    List<String> influential = new GraphAnalytics(frozen).getInfluentialUsers(10);
+    long ranked = System.nanoTime();
+
+    System.out.printf("analytics %s, %,d users %,d edges: degree distribution (max %d) %.1f ms, "
+        + "clustering (avg %.4f, global %.4f) %.1f ms, betweenness from %d users %.1f ms, "
+        + "pagerank top %d %.1f ms%n", label, frozen.order(), frozen.size(),
+        distribution.length - 1, (degrees - start) / 1e6, average, global,
+        (clustered - degrees) / 1e6, samples, (sampled - clustered) / 1e6, influential.size(),
+        (ranked - sampled) / 1e6);
+  }
+
+  /**
+   * Times traversals of a graph that is one long chain of friends, which is the deepest a search
+   * can go
+   *
+   * @param length number of users in the chain
+   */
+  private static void benchmarkChain(int length) {
+    Graph graph = new Graph();
+    for (int i = 1; i < length; i++) {
+      graph.addEdge("user" + (i - 1), "user" + i);
+    }
+
+    long start = System.nanoTime();
+    int pathLength = graph.shortestPath(graph.getNode("user0"), graph.getNode("user" + (length - 1)))
+        .size();
+    long searched = System.nanoTime();
+    int groups = graph.getConnectedComponents();
+    long counted = System.nanoTime();
+
+    System.out.printf("chain %,d users: shortest path of %,d in %.1f ms, %d group in %.1f ms%n",
+        length, pathLength, (searched - start) / 1e6, groups, (counted - searched) / 1e6);
+  }
+
+  /**
+   * Times a single user gaining and then losing a very large number of friends, which is where
+   * per-friend list scans show up
+   *
+   * @param friends number of friends the celebrity has
+   */
+  private static void benchmarkCelebrity(int friends) {
+    Graph graph = new Graph();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < friends; i++) {
+      graph.addEdge("celebrity", "fan" + i);
+    }
+    long added = System.nanoTime();
+
+    // A fan with a handful of friends compared against the celebrity's full friend list, once the
+    // celebrity's sorted friend ids have been built by a first lookup
+    for (int i = 1; i <= 10; i++) {
+      graph.addEdge("fan0", "fan" + (i * friends / 11));
+    }
+    graph.getMutualFriends(graph.getNode("fan1"), graph.getNode("celebrity"));
+    long mutualStart = System.nanoTime();
+    int mutual = graph.getMutualFriends(graph.getNode("fan0"), graph.getNode("celebrity")).size();
+    long mutualEnd = System.nanoTime();
+    System.out.printf("celebrity mutual friends with a fan: %d in %.3f ms%n", mutual,
+        (mutualEnd - mutualStart) / 1e6);
+
+    added = System.nanoTime();
+    for (int i = 0; i < friends; i += 2) {
+      graph.removeEdge("fan" + i, "celebrity");
+    }
+    graph.removeVertex("celebrity");
+    long removed = System.nanoTime();
+
+    System.out.printf("celebrity %,d friends: add %.1f ms, remove %.1f ms%n", friends,
+        (added - start) / 1e6, (removed - added) / 1e6);
+  }
+
+  /**
+   * Adds every friendship to a new graph the same way an imported log does
+   *
+   * @param friendships pairs of user names
+   * @return the graph that was built
+   */
+  private static Graph importEdges(String[][] friendships) {
+    return importEdges(friendships, false);
+  }
+
+  /**
+   * Adds every friendship to a new graph the same way an imported log does
+   *
+   * @param friendships pairs of user names
+   * @param compact     true to build a compact graph
+   * @return the graph that was built
+   */
+  private static Graph importEdges(String[][] friendships, boolean compact) {
+    Graph graph = new Graph(compact);
+    for (String[] friendship : friendships) {
+      graph.addEdge(friendship[0], friendship[1]);
+    }
+    return graph;
+  }
+
+  /**
+   * Creates random friendships between users named user0, user1, ..., with AVERAGE_DEGREE friends
+   * per user on average
+   *
+   * @param edges number of friendships to create
+   * @param rand  source of randomness
+   * @return pairs of user names
+   */
+  private static String[][] randomFriendships(int edges, Random rand) {
+    return GraphGenerator.random(Math.max(2, 2 * edges / AVERAGE_DEGREE), edges, rand);
+  }
+
+}
@@ -0,0 +1,189 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * The changes made to a graph since a frozen copy of it was made. Getting them from the graph
+ * only copies the changes, so it is quick to do while holding the graph's lock, and applying them
+ * to the frozen copy, which makes a frozen copy of the graph as it was when they were taken, can
+ * then be done without the lock.
+ * <p>
+ * Each change is a friendship added or removed, or a user removed. Users added since the copy was
+ * made have the next ids after the copy's, so only their names are kept.
+ *
+ * @author Team 70
+ *
+ */
+public class GraphChanges {
+  // Friend recorded for a change that removes the user itself
+  static final int REMOVED_USER = Integer.MIN_VALUE;
+
+  // Fields
+  private final FrozenGraph base;
+  private final long version;
+  // names of the ids after the base's, or null for users already removed
+  private final String[] addedNames;
+  // change i is between users[i] and friends[i], with the friend's id flipped (~id) for a removed
+  // friendship, or REMOVED_USER for a removed user
+  private final int[] users;
+  private final int[] friends;
+
+  /**
+   * Initialize values
+   *
+   * @param base       the frozen copy the changes were made to
+   * @param version    version of the graph once the changes were made
+   * @param addedNames names of the users added since the copy was made, by id
+   * @param users      the user of each change
+   * @param friends    the friend of each change, flipped for a removal
+   */
+  GraphChanges(FrozenGraph base, long version, String[] addedNames, int[] users, int[] friends) {
+    this.base = base;
+    this.version = version;
+    this.addedNames = addedNames;
+    this.users = users;
+    this.friends = friends;
+  }
+
+  /**
+   * Get the frozen copy the changes were made to
+   *
+   * @return the frozen graph
+   */
+  FrozenGraph getBase() {
+    return base;
+  }
+
+  /**
+   * Get the number of changes
+   *
+   * @return the number of friendships added or removed and users removed
+   */
+  int getCount() {
+    return users.length;
+  }
+
+  /**
+   * Makes a frozen copy of the graph as it was when the changes were taken, by copying the frozen
+   * copy they were made to with the changes applied. Every user's friends stay in the order they
+   * were added, and a friendship removed and added again moves to the end, as it does in the
+   * graph.
+   *
+   * @return the frozen graph, which is the base itself if nothing has changed
+   */
+  public FrozenGraph apply() {
+    if (users.length == 0 && addedNames.length == 0 && version == base.getVersion()) {
+      return base;
+    }
+
+    String[] baseNames = base.getNames();
+    int[] baseOffsets = base.getOffsets();
+    int[] baseFriends = base.getFriends();
+    int baseLimit = baseNames.length;
+    int idLimit = baseLimit + addedNames.length;
+    String[] names = Arrays.copyOf(baseNames, idLimit);
+    System.arraycopy(addedNames, 0, names, baseLimit, addedNames.length);
+
+    // List the changes under each user whose friends they change, in the order they were made. A
+    // friendship changes the friends of both users.
+    int[] starts = new int[idLimit + 1];
+    for (int i = 0; i < users.length; i++) {
+      if (friends[i] == REMOVED_USER) {
+        names[users[i]] = null;
+      } else {
+        starts[users[i] + 1]++;
+        starts[friendId(friends[i]) + 1]++;
+      }
+    }
+    for (int id = 0; id < idLimit; id++) {
+      starts[id + 1] += starts[id];
+    }
+    int[] changes = new int[starts[idLimit]];
+    int[] next = Arrays.copyOf(starts, idLimit);
+    for (int i = 0; i < users.length; i++) {
+      if (friends[i] != REMOVED_USER) {
+        int friend = friendId(friends[i]);
+        changes[next[users[i]]++] = friends[i];
+        changes[next[friend]++] = friends[i] >= 0 ? users[i] : ~users[i];
+      }
+    }
+
+    // Count each user's friends, then copy them
+    int[] last = new int[idLimit];
+    Arrays.fill(last, -1);
+    int[] offsets = new int[idLimit + 1];
+    for (int id = 0; id < idLimit; id++) {
+      offsets[id + 1] = offsets[id] + patch(id, baseLimit, baseOffsets, baseFriends, starts,
+          changes, last, null, 0);
+    }
+    int[] patched = new int[offsets[idLimit]];
+    for (int id = 0; id < idLimit; id++) {
+      patch(id, baseLimit, baseOffsets, baseFriends, starts, changes, last, patched, offsets[id]);
+    }
+
+    return new FrozenGraph(version, names, offsets, patched);
+  }
+
+  /**
+   * Works out the friends of one user: the user's friends in the base that no change touched,
+   * then the friends whose last change added them, in the order of those changes
+   *
+   * @param id          id of the user
+   * @param baseLimit   number of ids in the base
+   * @param baseOffsets offsets into the base's friends
+   * @param baseFriends the base's friends
+   * @param starts      where each user's changes start in changes
+   * @param changes     every user's changes, with the friend flipped for a removal
+   * @param last        -1 for every id, and left that way
+   * @param out         array to copy the friends into, or null to only count them
+   * @param position    where in out to copy them
+   * @return the number of friends
+   */
+  private static int patch(int id, int baseLimit, int[] baseOffsets, int[] baseFriends,
+      int[] starts, int[] changes, int[] last, int[] out, int position) {
+    int from = id < baseLimit ? baseOffsets[id] : 0;
+    int to = id < baseLimit ? baseOffsets[id + 1] : 0;
+    if (starts[id] == starts[id + 1]) {
+      if (out != null) {
+        System.arraycopy(baseFriends, from, out, position, to - from);
+      }
+      return to - from;
+    }
+
+    for (int i = starts[id]; i < starts[id + 1]; i++) {
+      last[friendId(changes[i])] = i;
+    }
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      if (last[baseFriends[i]] < 0) {
+        if (out != null) {
+          out[position + count] = baseFriends[i];
+        }
+        count++;
+      }
+    }
+    for (int i = starts[id]; i < starts[id + 1]; i++) {
+      if (changes[i] >= 0 && last[changes[i]] == i) {
+        if (out != null) {
+          out[position + count] = changes[i];
+        }
+        count++;
+      }
+    }
+    for (int i = starts[id]; i < starts[id + 1]; i++) {
+      last[friendId(changes[i])] = -1;
+    }
+    return count;
+  }
+
+  /**
+   * Get the id of the friend of a change
+   *
+   * @param friend the friend as recorded, flipped for a removal
+   * @return the id
+   */
+  private static int friendId(int friend) {
+    return friend >= 0 ? friend : ~friend;
+  }
+
+}
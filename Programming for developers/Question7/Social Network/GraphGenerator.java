@@ -0,0 +1,246 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Generates social networks of any size for testing, either as pairs of friends or as command
+ * logs in the format of log.txt that can be imported. Users are named user0, user1, ... and the
+ * same seed always gives the same network. Three shapes of network are available:
+ * <p>
+ * - random: every friendship is between two users picked at random (Erdos-Renyi)
+ * <p>
+ * - scale free: each new user befriends users who already have many friends, so a few users end up
+ * with a great many friends (Barabasi-Albert)
+ * <p>
+ * - small world: users in a ring are friends with their nearest neighbors, and some friendships are
+ * moved to a random user, which makes long paths short (Watts-Strogatz)
+ * <p>
+ * A log can be written from the command line, for example:
+ *
+ * java application.GraphGenerator scalefree 1000000 10 big.txt
+ *
+ * @author Team 70
+ *
+ */
+public class GraphGenerator {
+  public static final String RANDOM = "random";
+  public static final String SCALE_FREE = "scalefree";
+  public static final String SMALL_WORLD = "smallworld";
+
+  // Chance that a small-world friendship is moved to a random user
+  public static final double DEFAULT_REWIRE = 0.1;
+
+  /**
+   * Writes a generated log
+   *
+   * @param args shape (random, scalefree or smallworld), number of users, average number of
+   *             friends, file to write, and optionally a seed and the share of friendships that
+   *             are later removed
+   */
+  public static void main(String[] args) {
+    if (args.length < 4) {
+      System.out.println("usage: GraphGenerator random|scalefree|smallworld users averageFriends "
+          + "file [seed] [removedShare]");
+      return;
+    }
+
+    int users = Integer.parseInt(args[1]);
+    int averageFriends = Integer.parseInt(args[2]);
+    Random rand = new Random(args.length > 4 ? Long.parseLong(args[4]) : 70);
+    double removedShare = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+
+    try {
+      String[][] friendships = generate(args[0], users, averageFriends, rand);
+      int lines = writeLog(args[3], friendships, removedShare, rand);
+      System.out.printf("wrote %,d commands for %,d users and %,d friendships to %s%n", lines,
+          users, friendships.length, args[3]);
+    } catch (IllegalArgumentException | IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Generates a network of one of the three shapes
+   *
+   * @param shape          RANDOM, SCALE_FREE or SMALL_WORLD
+   * @param users          number of users
+   * @param averageFriends average number of friends per user
+   * @param rand           source of randomness
+   * @return pairs of user names, one per friendship
+   * @throws IllegalArgumentException if the shape is not known
+   */
+  public static String[][] generate(String shape, int users, int averageFriends, Random rand) {
+    switch (shape) {
+      case RANDOM:
+        return random(users, (long) users * averageFriends / 2, rand);
+      case SCALE_FREE:
+        return scaleFree(users, Math.max(1, averageFriends / 2), rand);
+      case SMALL_WORLD:
+        return smallWorld(users, Math.max(1, averageFriends / 2), DEFAULT_REWIRE, rand);
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+  }
+
+  /**
+   * Creates friendships between users picked at random. The same pair may come up more than once,
+   * as a log may add a friendship twice.
+   *
+   * @param users       number of users, at least 2
+   * @param friendships number of friendships to create
+   * @param rand        source of randomness
+   * @return pairs of user names
+   */
+  public static String[][] random(int users, long friendships, Random rand) {
+    String[] names = names(users);
+    String[][] pairs = new String[(int) friendships][];
+    for (int i = 0; i < pairs.length; i++) {
+      int user1 = rand.nextInt(users);
+      int user2 = rand.nextInt(users - 1);
+      if (user2 >= user1) {
+        user2++;
+      }
+      pairs[i] = new String[] {names[user1], names[user2]};
+    }
+    return pairs;
+  }
+
+  /**
+   * Creates a scale-free network. The first friendsPerUser + 1 users are all friends, then each
+   * user after them befriends friendsPerUser different users who joined before, picked with a
+   * chance in proportion to how many friends they have. Picking an end of a random friendship so
+   * far gives exactly that chance.
+   *
+   * @param users          number of users, more than friendsPerUser
+   * @param friendsPerUser number of friends each new user makes
+   * @param rand           source of randomness
+   * @return pairs of user names
+   */
+  public static String[][] scaleFree(int users, int friendsPerUser, Random rand) {
+    String[] names = names(users);
+    int first = Math.min(users, friendsPerUser + 1);
+    int count = first * (first - 1) / 2 + (users - first) * friendsPerUser;
+    String[][] pairs = new String[count][];
+    // Both ends of every friendship so far, as user ids
+    int[] ends = new int[2 * count];
+    int pair = 0;
+
+    for (int i = 0; i < first; i++) {
+      for (int j = 0; j < i; j++) {
+        pairs[pair] = new String[] {names[i], names[j]};
+        ends[2 * pair] = i;
+        ends[2 * pair + 1] = j;
+        pair++;
+      }
+    }
+
+    int[] picked = new int[friendsPerUser];
+    for (int i = first; i < users; i++) {
+      // Only the friendships from before this user count, so it cannot pick itself
+      int endsBefore = 2 * pair;
+      for (int k = 0; k < friendsPerUser; k++) {
+        int friend;
+        boolean repeated;
+        do {
+          friend = ends[rand.nextInt(endsBefore)];
+          repeated = false;
+          for (int p = 0; p < k; p++) {
+            repeated |= picked[p] == friend;
+          }
+        } while (repeated);
+        picked[k] = friend;
+
+        pairs[pair] = new String[] {names[i], names[friend]};
+        ends[2 * pair] = i;
+        ends[2 * pair + 1] = friend;
+        pair++;
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Creates a small-world network: users sit in a ring and are friends with their nearest
+   * neighbors, then some friendships are moved to a random user
+   *
+   * @param users     number of users, at least 2
+   * @param neighbors friends on each side of a user in the ring
+   * @param rewire    chance that a friendship is moved to a random user
+   * @param rand      source of randomness
+   * @return pairs of user names
+   */
+  public static String[][] smallWorld(int users, int neighbors, double rewire, Random rand) {
+    String[] names = names(users);
+    String[][] pairs = new String[users * neighbors][];
+    int count = 0;
+    for (int i = 0; i < users; i++) {
+      for (int j = 1; j <= neighbors; j++) {
+        int friend = (i + j) % users;
+        if (rand.nextDouble() < rewire) {
+          // Any user other than themselves, since a log cannot make a user their own friend
+          friend = rand.nextInt(users - 1);
+          if (friend >= i) {
+            friend++;
+          }
+        }
+        pairs[count++] = new String[] {names[i], names[friend]};
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Writes a log that adds every friendship in order. Some friendships can be removed again later
+   * in the log, to give imports removals to apply, and the log ends by setting the central user to
+   * the first user.
+   *
+   * @param fileName     the file to write
+   * @param friendships  pairs of user names
+   * @param removedShare share of friendships, from 0 to 1, that are removed later in the log
+   * @param rand         source of randomness
+   * @return number of commands written
+   * @throws IOException if the file cannot be written
+   */
+  public static int writeLog(String fileName, String[][] friendships, double removedShare,
+      Random rand) throws IOException {
+    int lines = 0;
+    try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(fileName)))) {
+      for (int i = 0; i < friendships.length; i++) {
+        writer.println("a " + friendships[i][0] + " " + friendships[i][1]);
+        lines++;
+        if (rand.nextDouble() < removedShare) {
+          String[] removed = friendships[rand.nextInt(i + 1)];
+          writer.println("r " + removed[0] + " " + removed[1]);
+          lines++;
+        }
+      }
+      if (friendships.length > 0) {
+        writer.println("s " + friendships[0][0]);
+        lines++;
+      }
+      if (writer.checkError()) {
+        throw new IOException("Could not write " + fileName);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Makes the names of the users, so friendships share one String per user
+   *
+   * @param users number of users
+   * @return user0, user1, ...
+   */
+  private static String[] names(int users) {
+    String[] names = new String[users];
+    for (int i = 0; i < users; i++) {
+      names[i] = "user" + i;
+    }
+    return names;
+  }
+
+}
@@ -0,0 +1,310 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of the graph that belongs to a command log. It holds the user names in
+ * the order they joined (the string table), every user's friends as positions in that table in
+ * compressed sparse row form, the central user, and how much of the log it covers. Loading a
+ * snapshot and replaying only the lines after it gives the same network as replaying the whole
+ * log, without replaying users and friendships that were later removed.
+ * <p>
+ * The snapshot of a log file is stored next to it with SUFFIX added to its name. A snapshot is
+ * only used if the log still has at least as many bytes as it covers and a checksum of all of
+ * those bytes is unchanged, so any edit to the covered part of the log is noticed.
+ *
+ * @author Team 70
+ *
+ */
+public class GraphSnapshot {
+  public static final String SUFFIX = ".snap";
+
+  // "SNAP" followed by the format version
+  private static final int MAGIC = 0x534E4150;
+  private static final int VERSION = 2;
+
+  // Fields
+  private String[] names;
+  private int[] offsets;
+  private int[] friends;
+  private String centralUser;
+  private long logBytes;
+  private int logLines;
+  private long logChecksum;
+
+  /**
+   * Initialize values
+   *
+   * @param names       user names in the order they joined
+   * @param offsets     friends of user i are friends[offsets[i]] up to friends[offsets[i + 1]]
+   * @param friends     positions in names of every user's friends
+   * @param centralUser the central user, or null
+   * @param logBytes    number of bytes of the log the snapshot covers
+   * @param logLines    number of lines of the log the snapshot covers
+   * @param logChecksum CRC32 of the bytes of the log the snapshot covers
+   */
+  public GraphSnapshot(String[] names, int[] offsets, int[] friends, String centralUser,
+      long logBytes, int logLines, long logChecksum) {
+    this.names = names;
+    this.offsets = offsets;
+    this.friends = friends;
+    this.centralUser = centralUser;
+    this.logBytes = logBytes;
+    this.logLines = logLines;
+    this.logChecksum = logChecksum;
+  }
+
+  /**
+   * Copies the users and friendships of a graph
+   *
+   * @param graph       the graph to copy
+   * @param centralUser the central user, or null
+   * @param logBytes    number of bytes of the log the snapshot covers
+   * @param logLines    number of lines of the log the snapshot covers
+   * @param logChecksum CRC32 of the bytes of the log the snapshot covers
+   * @return the snapshot
+   */
+  public static GraphSnapshot of(Graph graph, String centralUser, long logBytes, int logLines,
+      long logChecksum) {
+    // The frozen graph is already in compressed sparse row form, and its arrays never change,
+    // so they can be shared when no user has been removed
+    FrozenGraph frozen = graph.freeze();
+    if (frozen.order() == frozen.getIdLimit()) {
+      return new GraphSnapshot(frozen.getNames(), frozen.getOffsets(), frozen.getFriends(),
+          centralUser, logBytes, logLines, logChecksum);
+    }
+
+    // User ids have gaps left by removed users, so give every user a position with no gaps
+    String[] frozenNames = frozen.getNames();
+    int[] frozenOffsets = frozen.getOffsets();
+    int[] frozenFriends = frozen.getFriends();
+    int[] positions = new int[frozen.getIdLimit()];
+    String[] names = new String[frozen.order()];
+    int position = 0;
+    for (int id = 0; id < frozenNames.length; id++) {
+      if (frozenNames[id] != null) {
+        positions[id] = position;
+        names[position++] = frozenNames[id];
+      }
+    }
+
+    int[] offsets = new int[names.length + 1];
+    int[] friends = new int[frozenFriends.length];
+    position = 0;
+    for (int id = 0; id < frozenNames.length; id++) {
+      if (frozenNames[id] != null) {
+        offsets[position++] = frozenOffsets[id];
+        for (int i = frozenOffsets[id]; i < frozenOffsets[id + 1]; i++) {
+          friends[i] = positions[frozenFriends[i]];
+        }
+      }
+    }
+    offsets[position] = frozenFriends.length;
+
+    return new GraphSnapshot(names, offsets, friends, centralUser, logBytes, logLines,
+        logChecksum);
+  }
+
+  /**
+   * Writes the snapshot of a log file next to it. The snapshot is written to a temporary file
+   * first so that a snapshot that was only partly written is never read.
+   *
+   * @param logFile the log the snapshot belongs to
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void write(Path logFile) throws IOException {
+    Path snapshotFile = snapshotFileOf(logFile);
+    Path temporaryFile = Paths.get(snapshotFile + ".tmp");
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile), 64 * 1024))) {
+      // Header
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(logBytes);
+      out.writeInt(logLines);
+      out.writeLong(logChecksum);
+      out.writeBoolean(centralUser != null);
+      if (centralUser != null) {
+        out.writeUTF(centralUser);
+      }
+
+      // String table
+      out.writeInt(names.length);
+      for (String name : names) {
+        out.writeUTF(name);
+      }
+
+      // Friendships
+      out.writeInt(friends.length);
+      for (int offset : offsets) {
+        out.writeInt(offset);
+      }
+      for (int friend : friends) {
+        out.writeInt(friend);
+      }
+    }
+
+    Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Reads the snapshot of a log file, if it has one that still matches the log
+   *
+   * @param logFile the log the snapshot belongs to
+   * @return the snapshot, or null if there is no usable snapshot
+   */
+  public static GraphSnapshot read(Path logFile) {
+    Path snapshotFile = snapshotFileOf(logFile);
+    if (!Files.isRegularFile(snapshotFile)) {
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024))) {
+      // Check the header before reading anything else
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      long logBytes = in.readLong();
+      int logLines = in.readInt();
+      long checksum = in.readLong();
+      if (Files.size(logFile) < logBytes || checksum(logFile, logBytes) != checksum) {
+        return null;
+      }
+      String centralUser = in.readBoolean() ? in.readUTF() : null;
+
+      // String table
+      String[] names = new String[in.readInt()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = in.readUTF();
+      }
+
+      // Friendships
+      int[] friends = new int[in.readInt()];
+      int[] offsets = new int[names.length + 1];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = in.readInt();
+      }
+      for (int i = 0; i < friends.length; i++) {
+        friends[i] = in.readInt();
+      }
+
+      return new GraphSnapshot(names, offsets, friends, centralUser, logBytes, logLines,
+          checksum);
+
+    } catch (IOException | RuntimeException e) {
+      // A damaged snapshot is ignored and the whole log is replayed instead
+      return null;
+    }
+  }
+
+  /**
+   * Get the file a log's snapshot is stored in
+   *
+   * @param logFile the log
+   * @return the snapshot file
+   */
+  public static Path snapshotFileOf(Path logFile) {
+    return Paths.get(logFile + SUFFIX);
+  }
+
+  /**
+   * Get the user names
+   *
+   * @return user names in the order they joined
+   */
+  public String[] getNames() {
+    return names;
+  }
+
+  /**
+   * Get where each user's friends start
+   *
+   * @return offsets into the friends array, with one extra entry marking the end
+   */
+  public int[] getOffsets() {
+    return offsets;
+  }
+
+  /**
+   * Get every user's friends
+   *
+   * @return positions in the names array
+   */
+  public int[] getFriends() {
+    return friends;
+  }
+
+  /**
+   * Get the central user
+   *
+   * @return the central user, or null
+   */
+  public String getCentralUser() {
+    return centralUser;
+  }
+
+  /**
+   * Get how much of the log the snapshot covers
+   *
+   * @return number of bytes
+   */
+  public long getLogBytes() {
+    return logBytes;
+  }
+
+  /**
+   * Get how much of the log the snapshot covers
+   *
+   * @return number of lines
+   */
+  public int getLogLines() {
+    return logLines;
+  }
+
+  /**
+   * Get the checksum of the part of the log the snapshot covers
+   *
+   * @return CRC32 of the covered bytes
+   */
+  public long getLogChecksum() {
+    return logChecksum;
+  }
+
+  /**
+   * Computes a checksum of the start of a log, for a log whose writer did not keep one
+   *
+   * @param logFile  the log
+   * @param logBytes number of bytes to cover, no more than the length of the log
+   * @return CRC32 of the first logBytes bytes
+   * @throws IOException if the log cannot be read
+   */
+  public static long checksum(Path logFile, long logBytes) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(logFile)) {
+      long remaining = logBytes;
+      while (remaining > 0) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read < 0) {
+          throw new IOException(logFile + " is shorter than " + logBytes + " bytes");
+        }
+        crc.update(buffer, 0, read);
+        remaining -= read;
+      }
+    }
+    return crc.getValue();
+  }
+
+}
@@ -0,0 +1,28 @@
+package application;
+
+/**
+ * Receives progress reports while a file is imported, and can stop the import. Progress is
+ * reported and cancellation checked after each batch of lines.
+ *
+ * @author Team 70
+ *
+ */
+public interface ImportProgress {
+
+  /**
+   * Called after each batch of lines has been applied
+   *
+   * @param linesRead  number of lines applied so far
+   * @param bytesRead  approximate number of bytes of the file read so far
+   * @param totalBytes size of the file in bytes
+   */
+  public void update(int linesRead, long bytesRead, long totalBytes);
+
+  /**
+   * Checked before each batch of lines is applied
+   *
+   * @return true to stop importing, leaving the lines applied so far in the network
+   */
+  public boolean isCancelled();
+
+}
@@ -0,0 +1,69 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the outcome of importing a file: whether the file could be read, and which lines of it
+ * could not be understood
+ *
+ * @author Team 70
+ *
+ */
+public class ImportResult {
+  // Fields
+  private boolean success;
+  private int linesRead;
+  private List<Integer> errorLines;
+
+  /**
+   * Initialize values
+   *
+   * @param success    true if the whole file was read
+   * @param linesRead  number of lines read from the file
+   * @param errorLines line numbers, starting at 1, of the lines with errors
+   */
+  public ImportResult(boolean success, int linesRead, List<Integer> errorLines) {
+    this.success = success;
+    this.linesRead = linesRead;
+    this.errorLines = Collections.unmodifiableList(new ArrayList<Integer>(errorLines));
+  }
+
+  /**
+   * Check if the file was read
+   *
+   * @return true if the whole file was read
+   */
+  public boolean isSuccess() {
+    return success;
+  }
+
+  /**
+   * Get the number of lines read
+   *
+   * @return lines read from the file
+   */
+  public int getLinesRead() {
+    return linesRead;
+  }
+
+  /**
+   * Get the number of lines with errors
+   *
+   * @return number of lines that could not be understood
+   */
+  public int getErrorCount() {
+    return errorLines.size();
+  }
+
+  /**
+   * Get the lines with errors
+   *
+   * @return line numbers, starting at 1, of the lines that could not be understood
+   */
+  public List<Integer> getErrorLines() {
+    return errorLines;
+  }
+
+}
@@ -0,0 +1,326 @@
+package application;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A set of non-negative ints kept in the order they were added, stored in int arrays rather than
+ * as boxed entries. Small sets are searched from start to end. Once a set holds more than
+ * LINEAR_LIMIT values, a hash table of positions is added so that finding a value takes constant
+ * time however large the set grows.
+ * <p>
+ * A removed value leaves an empty slot so the others keep their order. The slots are closed up
+ * once more of them are empty than full.
+ *
+ * @author Team 70
+ *
+ */
+public class IntSet {
+  // Sets this small are searched without a hash table
+  private static final int LINEAR_LIMIT = 16;
+  // Marks the slot of a removed value
+  private static final int REMOVED = -1;
+  private static final int[] NO_VALUES = new int[0];
+
+  // Fields
+  // values in the order they were added, up to used, with REMOVED in the slots of removed values
+  private int[] values = NO_VALUES;
+  private int used = 0;
+  private int size = 0;
+  // Open addressing table of positions in values plus one, with 0 for an empty bucket, or null
+  // while the set is small
+  private int[] table = null;
+
+  /**
+   * Get the number of values
+   *
+   * @return the size of the set
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Check if the set is empty
+   *
+   * @return true if the set has no values
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Check if a value is in the set
+   *
+   * @param value the value
+   * @return true if the set has the value
+   */
+  public boolean contains(int value) {
+    return value >= 0 && positionOf(value) >= 0;
+  }
+
+  /**
+   * Adds a value to the end of the set
+   *
+   * @param value a non-negative value
+   * @return true if the value was not already in the set
+   */
+  public boolean add(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("IntSet only holds non-negative values");
+    }
+    if (positionOf(value) >= 0) {
+      return false;
+    }
+
+    if (used == values.length) {
+      if (used - size > size) {
+        closeGaps();
+      } else {
+        values = Arrays.copyOf(values, Math.max(4, values.length + (values.length >> 1)));
+      }
+    }
+    values[used] = value;
+    used++;
+    size++;
+
+    // Add the position to the table, making the table larger first if it would be over half full
+    if (table == null) {
+      if (used > LINEAR_LIMIT) {
+        buildTable();
+      }
+    } else if (used * 2 > table.length) {
+      buildTable();
+    } else {
+      insertPosition(used - 1);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a value, keeping the order of the others
+   *
+   * @param value the value
+   * @return true if the value was in the set
+   */
+  public boolean remove(int value) {
+    if (value < 0) {
+      return false;
+    }
+
+    int position = positionOf(value);
+    if (position < 0) {
+      return false;
+    }
+
+    if (table != null) {
+      deletePosition(value);
+    }
+    values[position] = REMOVED;
+    size--;
+
+    if (size == 0) {
+      clear();
+    } else if (used - size > size && used > LINEAR_LIMIT) {
+      closeGaps();
+    }
+    return true;
+  }
+
+  /**
+   * Removes every value and frees the arrays
+   */
+  public void clear() {
+    values = NO_VALUES;
+    used = 0;
+    size = 0;
+    table = null;
+  }
+
+  /**
+   * Copies the values
+   *
+   * @return the values in the order they were added
+   */
+  public int[] toArray() {
+    int[] array = new int[size];
+    int count = 0;
+    for (int i = 0; i < used; i++) {
+      if (values[i] != REMOVED) {
+        array[count++] = values[i];
+      }
+    }
+    return array;
+  }
+
+  /**
+   * Iterates over the values in the order they were added
+   *
+   * @return the iterator
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int next = skipRemoved(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < used;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next >= used) {
+          throw new NoSuchElementException();
+        }
+        int value = values[next];
+        next = skipRemoved(next + 1);
+        return value;
+      }
+    };
+  }
+
+  /**
+   * Estimates the memory the set uses, assuming 12 byte object headers and 4 byte references
+   *
+   * @return estimated size in bytes
+   */
+  public long estimateBytes() {
+    long bytes = MemoryFootprint.objectBytes(12 + 4 + 4 + 4 + 4);
+    if (values != NO_VALUES) {
+      bytes += MemoryFootprint.intArrayBytes(values.length);
+    }
+    if (table != null) {
+      bytes += MemoryFootprint.intArrayBytes(table.length);
+    }
+    return bytes;
+  }
+
+  /**
+   * Finds the next slot from a position that holds a value
+   *
+   * @param position the position to start from
+   * @return the position of the next value, or used if there is none
+   */
+  private int skipRemoved(int position) {
+    while (position < used && values[position] == REMOVED) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Finds the position of a value
+   *
+   * @param value the value
+   * @return its position in values, or -1 if it is not in the set
+   */
+  private int positionOf(int value) {
+    if (table == null) {
+      for (int i = 0; i < used; i++) {
+        if (values[i] == value) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    int mask = table.length - 1;
+    for (int bucket = hash(value) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      if (values[table[bucket] - 1] == value) {
+        return table[bucket] - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Moves every value to the front of the array, in order, and rebuilds the table
+   */
+  private void closeGaps() {
+    int count = 0;
+    for (int i = 0; i < used; i++) {
+      if (values[i] != REMOVED) {
+        values[count++] = values[i];
+      }
+    }
+    Arrays.fill(values, count, used, REMOVED);
+    used = count;
+
+    if (used > LINEAR_LIMIT) {
+      buildTable();
+    } else {
+      table = null;
+    }
+  }
+
+  /**
+   * Creates a table with room for every slot in values and adds the position of every value
+   */
+  private void buildTable() {
+    int capacity = Integer.highestOneBit(Math.max(values.length, LINEAR_LIMIT) * 2 - 1) << 1;
+    table = new int[capacity];
+    for (int i = 0; i < used; i++) {
+      if (values[i] != REMOVED) {
+        insertPosition(i);
+      }
+    }
+  }
+
+  /**
+   * Adds the position of a value to the table
+   *
+   * @param position the position in values
+   */
+  private void insertPosition(int position) {
+    int mask = table.length - 1;
+    int bucket = hash(values[position]) & mask;
+    while (table[bucket] != 0) {
+      bucket = (bucket + 1) & mask;
+    }
+    table[bucket] = position + 1;
+  }
+
+  /**
+   * Removes a value's position from the table, moving later entries of the same run back so
+   * that no search stops early at the emptied bucket
+   *
+   * @param value a value in the set, still in values
+   */
+  private void deletePosition(int value) {
+    int mask = table.length - 1;
+    int bucket = hash(value) & mask;
+    while (values[table[bucket] - 1] != value) {
+      bucket = (bucket + 1) & mask;
+    }
+
+    int next = bucket;
+    while (true) {
+      next = (next + 1) & mask;
+      if (table[next] == 0) {
+        break;
+      }
+      // An entry can fill the gap unless its home bucket lies after the gap and up to itself
+      int home = hash(values[table[next] - 1]) & mask;
+      boolean homeBetween = bucket <= next ? bucket < home && home <= next
+          : bucket < home || home <= next;
+      if (!homeBetween) {
+        table[bucket] = table[next];
+        bucket = next;
+      }
+    }
+    table[bucket] = 0;
+  }
+
+  /**
+   * Spreads the bits of a value so that ids close together land in different buckets
+   *
+   * @param value the value
+   * @return the hash
+   */
+  private static int hash(int value) {
+    int hash = value * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,250 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more lines of text than fit in memory. Lines are kept in memory until there are
+ * runSize of them, then sorted and written to a temporary file as a run. Reading the lines back
+ * merges the runs, at most MERGE_WIDTH at a time, so only runSize lines plus one line for each of
+ * MERGE_WIDTH runs are ever in memory. Lines are
+ * compared as Strings, so records made of fields separated by tabs sort by their first field,
+ * then their second and so on, as long as numbers have a fixed number of digits.
+ * <p>
+ * Closing the sorter deletes its temporary files.
+ *
+ * @author Team 70
+ *
+ */
+class LineSorter implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Most runs merged at once, so the open files and their buffers stay few however many runs
+  // there are
+  private static final int MERGE_WIDTH = 64;
+
+  // Fields
+  private int runSize;
+  // lines kept in memory, up to count, in an array that grows up to runSize
+  private String[] lines = new String[16];
+  private int count = 0;
+  private List<Path> runs = new ArrayList<Path>();
+  private boolean sorted = false;
+
+  /**
+   * Initialize values
+   *
+   * @param runSize most lines kept in memory
+   */
+  LineSorter(int runSize) {
+    this.runSize = runSize;
+  }
+
+  /**
+   * Adds a line
+   *
+   * @param line the line, without a line separator
+   * @throws IOException if a run cannot be written
+   */
+  void add(String line) throws IOException {
+    if (sorted) {
+      throw new IllegalStateException("Lines cannot be added once they have been read");
+    }
+    if (count == lines.length) {
+      if (lines.length < runSize) {
+        lines = Arrays.copyOf(lines, (int) Math.min(runSize, 2L * lines.length));
+      } else {
+        writeRun();
+      }
+    }
+    lines[count++] = line;
+  }
+
+  /**
+   * Starts reading the lines in order. The lines can be read as many times as needed.
+   *
+   * @return a reader of the sorted lines
+   * @throws IOException if the runs cannot be written or read
+   */
+  Reader read() throws IOException {
+    if (!sorted) {
+      // Lines that fit in memory never go to a file
+      if (!runs.isEmpty() && count > 0) {
+        writeRun();
+      } else {
+        Arrays.sort(lines, 0, count);
+      }
+      sorted = true;
+
+      // Merge the first runs into one until few enough are left to merge at once
+      while (runs.size() > MERGE_WIDTH) {
+        List<Path> group = new ArrayList<Path>(runs.subList(0, MERGE_WIDTH));
+        runs.subList(0, MERGE_WIDTH).clear();
+        Path merged = Files.createTempFile("sort", ".run");
+        runs.add(merged);
+        try (MergeReader reader = new MergeReader(group);
+            BufferedWriter writer = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+          for (String line = reader.next(); line != null; line = reader.next()) {
+            writer.write(line);
+            writer.newLine();
+          }
+        } finally {
+          for (Path run : group) {
+            Files.deleteIfExists(run);
+          }
+        }
+      }
+    }
+
+    if (runs.isEmpty()) {
+      return new Reader() {
+        private int next = 0;
+
+        @Override
+        public String next() {
+          return next < count ? lines[next++] : null;
+        }
+
+        @Override
+        public void close() {}
+      };
+    }
+    return new MergeReader(runs);
+  }
+
+  /**
+   * Deletes the temporary files
+   */
+  @Override
+  public void close() {
+    for (Path run : runs) {
+      try {
+        Files.deleteIfExists(run);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    runs.clear();
+    lines = null;
+  }
+
+  /**
+   * Sorts the lines in memory and writes them to a new run
+   *
+   * @throws IOException if the run cannot be written
+   */
+  private void writeRun() throws IOException {
+    Arrays.sort(lines, 0, count);
+    Path run = Files.createTempFile("sort", ".run");
+    runs.add(run);
+    try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < count; i++) {
+        writer.write(lines[i]);
+        writer.newLine();
+        lines[i] = null;
+      }
+    }
+    count = 0;
+  }
+
+  /**
+   * Reads sorted lines one at a time
+   */
+  interface Reader extends Closeable {
+    /**
+     * Get the next line
+     *
+     * @return the line, or null once every line has been read
+     * @throws IOException if a run cannot be read
+     */
+    String next() throws IOException;
+  }
+
+  /**
+   * Merges sorted runs, keeping the current line of each run in a heap
+   */
+  private static class MergeReader implements Reader {
+    private PriorityQueue<Run> heap =
+        new PriorityQueue<Run>((run1, run2) -> run1.line.compareTo(run2.line));
+
+    /**
+     * Opens every run
+     *
+     * @param paths the runs
+     * @throws IOException if a run cannot be read
+     */
+    private MergeReader(List<Path> paths) throws IOException {
+      try {
+        for (Path path : paths) {
+          Run run = new Run(path);
+          if (run.line != null) {
+            heap.add(run);
+          } else {
+            run.reader.close();
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public String next() throws IOException {
+      Run run = heap.poll();
+      if (run == null) {
+        return null;
+      }
+      String line = run.line;
+      run.line = run.reader.readLine();
+      if (run.line != null) {
+        heap.add(run);
+      } else {
+        run.reader.close();
+      }
+      return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Run run : heap) {
+        run.reader.close();
+      }
+      heap.clear();
+    }
+  }
+
+  /**
+   * One run being merged and its current line
+   */
+  private static class Run {
+    private BufferedReader reader;
+    private String line;
+
+    /**
+     * Opens a run and reads its first line
+     *
+     * @param path the run
+     * @throws IOException if the run cannot be read
+     */
+    private Run(Path path) throws IOException {
+      reader = new BufferedReader(
+          Files.newBufferedReader(path, StandardCharsets.UTF_8), BUFFER_SIZE);
+      try {
+        line = reader.readLine();
+      } catch (IOException e) {
+        reader.close();
+        throw e;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Tests the network at a realistic size without the user interface: generates a log with
+ * GraphGenerator, imports it through SocialNetwork and FileManager the same way the Load button
+ * does, then times queries on random users. It reports how fast the log was imported, how much heap
+ * the network takes up, and the latency of each kind of query at several percentiles. For example:
+ *
+ * java -Xmx4g application.LoadTest scalefree 1000000 10 500
+ *
+ * The import rewrites log.txt in the working directory, so run it from a scratch directory.
+ *
+ * @author Team 70
+ *
+ */
+public class LoadTest {
+  private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 1};
+  // Share of friendships removed again later in the generated log
+  private static final double REMOVED_SHARE = 0.05;
+
+  /**
+   * Runs the load test
+   *
+   * @param args shape (random, scalefree or smallworld), number of users, average number of
+   *             friends, number of queries of each kind, and optionally "compact" to store users
+   *             in a compact graph
+   */
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : GraphGenerator.SCALE_FREE;
+    int users = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+    int averageFriends = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    int queries = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+    boolean compact = args.length > 4 && args[4].equals("compact");
+    if (queries < 1) {
+      System.out.println("usage: LoadTest [random|scalefree|smallworld] [users] [averageFriends] "
+          + "[queries, at least 1] [compact]");
+      return;
+    }
+
+    try {
+      run(shape, users, averageFriends, queries, compact, new Random(70));
+    } catch (IllegalArgumentException | IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+
+  /**
+   * Generates and imports a network, then times queries on it
+   *
+   * @param shape          GraphGenerator.RANDOM, SCALE_FREE or SMALL_WORLD
+   * @param users          number of users
+   * @param averageFriends average number of friends per user
+   * @param queries        number of queries of each kind, at least 1
+   * @param compact        true to store users in a compact graph
+   * @param rand           source of randomness
+   * @throws IOException if the generated log cannot be written
+   * @throws IllegalArgumentException if queries is below 1 or the shape is not known
+   */
+  public static void run(String shape, int users, int averageFriends, int queries,
+      boolean compact, Random rand) throws IOException {
+    if (queries < 1) {
+      throw new IllegalArgumentException("At least one query of each kind is needed");
+    }
+    File log = File.createTempFile("loadtest", ".txt");
+    log.deleteOnExit();
+    try {
+      long start = System.nanoTime();
+      String[][] friendships = GraphGenerator.generate(shape, users, averageFriends, rand);
+      int lines = GraphGenerator.writeLog(log.getPath(), friendships, REMOVED_SHARE, rand);
+      friendships = null;
+      System.out.printf("%s network, %,d users, %d friends on average: generated %,d commands "
+          + "(%,d bytes) in %.1f s%n", shape, users, averageFriends, lines, log.length(),
+          (System.nanoTime() - start) / 1e9);
+
+      long before = usedHeap();
+      SocialNetwork socialNetwork = new SocialNetwork(compact);
+      start = System.nanoTime();
+      ImportResult result = socialNetwork.importFile(log.getPath(), null);
+      long elapsed = System.nanoTime() - start;
+      long heap = usedHeap() - before;
+      System.out.printf("  import: %s, %,d lines in %.1f s, %,.0f lines/s%n",
+          result.isSuccess() ? "ok" : "failed", result.getLinesRead(), elapsed / 1e9,
+          result.getLinesRead() / (elapsed / 1e9));
+      System.out.printf("  heap: %,d bytes measured, %,d bytes per user%n  estimated %s%n", heap,
+          heap / Math.max(1, socialNetwork.getUserCount()), socialNetwork.getFootprint());
+
+      timeQueries(socialNetwork, queries, rand);
+      socialNetwork.close();
+    } finally {
+      log.delete();
+    }
+  }
+
+  /**
+   * Times each kind of query on random users, after a warm up, and prints the percentiles
+   *
+   * @param socialNetwork the network
+   * @param queries       number of queries of each kind
+   * @param rand          source of randomness
+   */
+  private static void timeQueries(SocialNetwork socialNetwork, int queries, Random rand) {
+    List<String> users = socialNetwork.getAllUsers();
+
+    time("friends", queries, users, rand,
+        (user1, user2) -> socialNetwork.displayNetwork(user1));
+    time("mutual friends", queries, users, rand,
+        (user1, user2) -> socialNetwork.getMutualFriends(user1, user2));
+    time("shortest path", queries, users, rand,
+        (user1, user2) -> socialNetwork.getShortestPath(user1, user2));
+    time("2 hops", queries, users, rand,
+        (user1, user2) -> socialNetwork.getNeighborhood(user1, 2));
+    time("autocomplete", queries, users, rand,
+        (user1, user2) -> socialNetwork.completeUser(user1.substring(0, user1.length() - 1), 10));
+  }
+
+  /**
+   * Times one kind of query and prints the percentiles of its latency
+   *
+   * @param label   name of the query in the output
+   * @param queries number of queries
+   * @param users   every user in the network
+   * @param rand    source of randomness
+   * @param query   runs the query on two random users
+   */
+  private static void time(String label, int queries, List<String> users, Random rand,
+      BiConsumer<String, String> query) {
+    // Warm up on a tenth as many queries so the timings are of compiled code. The users are
+    // picked before timing starts.
+    String[] picked = new String[2 * (queries + queries / 10)];
+    for (int i = 0; i < picked.length; i++) {
+      picked[i] = users.get(rand.nextInt(users.size()));
+    }
+    for (int i = queries; i < queries + queries / 10; i++) {
+      query.accept(picked[2 * i], picked[2 * i + 1]);
+    }
+
+    long[] latencies = new long[queries];
+    for (int i = 0; i < queries; i++) {
+      long start = System.nanoTime();
+      query.accept(picked[2 * i], picked[2 * i + 1]);
+      latencies[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(latencies);
+
+    StringBuilder line = new StringBuilder(String.format("  %-15s", label));
+    for (double percentile : PERCENTILES) {
+      int index = Math.max(0, (int) Math.ceil(percentile * queries) - 1);
+      line.append(String.format(" %s %,10.1f us", percentile == 1 ? "max"
+          : String.format("p%-2d", Math.round(percentile * 100)), latencies[index] / 1e3));
+    }
+    System.out.println(line);
+  }
+
+  /**
+   * Get the heap in use once garbage has been collected
+   *
+   * @return bytes in use
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -3,6 +3,7 @@ package application;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -11,17 +12,21 @@ import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -37,18 +42,70 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 	private SocialNetwork socialNetwork = new SocialNetwork();
+	// runs imports and queries off the JavaFX thread
+	private SocialNetworkService service = new SocialNetworkService(socialNetwork, Platform::runLater);
 	private User centralUser = null;
+	// number of group counts asked for, so only the latest one is shown
+	private int groupsRequests = 0;
+	// number of friend suggestion lists asked for, so only the latest one is shown
+	private int suggestionsRequests = 0;
 
 	private static final int WINDOW_WIDTH = 800; // width of window
 	private static final int WINDOW_HEIGHT = 800; // height of window
 	// name of application
 	private static final String APP_TITLE = "Social Network";
+	// number of people suggested to the central user
+	private static final int SUGGESTIONS = 3;
+	// number of names suggested while typing in the search box
+	private static final int SEARCH_SUGGESTIONS = 10;
+	// number of users listed at a time
+	private static final int USERS_PAGE_SIZE = 500;
 
 	// list of users
 	private final ObservableList<String> USERS = FXCollections.observableArrayList();
 	// list of friends
 	private final ObservableList<String> FRIENDS = FXCollections.observableArrayList();
 
+	// which page of users is listed, and the text their names must contain
+	private int usersPageIndex = 0;
+	private String usersFilter = "";
+	private boolean hasNextUsersPage = false;
+	// the user whose friends are listed, so the list is only rebuilt when they change
+	private String friendsOwner = null;
+	// updates the lists as the network changes
+	private final NetworkListener networkListener = new NetworkListener() {
+		@Override
+		public void userAdded(String user) {
+			runOnFxThread(() -> addToUserList(user));
+		}
+
+		@Override
+		public void userRemoved(String user) {
+			runOnFxThread(() -> removeFromLists(user));
+		}
+
+		@Override
+		public void friendshipAdded(String user1, String user2) {
+			runOnFxThread(() -> updateFriendship(user1, user2, true));
+		}
+
+		@Override
+		public void friendshipRemoved(String user1, String user2) {
+			runOnFxThread(() -> updateFriendship(user1, user2, false));
+		}
+
+		@Override
+		public void networkReset() {
+			runOnFxThread(() -> {
+				friendsOwner = null;
+				updateUserList();
+				if (centralUser != null) {
+					updateFriendList();
+				}
+			});
+		}
+	};
+
 	private Stage PRIMARY_STAGE = null; // primary stage for the program
 	private Scene startScene;
 	private Scene userScene;
@@ -57,9 +114,12 @@ public class Main extends Application {
 	ImageView image;
 	Label name;
 	Label description;
+	Label suggestions;
 	ComboBox<String> removeFriendBox;
 	ListView<String> friendList;
 	ListView<String> userList;
+	Button previousUsers;
+	Button nextUsers;
 	Label numFriends;
 	Label numUsers;
 	Label numGroups;
@@ -73,6 +133,13 @@ public class Main extends Application {
 	private BorderPane startPage; // start page
 	private HBox userPage; // current user page
 
+	/**
+	 * Keeps the lists up to date as the network changes
+	 */
+	public Main() {
+		socialNetwork.addNetworkListener(networkListener);
+	}
+
 	/**
 	 * Runs the program
 	 *
@@ -118,6 +185,15 @@ public class Main extends Application {
 		primaryStage.setMinHeight(WINDOW_HEIGHT);
 	}
 
+	/**
+	 * Writes any buffered log entries before the program exits
+	 */
+	@Override
+	public void stop() {
+		service.shutdown();
+		socialNetwork.close();
+	}
+
 	/**
 	 * Sets up log in page
 	 */
@@ -197,7 +273,7 @@ public class Main extends Application {
 				importAlert.show();
 
 			} else {
-				if (socialNetwork.importFile(textFieldImport.getText().trim())) {
+				importFileAsync(textFieldImport.getText().trim(), () -> {
 					String cUser = socialNetwork.getCentralUser();
 
 					if (cUser == null) {
@@ -213,12 +289,7 @@ public class Main extends Application {
 						updateCentralUser();
 						PRIMARY_STAGE.setScene(userScene);
 					}
-
-				} else {
-					Alert importAlert = new Alert(AlertType.ERROR,
-							"Error importing " + textFieldImport.getText().trim());
-					importAlert.show();
-				}
+				});
 
 				textFieldImport.clear();
 			}
@@ -274,7 +345,7 @@ public class Main extends Application {
 		HBox hBoxInfo = new HBox(8);
 
 		// Images
-		ImageView imageViewUser = new ImageView(new Image("file:default1.jpg"));
+		ImageView imageViewUser = new ImageView(AvatarCache.getShared().getDefault(0));
 		imageViewUser.setPreserveRatio(true);
 		imageViewUser.setFitHeight(100);
 
@@ -283,15 +354,17 @@ public class Main extends Application {
 		// Labels
 		Label labelName = new Label("No name");
 		Label labelDescription = new Label("No Description");
+		Label labelSuggestions = new Label("");
 
 		name = labelName;
 		description = labelDescription;
+		suggestions = labelSuggestions;
 
 		labelName.setStyle("-fx-font-size: 18;");
 
 		// Layouts
 		VBox vBoxInfoDescription = new VBox(8);
-		vBoxInfoDescription.getChildren().addAll(labelName, labelDescription);
+		vBoxInfoDescription.getChildren().addAll(labelName, labelDescription, labelSuggestions);
 
 		hBoxInfo.getChildren().addAll(imageViewUser, vBoxInfoDescription);
 
@@ -433,9 +506,13 @@ public class Main extends Application {
 				// Checks if the user exits
 				User name = socialNetwork.getUser(textFieldSearchUser.getText().trim());
 				if (name == null) {
-					// If the user does not exit, then print that the user is not found
-					Alert exportAlert = new Alert(AlertType.ERROR,
-							textFieldSearchUser.getText().trim() + " does not exist");
+					// If the user does not exit, then print that the user is not found, along with
+					// any users whose names are one typing mistake away
+					List<String> similarUsers = socialNetwork.findSimilarUsers(textFieldSearchUser.getText().trim(),
+							SUGGESTIONS);
+					Alert exportAlert = new Alert(AlertType.ERROR, textFieldSearchUser.getText().trim()
+							+ " does not exist" + (similarUsers.isEmpty() ? "" : "\nDid you mean "
+									+ String.join(", ", similarUsers) + "?"));
 					exportAlert.show();
 				} else {
 					// If the user does exist in the social network, then update
@@ -455,10 +532,57 @@ public class Main extends Application {
 		buttonSearchUser.setOnAction(searchUserHandler);
 		textFieldSearchUser.setOnAction(searchUserHandler);
 
+		// Suggest the users whose names start with what has been typed, or failing that the ones
+		// a typing mistake away, and search for a suggestion when it is picked
+		ContextMenu searchSuggestions = new ContextMenu();
+		textFieldSearchUser.textProperty().addListener((observable, oldText, newText) -> {
+			String typed = newText.trim();
+			if (typed.isEmpty()) {
+				searchSuggestions.getItems().clear();
+				searchSuggestions.hide();
+				return;
+			}
+
+			service.completeUser(typed, SEARCH_SUGGESTIONS).thenAccept(matches -> {
+				// Skip the matches if more has been typed since
+				if (typed.equals(textFieldSearchUser.getText().trim())) {
+					showSearchSuggestions(searchSuggestions, textFieldSearchUser, buttonSearchUser, typed,
+							matches);
+				}
+			});
+		});
+
 		vBoxUserFunction.getChildren().addAll(vBoxAddUser, vBoxRemoveUser, vBoxSearchUser);
 		return vBoxUserFunction;
 	}
 
+	/**
+	 * Helper method to fill the search suggestions with the users matching what was typed
+	 * 
+	 * @param searchSuggestions the suggestions menu
+	 * @param textFieldSearchUser the search field
+	 * @param buttonSearchUser the search button, fired when a suggestion is picked
+	 * @param typed what was typed
+	 * @param matches the matching users
+	 */
+	private void showSearchSuggestions(ContextMenu searchSuggestions, TextField textFieldSearchUser,
+			Button buttonSearchUser, String typed, List<String> matches) {
+		searchSuggestions.getItems().clear();
+		for (String match : matches) {
+			MenuItem item = new MenuItem(match);
+			item.setOnAction(pickEvent -> {
+				textFieldSearchUser.setText(match);
+				buttonSearchUser.fire();
+			});
+			searchSuggestions.getItems().add(item);
+		}
+		if (matches.isEmpty() || matches.size() == 1 && matches.get(0).equals(typed)) {
+			searchSuggestions.hide();
+		} else if (!searchSuggestions.isShowing()) {
+			searchSuggestions.show(textFieldSearchUser, Side.BOTTOM, 0, 0);
+		}
+	}
+
 	/**
 	 * Sets up friend related functionality
 	 */
@@ -555,10 +679,15 @@ public class Main extends Application {
 		// Mutual Friends Function
 		EventHandler<ActionEvent> mutualFriendsHandler = mutualFriendsEvent -> {
 			if (!textFieldMutualUser1.getText().trim().isEmpty() && !textFieldMutualUser2.getText().trim().isEmpty()) {
-				List<String> mutualFriendsList = socialNetwork.getMutualFriends(textFieldMutualUser1.getText().trim(),
-						textFieldMutualUser2.getText().trim());
-
-				setUpListDialog(mutualFriendsList, "Mutual Friends");
+				service.getMutualFriends(textFieldMutualUser1.getText().trim(), textFieldMutualUser2.getText().trim())
+						.whenComplete((mutualFriendsList, error) -> {
+							if (error != null) {
+								Alert mutualFriendsAlert = new Alert(AlertType.ERROR, "Error finding mutual friends");
+								mutualFriendsAlert.show();
+							} else {
+								setUpListDialog(mutualFriendsList, "Mutual Friends");
+							}
+						});
 			}
 		};
 
@@ -578,10 +707,15 @@ public class Main extends Application {
 									+ textFieldShortestPathUser2.getText().trim());
 					importAlert.show();
 				} else {
-					List<String> shortestPathList = socialNetwork.getShortestPath(
-							textFieldShortestPathUser1.getText().trim(), textFieldShortestPathUser2.getText().trim());
-
-					setUpListDialog(shortestPathList, "Shortest Friendship Path");
+					service.getShortestPath(textFieldShortestPathUser1.getText().trim(),
+							textFieldShortestPathUser2.getText().trim()).whenComplete((shortestPathList, error) -> {
+								if (error != null) {
+									Alert shortestPathAlert = new Alert(AlertType.ERROR, "Error finding shortest path");
+									shortestPathAlert.show();
+								} else {
+									setUpListDialog(shortestPathList, "Shortest Friendship Path");
+								}
+							});
 				}
 			}
 		};
@@ -615,6 +749,9 @@ public class Main extends Application {
 		Button buttonImport = new Button("IMP");
 		Button buttonExport = new Button("EXP");
 
+		// Export only the network as it is now instead of every command so far
+		CheckBox checkBoxCurrentState = new CheckBox("Current state only");
+
 		// Layouts
 		HBox hBoxImportFile = new HBox(4);
 		hBoxImportFile.getChildren().addAll(textFieldImportFile, buttonImport);
@@ -631,25 +768,20 @@ public class Main extends Application {
 		vBoxImportFile.getChildren().addAll(labelImportFile, hBoxImportFile);
 
 		VBox vBoxExportFile = new VBox(8);
-		vBoxExportFile.getChildren().addAll(labelExportFile, hBoxExportFile);
+		vBoxExportFile.getChildren().addAll(labelExportFile, hBoxExportFile, checkBoxCurrentState);
 
 		// Functionality
 		EventHandler<ActionEvent> importHandler = importEvent -> {
 			if (!textFieldImportFile.getText().trim().isEmpty()) {
+				String fileName = textFieldImportFile.getText().trim();
 
-				if (socialNetwork.importFile(textFieldImportFile.getText().trim())) {
+				importFileAsync(fileName, () -> {
 					centralUser = socialNetwork.getUser(socialNetwork.getCentralUser());
 					updateCentralUser();
 
-					Alert importAlert = new Alert(AlertType.INFORMATION,
-							"Succesfully imported " + textFieldExportFile.getText().trim());
+					Alert importAlert = new Alert(AlertType.INFORMATION, "Succesfully imported " + fileName);
 					importAlert.show();
-
-				} else {
-					Alert importAlert = new Alert(AlertType.ERROR,
-							"Error importing " + textFieldImportFile.getText().trim());
-					importAlert.show();
-				}
+				});
 
 			} else {
 				Alert importAlert = new Alert(AlertType.ERROR, "Enter file name");
@@ -665,7 +797,7 @@ public class Main extends Application {
 		EventHandler<ActionEvent> exportHandler = exportEvent -> {
 			if (!textFieldExportFile.getText().trim().isEmpty()) {
 
-				if (socialNetwork.exportFile(textFieldExportFile.getText().trim())) {
+				if (socialNetwork.exportFile(textFieldExportFile.getText().trim(), checkBoxCurrentState.isSelected())) {
 					centralUser = socialNetwork.getUser(socialNetwork.getCentralUser());
 					updateCentralUser();
 					Alert exportAlert = new Alert(AlertType.INFORMATION,
@@ -842,13 +974,45 @@ public class Main extends Application {
 		numUsers = labelNumUsers;
 		numGroups = labelNumGroups;
 
+		// Filter and pages of users
+		TextField textFieldFilterUsers = new TextField();
+		textFieldFilterUsers.setPromptText("Filter Users");
+
+		Button buttonPreviousUsers = new Button("<");
+		Button buttonNextUsers = new Button(">");
+		buttonPreviousUsers.setDisable(true);
+		buttonNextUsers.setDisable(true);
+
+		previousUsers = buttonPreviousUsers;
+		nextUsers = buttonNextUsers;
+
+		HBox hBoxUserPages = new HBox(4);
+		hBoxUserPages.getChildren().addAll(textFieldFilterUsers, buttonPreviousUsers, buttonNextUsers);
+		HBox.setHgrow(textFieldFilterUsers, Priority.ALWAYS);
+
 		// Adjust heights
 		VBox.setVgrow(listViewFriends, Priority.ALWAYS);
 		VBox.setVgrow(listViewUsers, Priority.ALWAYS);
 
 		// Layouts
 		VBox vBoxUserLabel = new VBox(4);
-		vBoxUserLabel.getChildren().addAll(labelNumUsers, labelNumGroups);
+		vBoxUserLabel.getChildren().addAll(labelNumUsers, labelNumGroups, hBoxUserPages);
+
+		textFieldFilterUsers.textProperty().addListener((observable, oldFilter, newFilter) -> {
+			usersFilter = newFilter.trim();
+			usersPageIndex = 0;
+			updateUserList();
+		});
+
+		buttonPreviousUsers.setOnAction(previousEvent -> {
+			usersPageIndex--;
+			updateUserList();
+		});
+
+		buttonNextUsers.setOnAction(nextEvent -> {
+			usersPageIndex++;
+			updateUserList();
+		});
 
 		// Functionality
 		listViewFriends.setOnMouseClicked(itemClickEvent -> {
@@ -882,7 +1046,7 @@ public class Main extends Application {
 	 */
 	private void updateCentralUser() {
 		if (centralUser != null) {
-			image.setImage(centralUser.getImage());
+			image.setImage(AvatarCache.getShared().getAvatar(centralUser));
 			name.setText(centralUser.getName());
 			description.setText(centralUser.getDescription());
 
@@ -895,9 +1059,88 @@ public class Main extends Application {
 			return;
 		}
 
-		updateUserList();
 		updateFriendList();
-		numGroups.setText("Groups: " + socialNetwork.getGroups());
+		updateSuggestions();
+		updateGroups();
+	}
+
+	/**
+	 * Helper method to update the number of groups. The groups are counted on a worker thread,
+	 * which can take a while after users or friendships have been removed.
+	 */
+	private void updateGroups() {
+		int request = ++groupsRequests;
+
+		service.getGroups().thenAccept(groups -> {
+			// Skip the count if a newer one has been asked for since
+			if (request == groupsRequests) {
+				numGroups.setText("Groups: " + groups);
+			}
+		});
+	}
+
+	/**
+	 * Helper method to import a file on a worker thread. A dialog shows how much of the file has
+	 * been read and closing it cancels the import, keeping the lines read so far.
+	 *
+	 * @param fileName   file to import
+	 * @param onImported run once the whole file has been imported
+	 */
+	private void importFileAsync(String fileName, Runnable onImported) {
+		ProgressBar progressBar = new ProgressBar(0);
+		progressBar.setMaxWidth(Double.MAX_VALUE);
+
+		Alert progressAlert = new Alert(AlertType.NONE, "", ButtonType.CANCEL);
+		progressAlert.setHeaderText("Importing " + fileName);
+		progressAlert.getDialogPane().setContent(progressBar);
+
+		CompletableFuture<ImportResult> importTask = service.importFile(fileName, progressBar::setProgress);
+		progressAlert.setOnHidden(hiddenEvent -> importTask.cancel(false));
+		progressAlert.show();
+
+		importTask.whenComplete((result, error) -> {
+			progressAlert.close();
+
+			if (importTask.isCancelled()) {
+				Alert cancelAlert = new Alert(AlertType.INFORMATION,
+						"Import of " + fileName + " cancelled. Lines read before cancelling were kept.");
+				cancelAlert.show();
+				if (centralUser != null) {
+					updateCentralUser();
+				}
+
+			} else if (error != null || !result.isSuccess()) {
+				Alert importAlert = new Alert(AlertType.ERROR, "Error importing " + fileName);
+				importAlert.show();
+
+			} else {
+				if (result.getErrorCount() > 0) {
+					Alert errorLinesAlert = new Alert(AlertType.ERROR, SocialNetwork.describeErrors(result));
+					errorLinesAlert.show();
+				}
+				onImported.run();
+			}
+		});
+	}
+
+	/**
+	 * Helper method to update the people the central user may know. The suggestions are found on
+	 * a worker thread.
+	 */
+	private void updateSuggestions() {
+		int request = ++suggestionsRequests;
+
+		service.getFriendSuggestions(SUGGESTIONS).thenAccept(suggestionList -> {
+			// Skip the suggestions if newer ones have been asked for since
+			if (request != suggestionsRequests) {
+				return;
+			}
+			if (suggestionList.isEmpty()) {
+				suggestions.setText("");
+			} else {
+				suggestions.setText("People you may know: " + String.join(", ", suggestionList));
+			}
+		});
 	}
 
 	/**
@@ -905,43 +1148,147 @@ public class Main extends Application {
 	 */
 	private void clearNetwork() {
 		centralUser = null;
+		friendsOwner = null;
+		usersPageIndex = 0;
+		usersFilter = "";
+		groupsRequests++;
+		suggestionsRequests++;
+		service.shutdown();
+		socialNetwork.removeNetworkListener(networkListener);
+		socialNetwork.close();
 		socialNetwork = new SocialNetwork();
+		socialNetwork.addNetworkListener(networkListener);
+		service = new SocialNetworkService(socialNetwork, Platform::runLater);
 
-		USERS.clear();
-		userList.setItems(USERS);
-		numUsers.setText("Users: " + USERS.size());
+		updateUserList();
 
 		FRIENDS.clear();
 		friendList.setItems(FRIENDS);
 		numFriends.setText("Friends: " + FRIENDS.size());
 
 		numGroups.setText("Groups: " + 0);
+		suggestions.setText("");
 	}
 
 	/**
-	 * Helper method to update user list
+	 * Helper method to update user list. Only the current page of users matching the filter is
+	 * listed, so this does not depend on how many users there are.
 	 */
 	private void updateUserList() {
-		USERS.clear();
-		USERS.addAll(socialNetwork.getAllUsers());
+		// Ask for one extra user to find out if there is a next page
+		List<String> page = socialNetwork.getUsers(usersPageIndex * USERS_PAGE_SIZE, USERS_PAGE_SIZE + 1,
+				usersFilter);
+
+		// Go back a page if users were removed from the end of the list
+		if (page.isEmpty() && usersPageIndex > 0) {
+			usersPageIndex--;
+			updateUserList();
+			return;
+		}
 
-		userList.setItems(USERS);
-		numUsers.setText("Users: " + USERS.size());
-		numGroups.setText("Groups: " + 0);
+		hasNextUsersPage = page.size() > USERS_PAGE_SIZE;
+		USERS.setAll(page.subList(0, Math.min(page.size(), USERS_PAGE_SIZE)));
+
+		updateUserPageButtons();
 	}
 
 	/**
-	 * Helper method to update friend list
+	 * Helper method to update the user count and the buttons that change page
+	 */
+	private void updateUserPageButtons() {
+		previousUsers.setDisable(usersPageIndex == 0);
+		nextUsers.setDisable(!hasNextUsersPage);
+		numUsers.setText("Users: " + socialNetwork.getUserCount());
+	}
+
+	/**
+	 * Helper method to update friend list when the central user changes
 	 */
 	private void updateFriendList() {
-		FRIENDS.clear();
-		FRIENDS.addAll(socialNetwork.displayNetwork(centralUser.getName()));
+		// Friendships of the same central user are kept up to date by the network listener
+		if (!centralUser.getName().equals(friendsOwner)) {
+			FRIENDS.setAll(socialNetwork.displayNetwork(centralUser.getName()));
+			friendsOwner = centralUser.getName();
+		}
 
-		removeFriendBox.setItems(FRIENDS);
-		friendList.setItems(FRIENDS);
 		numFriends.setText("Friends: " + FRIENDS.size());
 	}
 
+	/**
+	 * Helper method to list a new user if they belong on the current page
+	 *
+	 * @param user the new user
+	 */
+	private void addToUserList(String user) {
+		if (user.toLowerCase().contains(usersFilter.toLowerCase())) {
+			// New users are at the end of the list, which is on this page only if it has room
+			if (USERS.size() < USERS_PAGE_SIZE) {
+				USERS.add(user);
+			} else {
+				hasNextUsersPage = true;
+			}
+		}
+
+		updateUserPageButtons();
+	}
+
+	/**
+	 * Helper method to take a removed user out of the lists
+	 *
+	 * @param user the removed user
+	 */
+	private void removeFromLists(String user) {
+		if (FRIENDS.remove(user)) {
+			numFriends.setText("Friends: " + FRIENDS.size());
+		}
+		if (user.equals(friendsOwner)) {
+			friendsOwner = null;
+		}
+
+		// Removing a user moves the users after them back one place, which changes this page if
+		// the user was on it or before it
+		if (usersPageIndex > 0 || USERS.contains(user)) {
+			updateUserList();
+		} else {
+			updateUserPageButtons();
+		}
+	}
+
+	/**
+	 * Helper method to update the friend list when a friendship of the central user changes
+	 *
+	 * @param user1 the first user
+	 * @param user2 the second user
+	 * @param added true if the users became friends, false if they stopped being friends
+	 */
+	private void updateFriendship(String user1, String user2, boolean added) {
+		String friend = user1.equals(friendsOwner) ? user2 : user2.equals(friendsOwner) ? user1 : null;
+		if (friend == null) {
+			return;
+		}
+
+		if (added) {
+			FRIENDS.add(friend);
+		} else {
+			FRIENDS.remove(friend);
+		}
+		numFriends.setText("Friends: " + FRIENDS.size());
+	}
+
+	/**
+	 * Helper method to run a change to the components on the JavaFX thread, straight away if
+	 * this is that thread
+	 *
+	 * @param update the change
+	 */
+	private void runOnFxThread(Runnable update) {
+		if (Platform.isFxApplicationThread()) {
+			update.run();
+		} else {
+			Platform.runLater(update);
+		}
+	}
+
 	/**
 	 * Sets up a dialog bost that lists items
 	 * 
@@ -0,0 +1,154 @@
+package application;
+
+/**
+ * An estimate of the memory a graph uses, split into the user objects, their names and the index
+ * that finds users by name, their friendships, and the graph's own arrays. Sizes are worked out
+ * from what each structure holds, assuming a 64-bit JVM with compressed references: 12 byte
+ * object headers, 16 byte array headers, 4 byte references, objects rounded up to 8 bytes, and
+ * names made only of Latin-1 characters stored one byte per character.
+ *
+ * @author Team 70
+ *
+ */
+public class MemoryFootprint {
+  // Fields
+  private int users;
+  private int edges;
+  private long userBytes;
+  private long nameBytes;
+  private long friendBytes;
+  private long otherBytes;
+
+  /**
+   * Initialize values
+   *
+   * @param users       number of users
+   * @param edges       number of friendships
+   * @param userBytes   bytes used by the user objects
+   * @param nameBytes   bytes used by names and the index that finds users by name
+   * @param friendBytes bytes used to store friendships
+   * @param otherBytes  bytes used by the graph's own arrays
+   */
+  public MemoryFootprint(int users, int edges, long userBytes, long nameBytes, long friendBytes,
+      long otherBytes) {
+    this.users = users;
+    this.edges = edges;
+    this.userBytes = userBytes;
+    this.nameBytes = nameBytes;
+    this.friendBytes = friendBytes;
+    this.otherBytes = otherBytes;
+  }
+
+  /**
+   * Get the estimated size of the whole graph
+   *
+   * @return bytes
+   */
+  public long getTotalBytes() {
+    return userBytes + nameBytes + friendBytes + otherBytes;
+  }
+
+  /**
+   * Get the estimated size of everything except friendships, per user
+   *
+   * @return bytes per user, or 0 if there are no users
+   */
+  public long getBytesPerUser() {
+    return users == 0 ? 0 : (userBytes + nameBytes + otherBytes) / users;
+  }
+
+  /**
+   * Get the estimated size of the friendships, per friendship
+   *
+   * @return bytes per friendship, or 0 if there are none
+   */
+  public long getBytesPerEdge() {
+    return edges == 0 ? 0 : friendBytes / edges;
+  }
+
+  /**
+   * Describes the estimate
+   *
+   * @return one line per part of the graph, then the totals
+   */
+  @Override
+  public String toString() {
+    return String.format("users %,d, friendships %,d%n", users, edges)
+        + String.format("  user objects   %,14d bytes%n", userBytes)
+        + String.format("  names, index   %,14d bytes%n", nameBytes)
+        + String.format("  friendships    %,14d bytes%n", friendBytes)
+        + String.format("  graph arrays   %,14d bytes%n", otherBytes)
+        + String.format("  total          %,14d bytes, %,d per user, %,d per friendship",
+            getTotalBytes(), getBytesPerUser(), getBytesPerEdge());
+  }
+
+  /**
+   * Get the size of an object with fields taking up some number of bytes
+   *
+   * @param shallowBytes header and fields
+   * @return size rounded up to 8 bytes
+   */
+  public static long objectBytes(long shallowBytes) {
+    return (shallowBytes + 7) & ~7L;
+  }
+
+  /**
+   * Get the size of an int array
+   *
+   * @param length number of elements
+   * @return bytes
+   */
+  public static long intArrayBytes(int length) {
+    return objectBytes(16 + 4L * length);
+  }
+
+  /**
+   * Get the size of a char array
+   *
+   * @param length number of elements
+   * @return bytes
+   */
+  public static long charArrayBytes(int length) {
+    return objectBytes(16 + 2L * length);
+  }
+
+  /**
+   * Get the size of an array of references
+   *
+   * @param length number of elements
+   * @return bytes
+   */
+  public static long referenceArrayBytes(int length) {
+    return objectBytes(16 + 4L * length);
+  }
+
+  /**
+   * Get the size of a String and its characters
+   *
+   * @param string the String
+   * @return bytes
+   */
+  public static long stringBytes(String string) {
+    return objectBytes(24) + objectBytes(16 + string.length());
+  }
+
+  /**
+   * Get the size of a LinkedHashMap, or the LinkedHashSet built on one, with a number of entries.
+   * The table is assumed to have been grown by doubling from 16 buckets as entries were added.
+   *
+   * @param entries number of entries
+   * @return bytes
+   */
+  public static long linkedHashMapBytes(int entries) {
+    long bytes = objectBytes(56) + entries * objectBytes(40);
+    if (entries > 0) {
+      int buckets = 16;
+      while (entries > buckets * 3 / 4) {
+        buckets *= 2;
+      }
+      bytes += referenceArrayBytes(buckets);
+    }
+    return bytes;
+  }
+
+}
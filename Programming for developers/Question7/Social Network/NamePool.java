@@ -0,0 +1,233 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Stores user names for a compact graph. Every name is copied once into a shared array of
+ * characters, and an open addressing table of ids finds a user's id from their name, so no String
+ * or map entry is kept per user. A name is turned back into a String only when it is asked for.
+ * <p>
+ * Removing a name leaves its characters unused until more characters are unused than used, when
+ * the names still in the pool are packed together again.
+ *
+ * @author Team 70
+ *
+ */
+public class NamePool {
+  private static final int NO_ID = -1;
+
+  // Fields
+  // name of id i is chars[starts[i]] up to chars[starts[i] + lengths[i]], and lengths[i] is -1 for
+  // an id without a name
+  private char[] chars = new char[256];
+  private int charsUsed = 0;
+  private int unusedChars = 0;
+  private int[] starts = new int[16];
+  private int[] lengths = new int[16];
+  private int idLimit = 0;
+  private int size = 0;
+  // Open addressing table of ids plus one, with 0 for an empty bucket
+  private int[] table = new int[32];
+
+  /**
+   * Creates an empty pool
+   */
+  public NamePool() {
+    Arrays.fill(lengths, NO_ID);
+  }
+
+  /**
+   * Finds the id of a name
+   *
+   * @param name the name
+   * @return its id, or -1 if the name is not in the pool
+   */
+  public int find(String name) {
+    int mask = table.length - 1;
+    for (int bucket = name.hashCode() & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      if (matches(table[bucket] - 1, name)) {
+        return table[bucket] - 1;
+      }
+    }
+    return NO_ID;
+  }
+
+  /**
+   * Adds a name for an id that has none
+   *
+   * @param name the name, which must not be in the pool
+   * @param id   the id, which must not be negative
+   */
+  public void add(String name, int id) {
+    if (id >= starts.length) {
+      int capacity = Math.max(starts.length * 2, id + 1);
+      starts = Arrays.copyOf(starts, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      Arrays.fill(lengths, idLimit, capacity, NO_ID);
+    }
+    idLimit = Math.max(idLimit, id + 1);
+
+    if (charsUsed + name.length() > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charsUsed + name.length()));
+    }
+    name.getChars(0, name.length(), chars, charsUsed);
+    starts[id] = charsUsed;
+    lengths[id] = name.length();
+    charsUsed += name.length();
+    size++;
+
+    if (size * 2 > table.length) {
+      rebuildTable(table.length * 2);
+    } else {
+      insert(id, name.hashCode());
+    }
+  }
+
+  /**
+   * Removes the name of an id
+   *
+   * @param id the id
+   */
+  public void remove(int id) {
+    if (id < 0 || id >= idLimit || lengths[id] == NO_ID) {
+      return;
+    }
+
+    // Take the id out of the table, then rebuild the table so no search stops at the gap
+    int mask = table.length - 1;
+    int bucket = hashOf(id) & mask;
+    while (table[bucket] != id + 1) {
+      bucket = (bucket + 1) & mask;
+    }
+    table[bucket] = 0;
+    for (bucket = (bucket + 1) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int moved = table[bucket] - 1;
+      table[bucket] = 0;
+      insert(moved, hashOf(moved));
+    }
+
+    unusedChars += lengths[id];
+    lengths[id] = NO_ID;
+    size--;
+
+    if (unusedChars > charsUsed - unusedChars) {
+      packChars();
+    }
+  }
+
+  /**
+   * Get the name of an id
+   *
+   * @param id the id
+   * @return the name, or null if the id has none
+   */
+  public String get(int id) {
+    if (id < 0 || id >= idLimit || lengths[id] == NO_ID) {
+      return null;
+    }
+    return new String(chars, starts[id], lengths[id]);
+  }
+
+  /**
+   * Get the number of names
+   *
+   * @return number of names in the pool
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Estimates the memory the pool uses, assuming 12 byte object headers and 4 byte references
+   *
+   * @return estimated size in bytes
+   */
+  public long estimateBytes() {
+    return MemoryFootprint.objectBytes(12 + 4 * 4 + 4 * 4)
+        + MemoryFootprint.charArrayBytes(chars.length) + MemoryFootprint.intArrayBytes(starts.length)
+        + MemoryFootprint.intArrayBytes(lengths.length) + MemoryFootprint.intArrayBytes(table.length);
+  }
+
+  /**
+   * Checks if the name of an id is equal to a String
+   *
+   * @param id   the id
+   * @param name the String
+   * @return true if they are the same name
+   */
+  private boolean matches(int id, String name) {
+    if (lengths[id] != name.length()) {
+      return false;
+    }
+    int start = starts[id];
+    for (int i = 0; i < name.length(); i++) {
+      if (chars[start + i] != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the hash of the name of an id the same way String.hashCode does
+   *
+   * @param id the id
+   * @return the hash of its name
+   */
+  private int hashOf(int id) {
+    int hash = 0;
+    for (int i = starts[id]; i < starts[id] + lengths[id]; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return hash;
+  }
+
+  /**
+   * Adds an id to the table
+   *
+   * @param id   the id
+   * @param hash the hash of its name
+   */
+  private void insert(int id, int hash) {
+    int mask = table.length - 1;
+    int bucket = hash & mask;
+    while (table[bucket] != 0) {
+      bucket = (bucket + 1) & mask;
+    }
+    table[bucket] = id + 1;
+  }
+
+  /**
+   * Replaces the table with one of a different size holding every id with a name
+   *
+   * @param capacity number of buckets, a power of two
+   */
+  private void rebuildTable(int capacity) {
+    table = new int[capacity];
+    for (int id = 0; id < idLimit; id++) {
+      if (lengths[id] != NO_ID) {
+        insert(id, hashOf(id));
+      }
+    }
+  }
+
+  /**
+   * Copies the names still in the pool next to each other, dropping the characters of removed
+   * names
+   */
+  private void packChars() {
+    char[] packed = new char[Math.max(256, (charsUsed - unusedChars) * 2)];
+    int count = 0;
+    for (int id = 0; id < idLimit; id++) {
+      if (lengths[id] != NO_ID) {
+        System.arraycopy(chars, starts[id], packed, count, lengths[id]);
+        starts[id] = count;
+        count += lengths[id];
+      }
+    }
+    chars = packed;
+    charsUsed = count;
+    unusedChars = 0;
+  }
+
+}
@@ -0,0 +1,124 @@
+package application;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds everyone within some number of hops of a user: the user at hop 0, their friends at hop 1,
+ * friends of friends who are not already friends at hop 2, and so on. Counts per hop are ready
+ * straight away, while names are only looked up when the members of a hop are asked for.
+ *
+ * @author Team 70
+ *
+ */
+public class Neighborhood {
+  // Fields
+  private final FrozenGraph graph;
+  private final int hops;
+  // ids of the members, hop by hop; hop h is members[hopStarts[h]] up to members[hopStarts[h + 1]]
+  private final int[] members;
+  private final int[] hopStarts;
+
+  /**
+   * Initialize values
+   *
+   * @param graph     frozen graph the members were found in
+   * @param hops      number of hops that were searched
+   * @param members   ids of the members, hop by hop, starting with the user at hop 0
+   * @param hopStarts where each hop starts in members, with one extra entry marking the end
+   */
+  Neighborhood(FrozenGraph graph, int hops, int[] members, int[] hopStarts) {
+    this.graph = graph;
+    this.hops = hops;
+    this.members = members;
+    this.hopStarts = hopStarts;
+  }
+
+  /**
+   * Get the user the neighborhood is around
+   *
+   * @return name of the user, or null if they are not in the network
+   */
+  public String getUser() {
+    return hopStarts[1] == 0 ? null : graph.getName(members[0]);
+  }
+
+  /**
+   * Get the number of hops that were searched
+   *
+   * @return the largest hop
+   */
+  public int getHops() {
+    return hops;
+  }
+
+  /**
+   * Get the number of members a given number of hops away
+   *
+   * @param hop number of hops, from 0 for the user to getHops()
+   * @return number of members at that hop
+   */
+  public int getCount(int hop) {
+    return hopStarts[hop + 1] - hopStarts[hop];
+  }
+
+  /**
+   * Get the number of members at every hop
+   *
+   * @return the number of members i hops away at position i, for every hop up to getHops()
+   */
+  public int[] getCounts() {
+    int[] counts = new int[hops + 1];
+    for (int hop = 0; hop <= hops; hop++) {
+      counts[hop] = getCount(hop);
+    }
+    return counts;
+  }
+
+  /**
+   * Get the number of members, not counting the user
+   *
+   * @return number of users from 1 up to getHops() hops away
+   */
+  public int getTotal() {
+    return hopStarts[hops + 1] - hopStarts[1];
+  }
+
+  /**
+   * Get the members a given number of hops away
+   *
+   * @param hop number of hops, from 0 for the user to getHops()
+   * @return names of the members at that hop, in the order they joined the network
+   */
+  public List<String> getMembers(int hop) {
+    int[] ids = Arrays.copyOfRange(members, hopStarts[hop], hopStarts[hop + 1]);
+    Arrays.sort(ids);
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        return graph.getName(ids[index]);
+      }
+
+      @Override
+      public int size() {
+        return ids.length;
+      }
+    };
+  }
+
+  /**
+   * Get every member, not counting the user
+   *
+   * @return names of the members, nearest hop first and in the order they joined within a hop
+   */
+  public List<String> getMembers() {
+    List<String> all = new ArrayList<String>(getTotal());
+    for (int hop = 1; hop <= hops; hop++) {
+      all.addAll(getMembers(hop));
+    }
+    return all;
+  }
+
+}
@@ -0,0 +1,50 @@
+package application;
+
+/**
+ * Is told about changes to a social network, so views of it can be updated by the change instead
+ * of being rebuilt. Changes made while a file is imported are not reported one by one; a single
+ * networkReset is reported once the import ends.
+ * <p>
+ * Methods are called on the thread that changed the network, which may be a worker thread.
+ *
+ * @author Team 70
+ *
+ */
+public interface NetworkListener {
+
+  /**
+   * Called after a user joins the network
+   *
+   * @param user the new user
+   */
+  public void userAdded(String user);
+
+  /**
+   * Called after a user and all of their friendships are removed
+   *
+   * @param user the removed user
+   */
+  public void userRemoved(String user);
+
+  /**
+   * Called after two users become friends
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   */
+  public void friendshipAdded(String user1, String user2);
+
+  /**
+   * Called after two users stop being friends
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   */
+  public void friendshipRemoved(String user1, String user2);
+
+  /**
+   * Called after the network changed too much to report each change, such as after an import
+   */
+  public void networkReset();
+
+}
@@ -0,0 +1,266 @@
+package application;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Keeps the results of recent queries so a question asked again gets the same answer without
+ * searching the network. Each result is stored with two stamps saying which state of the network
+ * it was worked out from, such as the graph version, and it is only handed back while the caller
+ * still gives the same stamps. When the cache is full the result used least recently is dropped.
+ * <p>
+ * The cache is not thread safe; SocialNetwork only uses it while holding its lock.
+ *
+ * @author Team 70
+ *
+ * @param <K> type of the question
+ * @param <V> type of the result
+ */
+public class QueryCache<K, V> {
+  // Fields
+  private int capacity;
+  // In access order, so the first entry is the one used least recently
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  /**
+   * Initialize values
+   *
+   * @param capacity largest number of results to keep
+   */
+  public QueryCache(int capacity) {
+    this.capacity = Math.max(capacity, 0);
+    this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > QueryCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Finds the result of a question, as long as it was worked out from the same state
+   *
+   * @param key    the question
+   * @param stamp1 first stamp of the state now
+   * @param stamp2 second stamp of the state now
+   * @return the result, or null if it is not kept or was worked out from another state
+   */
+  public V get(K key, long stamp1, long stamp2) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    if (entry.stamp1 != stamp1 || entry.stamp2 != stamp2) {
+      // The network has changed in a way that may change the result
+      entries.remove(key);
+      invalidations++;
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.value;
+  }
+
+  /**
+   * Keeps the result of a question, dropping the result used least recently if the cache is full
+   *
+   * @param key    the question
+   * @param value  the result, which must not be changed afterwards
+   * @param stamp1 first stamp of the state the result was worked out from
+   * @param stamp2 second stamp of the state the result was worked out from
+   */
+  public void put(K key, V value, long stamp1, long stamp2) {
+    if (capacity > 0) {
+      entries.put(key, new Entry<V>(value, stamp1, stamp2));
+    }
+  }
+
+  /**
+   * Drops the results that a change to the network made out of date, when the change cannot be
+   * caught by the stamps alone
+   *
+   * @param outOfDate given each question and its result, true if the result is out of date
+   */
+  public void removeIf(BiPredicate<K, V> outOfDate) {
+    for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext();) {
+      Map.Entry<K, Entry<V>> entry = it.next();
+      if (outOfDate.test(entry.getKey(), entry.getValue().value)) {
+        it.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  /**
+   * Drops every result, without counting them as evicted
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Change how many results are kept, dropping the ones used least recently if there are now too
+   * many
+   *
+   * @param capacity largest number of results to keep
+   */
+  public void setCapacity(int capacity) {
+    this.capacity = Math.max(capacity, 0);
+    while (entries.size() > this.capacity) {
+      entries.remove(entries.keySet().iterator().next());
+      evictions++;
+    }
+  }
+
+  /**
+   * Get how many results are kept at most
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the counters of the cache as they are now
+   *
+   * @return the counters
+   */
+  public Stats getStats() {
+    return new Stats(entries.size(), capacity, hits, misses, evictions, invalidations);
+  }
+
+  /**
+   * A kept result and the stamps of the state it was worked out from
+   *
+   * @param <V> type of the result
+   */
+  private static class Entry<V> {
+    private final V value;
+    private final long stamp1;
+    private final long stamp2;
+
+    private Entry(V value, long stamp1, long stamp2) {
+      this.value = value;
+      this.stamp1 = stamp1;
+      this.stamp2 = stamp2;
+    }
+  }
+
+  /**
+   * The counters of a cache at one point in time, for monitoring how well it works
+   */
+  public static class Stats {
+    private final int size;
+    private final int capacity;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    /**
+     * Initialize values
+     *
+     * @param size          number of results kept
+     * @param capacity      largest number of results kept
+     * @param hits          number of questions answered from the cache
+     * @param misses        number of questions that had to be worked out
+     * @param evictions     number of results dropped to make room
+     * @param invalidations number of results dropped because the network changed
+     */
+    public Stats(int size, int capacity, long hits, long misses, long evictions,
+        long invalidations) {
+      this.size = size;
+      this.capacity = capacity;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+    }
+
+    /**
+     * Get the number of results kept
+     *
+     * @return the size
+     */
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * Get the largest number of results kept
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * Get the number of questions answered from the cache
+     *
+     * @return the hits
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * Get the number of questions that had to be worked out, including those whose kept result
+     * was out of date
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * Get the number of results dropped to make room for newer ones
+     *
+     * @return the evictions
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * Get the number of results dropped because the network changed
+     *
+     * @return the invalidations
+     */
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    /**
+     * Get the share of questions answered from the cache
+     *
+     * @return hits over all questions, or 0 if there have been none
+     */
+    public double getHitRate() {
+      return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d/%d kept, %d hits, %d misses (%.1f%% hit rate), %d evicted, "
+          + "%d invalidated", size, capacity, hits, misses, getHitRate() * 100, evictions,
+          invalidations);
+    }
+  }
+
+}
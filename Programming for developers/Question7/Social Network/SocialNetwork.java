@@ -3,15 +3,28 @@ package application;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Alert.AlertType;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * This class creates a social network object that maintains users,
  * central users, files, and more.
+ * <p>
+ * Its methods are synchronized on the network, so it can be used from the JavaFX thread while a
+ * SocialNetworkService runs imports and queries on worker threads. Imports only hold the lock for
+ * one batch of lines at a time, and bulk loads only while the parsed friendships are added.
+ * Neither it nor the graph classes use JavaFX, so the network also
+ * runs headless, as in LoadTest; showing users, their avatars and any errors is left to Main.
  * 
  * @author Team 70
  *
@@ -21,14 +34,46 @@ public class SocialNetwork implements SocialNetworkADT {
   private Graph graph;
   private String centralUser;
   private FileManager fileManager;
-  private PrintWriter logFileWriter;
+  private CommandLog logFileWriter;
+  private boolean bidirectionalSearch = false;
+  // Recent shortest paths, kept until a friendship is added, the search direction changes, or one
+  // of the users or friendships on the path is removed, and recent mutual friends, kept while
+  // neither user's friends change
+  private QueryCache<List<String>, LinkedList<String>> pathCache =
+      new QueryCache<List<String>, LinkedList<String>>(DEFAULT_QUERY_CACHE_CAPACITY);
+  private QueryCache<List<String>, List<String>> mutualFriendsCache =
+      new QueryCache<List<String>, List<String>>(DEFAULT_QUERY_CACHE_CAPACITY);
+  // A snapshot of log.txt is saved after this many logged commands, or never if 0
+  private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+  private int commandsSinceSnapshot = 0;
+  // log.txt is compacted once it is longer than this many bytes, or never if 0
+  private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private long compactedLength = 0;
+  // Told about changes, except while eventsSuppressed is above 0
+  private List<NetworkListener> listeners = new CopyOnWriteArrayList<NetworkListener>();
+  private int eventsSuppressed = 0;
+
+  public static final String LOG_FILE = "log.txt";
+  public static final int DEFAULT_SNAPSHOT_INTERVAL = 1000000;
+  public static final long DEFAULT_COMPACTION_THRESHOLD = 64L * 1024 * 1024;
+  public static final int DEFAULT_QUERY_CACHE_CAPACITY = 1024;
 
   /**
    * Initialize values
    */
   public SocialNetwork() {
+    this(false);
+  }
+
+  /**
+   * Initialize values, choosing how users are stored
+   *
+   * @param compactGraph true to store users in a compact graph, which needs much less memory for
+   *                     large networks
+   */
+  public SocialNetwork(boolean compactGraph) {
     this.centralUser = null;
-    this.graph = new Graph();
+    this.graph = new Graph(compactGraph);
     this.fileManager = new FileManager(this);
     this.logFileWriter = createLogFileWriter();
   }
@@ -38,7 +83,7 @@ public class SocialNetwork implements SocialNetworkADT {
    * Get friends of a user
    * @param user
    */
-  public List<String> displayNetwork(String user) {
+  public synchronized List<String> displayNetwork(String user) {
     return graph.getAdjacentVerticesOf(user);
   }
 
@@ -48,9 +93,9 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param centralUser
    * @return true if works
    */
-  public boolean setCentralUser(String centralUser) {
+  public synchronized boolean setCentralUser(String centralUser) {
     this.centralUser = centralUser;
-    fileManager.updateLog("s " + centralUser, logFileWriter);
+    updateLog("s " + centralUser);
     return true;
   }
 
@@ -59,7 +104,7 @@ public class SocialNetwork implements SocialNetworkADT {
    * Get the central user
    * @return string central user
    */
-  public String getCentralUser() {
+  public synchronized String getCentralUser() {
     if (centralUser == null) {
       List<String> allUsers = graph.getAllVertices();
       
@@ -78,11 +123,12 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param user
    * @return true if added
    */
-  public boolean addUser(String user) {
+  public synchronized boolean addUser(String user) {
 	  // Check is user exists
-    if (!graph.getAllVertices().contains(user) && isValidUser(user)) {
+    if (graph.getNode(user) == null && isValidUser(user)) {
       graph.addVertex(user);
-      fileManager.updateLog("a " + user, logFileWriter);
+      updateLog("a " + user);
+      fireUserAdded(user);
       return true;
     } else {
     	return false;
@@ -96,11 +142,13 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param user
    * @return true if removed
    */
-  public boolean removeUser(String user) {
+  public synchronized boolean removeUser(String user) {
 	// Check if exists
-    if (getAllUsers().contains(user)) {
+    if (graph.getNode(user) != null) {
       graph.removeVertex(user);
-      fileManager.updateLog("r " + user, logFileWriter);
+      pathCache.removeIf((users, path) -> path.contains(user));
+      updateLog("r " + user);
+      fireUserRemoved(user);
       return true;
     } else {
       return false;
@@ -113,11 +161,11 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param friend
    * @return true if added
    */
-  public boolean addFriend(String friend) {
+  public synchronized boolean addFriend(String friend) {
 	// Check if exists
     if (!centralUser.equals(friend) && isValidUser(friend)) {
-      graph.addEdge(centralUser, friend);
-      fileManager.updateLog("a " + centralUser + " " + friend, logFileWriter);
+      addEdge(centralUser, friend);
+      updateLog("a " + centralUser + " " + friend);
       return true;
     } else {
       return false;
@@ -131,11 +179,14 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param friend
    * @return true if removed
    */
-  public boolean removeFriend(String friend) {
+  public synchronized boolean removeFriend(String friend) {
 	// True if added
     if (!centralUser.equals(friend)) {
-      graph.removeEdge(centralUser, friend);
-      fileManager.updateLog("r " + centralUser + " " + friend, logFileWriter);
+      if (removeEdge(centralUser, friend)) {
+        String user = centralUser;
+        pathCache.removeIf((users, path) -> isFriendshipOnPath(path, user, friend));
+      }
+      updateLog("r " + centralUser + " " + friend);
       return true;
     } else {
       return false;
@@ -150,11 +201,11 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param friend2
    * @return true if added
    */
-  public boolean addFriend(String friend1, String friend2) {
+  public synchronized boolean addFriend(String friend1, String friend2) {
 	// Check if users exist and should be added
     if (!friend1.equals(friend2) && isValidUser(friend1) && isValidUser(friend2)) {
-      graph.addEdge(friend1, friend2);
-      fileManager.updateLog("a " + friend1 + " " + friend2, logFileWriter);
+      addEdge(friend1, friend2);
+      updateLog("a " + friend1 + " " + friend2);
       return true;
     } else {
     	return false;
@@ -168,11 +219,13 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param friend2
    * @return true if removed
    */
-  public boolean removeFriend(String friend1, String friend2) {
+  public synchronized boolean removeFriend(String friend1, String friend2) {
 	// Check if friends are different
     if (!friend1.equals(friend2)) {
-      graph.removeEdge(friend1, friend2);
-      fileManager.updateLog("r " + friend1 + " " + friend2, logFileWriter);
+      if (removeEdge(friend1, friend2)) {
+        pathCache.removeIf((users, path) -> isFriendshipOnPath(path, friend1, friend2));
+      }
+      updateLog("r " + friend1 + " " + friend2);
       return true;
     } else {
     	return false;
@@ -183,8 +236,135 @@ public class SocialNetwork implements SocialNetworkADT {
   /**
    * Reset Graph to remvoe users
    */
-  public void removeAllUsers() {
-    graph = null;
+  public synchronized void removeAllUsers() {
+    graph = new Graph(graph.isCompact());
+    centralUser = null;
+    // The new graph starts again from version 0, so nothing kept can be told apart by version
+    pathCache.clear();
+    mutualFriendsCache.clear();
+    fireNetworkReset();
+  }
+
+  /**
+   * Applies a batch of commands, leaving the network as calling the methods one by one would. The
+   * commands are applied under one lock, the commands that changed something are added to the log
+   * in one go, and the snapshot and compaction policies are checked once. Commands that change
+   * nothing are not logged.
+   *
+   * @param batch the commands
+   * @return what happened to each command
+   */
+  public synchronized BatchResult applyBatch(CommandBatch batch) {
+    return applyBatch(batch, false);
+  }
+
+  /**
+   * Applies a batch of commands, leaving the network as calling the methods one by one would, or
+   * applies none of them if any is rejected and allOrNothing is set. Whether a command is valid
+   * does not depend on the commands before it, so every command is checked before any is applied.
+   *
+   * @param batch        the commands
+   * @param allOrNothing true to apply nothing if a command is rejected
+   * @return what happened to each command
+   */
+  public synchronized BatchResult applyBatch(CommandBatch batch, boolean allOrNothing) {
+    int size = batch.size();
+    BatchResult.Outcome[] outcomes = new BatchResult.Outcome[size];
+
+    boolean rejected = false;
+    for (int i = 0; i < size; i++) {
+      if (!isValidCommand(batch, i)) {
+        outcomes[i] = BatchResult.Outcome.REJECTED;
+        rejected = true;
+      }
+    }
+    if (rejected && allOrNothing) {
+      for (int i = 0; i < size; i++) {
+        if (outcomes[i] == null) {
+          outcomes[i] = BatchResult.Outcome.SKIPPED;
+        }
+      }
+      return new BatchResult(outcomes, false);
+    }
+
+    String[] records = new String[size];
+    int logged = 0;
+    boolean removed = false;
+    for (int i = 0; i < size; i++) {
+      if (outcomes[i] != null) {
+        continue;
+      }
+
+      String user1 = batch.getUser1(i);
+      String user2 = batch.getUser2(i);
+      boolean changed;
+      switch (batch.getType(i)) {
+        case CommandBatch.ADD_USER:
+          changed = graph.getNode(user1) == null;
+          if (changed) {
+            graph.addVertex(user1);
+            fireUserAdded(user1);
+          }
+          break;
+        case CommandBatch.REMOVE_USER:
+          changed = graph.getNode(user1) != null;
+          if (changed) {
+            graph.removeVertex(user1);
+            fireUserRemoved(user1);
+            removed = true;
+          }
+          break;
+        case CommandBatch.ADD_FRIEND:
+          changed = addEdge(user1, user2);
+          break;
+        case CommandBatch.REMOVE_FRIEND:
+          changed = removeEdge(user1, user2);
+          removed |= changed;
+          break;
+        default:
+          changed = !user1.equals(centralUser);
+          centralUser = user1;
+          break;
+      }
+
+      if (changed) {
+        records[logged++] = batch.getCommand(i);
+        outcomes[i] = BatchResult.Outcome.APPLIED;
+      } else {
+        outcomes[i] = BatchResult.Outcome.UNCHANGED;
+      }
+    }
+
+    // One pass over the kept shortest paths covers every removal in the batch
+    if (removed) {
+      pathCache.removeIf((users, path) -> !isPathInGraph(path));
+    }
+    logFileWriter.append(records, logged);
+    commandsLogged(logged);
+    return new BatchResult(outcomes, true);
+  }
+
+  /**
+   * Checks a command of a batch the same way the method for it would
+   *
+   * @param batch the batch
+   * @param index position of the command
+   * @return true if the method would accept the command
+   */
+  private static boolean isValidCommand(CommandBatch batch, int index) {
+    String user1 = batch.getUser1(index);
+    String user2 = batch.getUser2(index);
+    switch (batch.getType(index)) {
+      case CommandBatch.ADD_USER:
+        return user1 != null && isValidUser(user1);
+      case CommandBatch.ADD_FRIEND:
+        return user1 != null && user2 != null && !user1.equals(user2) && isValidUser(user1)
+            && isValidUser(user2);
+      case CommandBatch.REMOVE_FRIEND:
+        return user1 != null && user2 != null && !user1.equals(user2);
+      default:
+        return user1 != null;
+    }
   }
 
   @Override
@@ -194,19 +374,52 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param user2
    * @return list of mutual friends between two users
    */
-  public List<String> getMutualFriends(String user1, String user2) {
-	// Create two friend list of each user and merge them
-    List<String> user1Friends = graph.getAdjacentVerticesOf(user1);
-    List<String> user2Friends = graph.getAdjacentVerticesOf(user2);
-    List<String> mutualFriends = new ArrayList<String>();
-    
-    // Loop through each friend and add if same as another users friend
-    for (String friend : user1Friends) {
-      if (user2Friends.contains(friend)) {
-        mutualFriends.add(friend);
-      }
+  public synchronized List<String> getMutualFriends(String user1, String user2) {
+    List<String> mutualFriends = findCachedMutualFriends(user1, user2);
+    if (mutualFriends == null) {
+      mutualFriends = graph.getMutualFriends(graph.getNode(user1), graph.getNode(user2));
+      mutualFriendsCache.put(Arrays.asList(user1, user2), mutualFriends,
+          graph.getFriendsVersion(user1), graph.getFriendsVersion(user2));
     }
-    return mutualFriends;
+    return new ArrayList<String>(mutualFriends);
+  }
+
+  /**
+   * Finds the mutual friends of two users if they are still kept from an earlier query
+   *
+   * @param user1 name of the first user
+   * @param user2 name of the second user
+   * @return the kept mutual friends, which must not be changed, or null if they are not kept
+   */
+  synchronized List<String> findCachedMutualFriends(String user1, String user2) {
+    return mutualFriendsCache.get(Arrays.asList(user1, user2), graph.getFriendsVersion(user1),
+        graph.getFriendsVersion(user2));
+  }
+
+  /**
+   * Keeps mutual friends found on a frozen graph, as long as the network has not changed since
+   *
+   * @param user1         name of the first user
+   * @param user2         name of the second user
+   * @param frozen        the frozen graph they were found on
+   * @param mutualFriends the mutual friends, which must not be changed afterwards
+   */
+  synchronized void cacheMutualFriends(String user1, String user2, FrozenGraph frozen,
+      List<String> mutualFriends) {
+    if (frozen.getVersion() == graph.getVersion()) {
+      mutualFriendsCache.put(Arrays.asList(user1, user2), mutualFriends,
+          graph.getFriendsVersion(user1), graph.getFriendsVersion(user2));
+    }
+  }
+
+  /**
+   * Suggest people the central user may know, ranked by how many mutual friends they share
+   * 
+   * @param limit most suggestions to return
+   * @return names of suggested users, best suggestion first
+   */
+  public synchronized List<String> getFriendSuggestions(int limit) {
+    return graph.getFriendSuggestions(graph.getNode(getCentralUser()), limit);
   }
 
   @Override
@@ -214,37 +427,233 @@ public class SocialNetwork implements SocialNetworkADT {
    * Get all users
    * @return list of all users
    */
-  public List<String> getAllUsers() {
+  public synchronized List<String> getAllUsers() {
     return graph.getAllVertices();
   }
 
+  /**
+   * Get a page of the users, in the order they joined, whose names contain some text. The
+   * users before the page are skipped rather than copied.
+   * 
+   * @param offset number of matching users to skip
+   * @param limit  largest number of users to return
+   * @param filter text the names must contain, ignoring case, or empty for every user
+   * @return the matching users on the page
+   */
+  public synchronized List<String> getUsers(int offset, int limit, String filter) {
+    String lowerCaseFilter = filter.toLowerCase();
+    List<String> page = new ArrayList<String>(Math.min(limit, graph.order()));
+
+    for (User user : graph.getAllNodes()) {
+      if (page.size() >= limit) {
+        break;
+      }
+      if (lowerCaseFilter.isEmpty() || user.getName().toLowerCase().contains(lowerCaseFilter)) {
+        if (offset > 0) {
+          offset--;
+        } else {
+          page.add(user.getName());
+        }
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Get the first users, in order, whose names start with some text, for autocomplete
+   * 
+   * @param prefix text the names must start with
+   * @param limit  largest number of users to return
+   * @return the matching users
+   */
+  public synchronized List<String> completeUser(String prefix, int limit) {
+    return graph.getVerticesStartingWith(prefix, limit);
+  }
+
+  /**
+   * Get the first users, in order, whose names are at most one typing mistake away from some
+   * text, such as a name that was not found
+   * 
+   * @param text  the text
+   * @param limit largest number of users to return
+   * @return the similar users
+   */
+  public synchronized List<String> findSimilarUsers(String text, int limit) {
+    return graph.getSimilarVertices(text, limit);
+  }
+
+  /**
+   * Get the number of users without copying their names
+   * 
+   * @return number of users
+   */
+  public synchronized int getUserCount() {
+    return graph.order();
+  }
+
+  /**
+   * Estimates how much memory the users and friendships take up
+   *
+   * @return the estimate, with bytes per user and per friendship
+   */
+  public synchronized MemoryFootprint getFootprint() {
+    return graph.getFootprint();
+  }
+
+  /**
+   * Get a read-only copy of the users and friendships that can be searched without holding the
+   * network's lock. The same copy is returned until the network next changes. The lock is only
+   * held to take the changes since the last copy, not while they are applied.
+   *
+   * @return the frozen graph
+   */
+  public FrozenGraph getFrozenGraph() {
+    return freeze(getGraphChanges());
+  }
+
+  /**
+   * Get the changes made since the last frozen copy, which freeze turns into a frozen copy of the
+   * network as it is now. Taking them only copies the changes, so it can be done along with other
+   * work that needs the lock without holding it much longer.
+   *
+   * @return the changes
+   */
+  public synchronized GraphChanges getGraphChanges() {
+    return graph.getChanges();
+  }
+
+  /**
+   * Applies changes taken by getGraphChanges without holding the network's lock, then keeps the
+   * copy so the next one only needs the changes made after it
+   *
+   * @param changes the changes
+   * @return the frozen graph
+   */
+  public FrozenGraph freeze(GraphChanges changes) {
+    FrozenGraph frozen = changes.apply();
+    synchronized (this) {
+      graph.keepFrozen(changes, frozen);
+    }
+    return frozen;
+  }
+
+  /**
+   * Get the analytics of the network as it is now: degree distribution, clustering, betweenness
+   * and PageRank. They are worked out on the frozen graph, so they do not hold the network's lock
+   * while they run.
+   *
+   * @return the analytics
+   */
+  public GraphAnalytics getAnalytics() {
+    return new GraphAnalytics(getFrozenGraph());
+  }
+
+  /**
+   * Finds everyone within a number of hops of a user, with the number at each hop. The search
+   * runs on the frozen graph, so it does not hold the network's lock while it runs.
+   *
+   * @param user name of the user
+   * @param hops largest number of hops
+   * @return the members at each hop, or no members if there is no such user
+   */
+  public Neighborhood getNeighborhood(String user, int hops) {
+    return getFrozenGraph().getNeighborhood(user, hops);
+  }
+
+  /**
+   * Finds everyone within a number of hops of the central user
+   *
+   * @param hops largest number of hops
+   * @return the members at each hop, or no members if there is no central user
+   */
+  public Neighborhood getNeighborhood(int hops) {
+    GraphChanges changes;
+    String user;
+    synchronized (this) {
+      changes = graph.getChanges();
+      user = getCentralUser();
+    }
+    return freeze(changes).getNeighborhood(user, hops);
+  }
+
   /**
    * Get specific user
    * 
    * @param user String
    * @return User object
    */
-  public User getUser(String user) {
+  public synchronized User getUser(String user) {
     return graph.getNode(user);
   }
 
   /**
-   * Import a file and read it
+   * Import a file and read it, skipping lines with errors. Use importFile(fileName, null) to find
+   * out which lines they were, and describeErrors to tell the user.
    * 
    * @param fileName
    * @return true if added successfully
    */
   public boolean importFile(String fileName) {
-	  // Keeps tally of how many line errors there were and reports that info
-	  // to the user
-	  int count = (int) fileManager.importFile(fileName, true).get(1);
-	  if(count>0) {
-		  Alert addUserAlert = new Alert(AlertType.ERROR, 
-				  "Encountered "+ count + " Line(s) With Errors When Reading File");
-	      addUserAlert.show();
-	  }
-	  // return true if successfully imported
-	  return (boolean) fileManager.importFile(fileName, false).get(0);
+    return importFile(fileName, null).isSuccess();
+  }
+
+  /**
+   * Import a file and read it, reporting progress as it goes and leaving it to the caller to
+   * show any errors. The network is only locked while each batch of lines is applied, so it can
+   * still be used while a large file is imported.
+   * 
+   * @param fileName
+   * @param progress receives progress and can stop the import, or null
+   * @return the result of the import, including the lines with errors
+   */
+  public ImportResult importFile(String fileName, ImportProgress progress) {
+    // Listeners hear about the import as a whole rather than every line of it
+    synchronized (this) {
+      eventsSuppressed++;
+    }
+    try {
+      return fileManager.importFile(fileName, progress);
+    } finally {
+      synchronized (this) {
+        eventsSuppressed--;
+        fireNetworkReset();
+      }
+    }
+  }
+
+  /**
+   * Loads a large list of friendships, one pair of names per line, much faster than importing
+   * it: the file is parsed in parallel and added to the network in one pass. See BulkLoader.
+   * The network is only locked while the parsed friendships are added, so it can still be used
+   * while a large file is parsed.
+   * 
+   * @param fileName the file to load
+   * @return the result of the load, including the lines with errors and the edges per second
+   */
+  public BulkLoadResult bulkLoad(String fileName) {
+    // Listeners hear about the load as a whole rather than every friendship in it
+    synchronized (this) {
+      eventsSuppressed++;
+    }
+    try {
+      return new BulkLoader(this).load(fileName);
+    } finally {
+      synchronized (this) {
+        eventsSuppressed--;
+        fireNetworkReset();
+      }
+    }
+  }
+
+  /**
+   * Describes the lines with errors found while importing a file
+   * 
+   * @param result the result of the import
+   * @return a message listing the number of lines with errors and the first of them
+   */
+  public static String describeErrors(ImportResult result) {
+    return "Encountered " + result.getErrorCount() + " Line(s) With Errors When Reading File"
+        + describeErrorLines(result.getErrorLines());
   }
 
   /**
@@ -252,10 +661,52 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param fileName
    * @return true if successful
    */
-  public boolean exportFile(String fileName) {
-	// Close unused FileWriter and export to file name
-    logFileWriter.close();
-    return fileManager.exportFile(fileName);
+  public synchronized boolean exportFile(String fileName) {
+	// Write out buffered commands and export to file name, leaving the log open for more. A log
+	// that could not be written would export without some commands.
+    return syncLog() && fileManager.exportFile(fileName);
+  }
+
+  /**
+   * Export the network as it is now, or its whole history
+   * 
+   * @param fileName         file to export to
+   * @param currentStateOnly true to write only the commands that build the network as it is now:
+   *                         every user in the order they joined, every friendship once, then the
+   *                         central user, with a snapshot next to the file so importing it can
+   *                         skip replaying them. Exporting the current state to log.txt compacts
+   *                         it.
+   * @return true if successful
+   */
+  public synchronized boolean exportFile(String fileName, boolean currentStateOnly) {
+    if (!currentStateOnly) {
+      return exportFile(fileName);
+    }
+    if (fileName.equals(LOG_FILE)) {
+      return compactLog();
+    }
+
+    Path file = Paths.get(fileName);
+    int lines;
+    try (PrintWriter writer = new PrintWriter(
+        Files.newBufferedWriter(file, Charset.defaultCharset()))) {
+      lines = writeCurrentState(writer::println);
+      if (writer.checkError()) {
+        return false;
+      }
+    } catch (IOException e) {
+      return false;
+    }
+
+    // A snapshot of the network now covers the whole exported file
+    try {
+      long bytes = Files.size(file);
+      GraphSnapshot.of(graph, centralUser, bytes, lines, GraphSnapshot.checksum(file, bytes))
+          .write(file);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return true;
   }
 
   /**
@@ -264,25 +715,543 @@ public class SocialNetwork implements SocialNetworkADT {
    * @param user2
    * @return List of shortest path
    */
-  public LinkedList<String> getShortestPath(String user1, String user2) {
-    return graph.shortestPath(graph.getNode(user1), graph.getNode(user2));
+  public synchronized LinkedList<String> getShortestPath(String user1, String user2) {
+    LinkedList<String> path = findCachedShortestPath(user1, user2);
+    if (path == null) {
+      path = bidirectionalSearch
+          ? graph.bidirectionalShortestPath(graph.getNode(user1), graph.getNode(user2))
+          : graph.shortestPath(graph.getNode(user1), graph.getNode(user2));
+      pathCache.put(Arrays.asList(user1, user2), path, graph.getAdditionVersion(),
+          bidirectionalSearch ? 1 : 0);
+    }
+    return new LinkedList<String>(path);
+  }
+
+  /**
+   * Finds the shortest path between two users if it is still kept from an earlier query
+   *
+   * @param user1 name of the first user
+   * @param user2 name of the second user
+   * @return the kept path, which must not be changed, or null if it is not kept
+   */
+  synchronized LinkedList<String> findCachedShortestPath(String user1, String user2) {
+    return pathCache.get(Arrays.asList(user1, user2), graph.getAdditionVersion(),
+        bidirectionalSearch ? 1 : 0);
+  }
+
+  /**
+   * Keeps a shortest path found on a frozen graph, as long as the network and the way paths are
+   * searched have not changed since
+   *
+   * @param user1         name of the first user
+   * @param user2         name of the second user
+   * @param frozen        the frozen graph it was found on
+   * @param bidirectional true if it was searched from both users at once
+   * @param path          the path, which must not be changed afterwards
+   */
+  synchronized void cacheShortestPath(String user1, String user2, FrozenGraph frozen,
+      boolean bidirectional, LinkedList<String> path) {
+    if (frozen.getVersion() == graph.getVersion() && bidirectional == bidirectionalSearch) {
+      pathCache.put(Arrays.asList(user1, user2), path, graph.getAdditionVersion(),
+          bidirectionalSearch ? 1 : 0);
+    }
+  }
+
+  /**
+   * Change how many shortest paths and how many sets of mutual friends are kept for questions
+   * that are asked again
+   *
+   * @param capacity largest number of results kept of each kind, or 0 to keep none
+   */
+  public synchronized void setQueryCacheCapacity(int capacity) {
+    pathCache.setCapacity(capacity);
+    mutualFriendsCache.setCapacity(capacity);
+  }
+
+  /**
+   * Get the hits, misses and evictions of the shortest path cache
+   *
+   * @return the counters as they are now
+   */
+  public synchronized QueryCache.Stats getPathCacheStats() {
+    return pathCache.getStats();
+  }
+
+  /**
+   * Get the hits, misses and evictions of the mutual friends cache
+   *
+   * @return the counters as they are now
+   */
+  public synchronized QueryCache.Stats getMutualFriendsCacheStats() {
+    return mutualFriendsCache.getStats();
+  }
+
+  /**
+   * Choose how shortest paths are found. Searching from both users at once reaches far fewer
+   * users on large networks and finds a path of the same length.
+   * 
+   * @param bidirectionalSearch true to search from both users, false to search from the first
+   */
+  public synchronized void setBidirectionalSearch(boolean bidirectionalSearch) {
+    this.bidirectionalSearch = bidirectionalSearch;
+  }
+
+  /**
+   * Check how shortest paths are found
+   * 
+   * @return true if shortest paths are searched from both users at once
+   */
+  public synchronized boolean isBidirectionalSearch() {
+    return bidirectionalSearch;
   }
 
   /**
    * Get Groups
    * @return Number of Groups that exist in the graph
    */
-  public int getGroups() {
+  public synchronized int getGroups() {
     return graph.getConnectedComponents();
   }
 
+  /**
+   * Get the number of groups if it is known without searching the network
+   * 
+   * @return the number of groups, or -1 if they have to be counted again
+   */
+  synchronized int findKnownGroups() {
+    return graph.hasGroupCount() ? graph.getConnectedComponents() : -1;
+  }
+
+  /**
+   * Lists the first few lines with errors for the import alert
+   * 
+   * @param errorLines line numbers of the lines with errors
+   * @return text naming the lines
+   */
+  private static String describeErrorLines(List<Integer> errorLines) {
+    StringBuilder description = new StringBuilder("\nLine(s) ");
+    for (int i = 0; i < errorLines.size() && i < 10; i++) {
+      if (i > 0) {
+        description.append(", ");
+      }
+      description.append(errorLines.get(i));
+    }
+    if (errorLines.size() > 10) {
+      description.append(", ...");
+    }
+    return description.toString();
+  }
+
+  /**
+   * Saves a snapshot of the network for log.txt, so importing it only needs to replay the
+   * commands logged after now
+   * 
+   * @return true if the snapshot was saved
+   */
+  public synchronized boolean saveSnapshot() {
+    Path logFile = Paths.get(LOG_FILE);
+    commandsSinceSnapshot = 0;
+    try {
+      // A snapshot of a log missing some commands would skip the ones after them too. Once it is
+      // synced, the log matches the checksum kept as it was written.
+      logFileWriter.sync();
+      GraphSnapshot.of(graph, centralUser, Files.size(logFile), logFileWriter.getRecordCount(),
+          logFileWriter.getChecksum()).write(logFile);
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * Set how often a snapshot of log.txt is saved
+   * 
+   * @param snapshotInterval number of logged commands between snapshots, or 0 for never
+   */
+  public synchronized void setSnapshotInterval(int snapshotInterval) {
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  /**
+   * Check if the network has no users
+   * 
+   * @return true if there are no users
+   */
+  public synchronized boolean isEmpty() {
+    return graph.order() == 0;
+  }
+
+  /**
+   * Adds the users and friendships of a snapshot and makes its central user the central user.
+   * The log gets the commands that rebuild the snapshot rather than the history it came from.
+   * 
+   * @param snapshot the snapshot to load
+   */
+  synchronized void loadSnapshot(GraphSnapshot snapshot) {
+    graph.load(snapshot);
+    if (snapshot.getCentralUser() != null) {
+      centralUser = snapshot.getCentralUser();
+    }
+    writeCurrentState(logFileWriter::append);
+  }
+
+  /**
+   * Adds the users and friendships of a bulk loaded file. The log gets the commands that add
+   * them: every user in the snapshot, then every friendship once.
+   * 
+   * @param snapshot the users and friendships to add
+   * @return false if the commands could not be written to the log
+   */
+  synchronized boolean loadEdges(GraphSnapshot snapshot) {
+    graph.load(snapshot);
+
+    String[] names = snapshot.getNames();
+    int[] offsets = snapshot.getOffsets();
+    int[] friends = snapshot.getFriends();
+    for (String name : names) {
+      logFileWriter.append("a " + name);
+    }
+    int friendships = 0;
+    for (int i = 0; i < names.length; i++) {
+      for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+        if (friends[j] > i) {
+          logFileWriter.append("a " + names[i] + " " + names[friends[j]]);
+          friendships++;
+        }
+      }
+    }
+    commandsLogged(names.length + friendships);
+    return syncLog();
+  }
+
+  /**
+   * Writes the commands that rebuild the current network: every user in the order they joined,
+   * every friendship once, then the central user
+   * 
+   * @param commands receives each command, without a line separator
+   * @return number of commands written
+   */
+  private int writeCurrentState(Consumer<String> commands) {
+    int count = 0;
+    for (User user : graph.getAllNodes()) {
+      commands.accept("a " + user.getName());
+      count++;
+    }
+    for (User user : graph.getAllNodes()) {
+      for (User friend : user.getFriends()) {
+        if (user.getId() < friend.getId()) {
+          commands.accept("a " + user.getName() + " " + friend.getName());
+          count++;
+        }
+      }
+    }
+    if (centralUser != null) {
+      commands.accept("s " + centralUser);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Set how long log.txt may grow before it is compacted. So that a large network is not
+   * compacted again after every few commands, the log is also left to double in length since it
+   * was last compacted.
+   * 
+   * @param compactionThreshold number of bytes, or 0 to never compact automatically
+   */
+  public synchronized void setCompactionThreshold(long compactionThreshold) {
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  /**
+   * Rewrites log.txt as the shortest list of commands that builds the current network, then
+   * carries on adding commands to it. Any snapshot of log.txt no longer matches and is removed.
+   * <p>
+   * The commands are written from the network in memory to a temporary file, which then replaces
+   * log.txt, so the old log is never read back and is kept if the new one cannot be written.
+   * 
+   * @return true if the log was compacted
+   */
+  public synchronized boolean compactLog() {
+    if (logFileWriter.isClosed()) {
+      return false;
+    }
+
+    Path logFile = Paths.get(LOG_FILE);
+    Path temporaryFile = Paths.get(LOG_FILE + ".tmp");
+    try (PrintWriter writer = new PrintWriter(
+        Files.newBufferedWriter(temporaryFile, Charset.defaultCharset()))) {
+      writeCurrentState(writer::println);
+      if (writer.checkError()) {
+        throw new IOException("Could not write " + temporaryFile);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      try {
+        Files.deleteIfExists(temporaryFile);
+      } catch (IOException deleteError) {
+        deleteError.printStackTrace();
+      }
+      return false;
+    }
+
+    // The new log does not depend on what the old one holds, so an error writing the old one
+    // only needs reporting
+    CommandLog oldLog = logFileWriter;
+    try {
+      oldLog.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    boolean compacted;
+    try {
+      Files.move(temporaryFile, logFile, StandardCopyOption.REPLACE_EXISTING);
+      compacted = true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      compacted = false;
+    }
+
+    try {
+      Files.deleteIfExists(GraphSnapshot.snapshotFileOf(logFile));
+      logFileWriter = new CommandLog(new File(LOG_FILE), true, oldLog.getRecordsPerFlush(),
+          oldLog.getMillisPerFlush());
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+
+    commandsSinceSnapshot = 0;
+    compactedLength = logFileWriter.getLength();
+    return compacted;
+  }
+
+  /**
+   * Adds a command to the log, saving a snapshot of log.txt when enough commands have been logged
+   * since the last one, and compacting it when it has grown too long
+   * 
+   * @param instruction the command
+   */
+  private void updateLog(String instruction) {
+    fileManager.updateLog(instruction, logFileWriter);
+    commandsLogged(1);
+  }
+
+  /**
+   * Saves a snapshot of log.txt when enough commands have been logged since the last one, and
+   * compacts it when it has grown too long
+   * 
+   * @param count number of commands just added to the log
+   */
+  private void commandsLogged(int count) {
+    commandsSinceSnapshot += count;
+    if (snapshotInterval > 0 && commandsSinceSnapshot >= snapshotInterval) {
+      saveSnapshot();
+    }
+
+    long length = logFileWriter.getLength();
+    if (compactionThreshold > 0 && length >= compactionThreshold
+        && length >= 2 * compactedLength) {
+      compactLog();
+    }
+  }
+
+  /**
+   * Start telling a listener about changes to the network
+   * 
+   * @param listener the listener
+   */
+  public void addNetworkListener(NetworkListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stop telling a listener about changes to the network
+   * 
+   * @param listener the listener
+   */
+  public void removeNetworkListener(NetworkListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Makes two users friends, adding either of them who is not in the network yet, and tells the
+   * listeners what changed
+   * 
+   * @param friend1 the first user
+   * @param friend2 the second user
+   * @return true if they were not friends already
+   */
+  private boolean addEdge(String friend1, String friend2) {
+    User user1 = graph.getNode(friend1);
+    User user2 = graph.getNode(friend2);
+    boolean friends = user1 != null && user2 != null && user1.getFriends().contains(user2);
+
+    graph.addEdge(friend1, friend2);
+
+    if (user1 == null) {
+      fireUserAdded(friend1);
+    }
+    if (user2 == null) {
+      fireUserAdded(friend2);
+    }
+    if (!friends) {
+      for (NetworkListener listener : activeListeners()) {
+        listener.friendshipAdded(friend1, friend2);
+      }
+    }
+    return !friends;
+  }
+
+  /**
+   * Removes a friendship if there is one and tells the listeners. Shortest paths kept in the
+   * cache are left for the caller to drop.
+   * 
+   * @param friend1 the first user
+   * @param friend2 the second user
+   * @return true if they were friends
+   */
+  private boolean removeEdge(String friend1, String friend2) {
+    User user1 = graph.getNode(friend1);
+    User user2 = graph.getNode(friend2);
+    boolean friends = user1 != null && user2 != null && user1.getFriends().contains(user2);
+
+    graph.removeEdge(friend1, friend2);
+
+    if (friends) {
+      for (NetworkListener listener : activeListeners()) {
+        listener.friendshipRemoved(friend1, friend2);
+      }
+    }
+    return friends;
+  }
+
+  /**
+   * Checks whether a path goes from one of two users straight to the other
+   * 
+   * @param path    names of the users on the path
+   * @param friend1 the first user
+   * @param friend2 the second user
+   * @return true if the friendship between them is part of the path
+   */
+  private static boolean isFriendshipOnPath(List<String> path, String friend1, String friend2) {
+    String previous = null;
+    for (String user : path) {
+      if (previous != null && (previous.equals(friend1) && user.equals(friend2)
+          || previous.equals(friend2) && user.equals(friend1))) {
+        return true;
+      }
+      previous = user;
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether every user on a path is still in the network and still friends with the next
+   * 
+   * @param path names of the users on the path
+   * @return true if the path can still be taken
+   */
+  private boolean isPathInGraph(List<String> path) {
+    User previous = null;
+    for (String name : path) {
+      User user = graph.getNode(name);
+      if (user == null || previous != null && !previous.getFriends().contains(user)) {
+        return false;
+      }
+      previous = user;
+    }
+    return true;
+  }
+
+  /**
+   * Tells the listeners a user joined
+   * 
+   * @param user the new user
+   */
+  private void fireUserAdded(String user) {
+    for (NetworkListener listener : activeListeners()) {
+      listener.userAdded(user);
+    }
+  }
+
+  /**
+   * Tells the listeners a user was removed
+   * 
+   * @param user the removed user
+   */
+  private void fireUserRemoved(String user) {
+    for (NetworkListener listener : activeListeners()) {
+      listener.userRemoved(user);
+    }
+  }
+
+  /**
+   * Tells the listeners the network changed too much to report each change
+   */
+  private void fireNetworkReset() {
+    for (NetworkListener listener : activeListeners()) {
+      listener.networkReset();
+    }
+  }
+
+  /**
+   * Get the listeners to tell about a change
+   * 
+   * @return the listeners, or none while changes are not being reported
+   */
+  private List<NetworkListener> activeListeners() {
+    return eventsSuppressed > 0 ? Collections.<NetworkListener>emptyList() : listeners;
+  }
+
+  /**
+   * Writes any buffered log entries to log.txt
+   * 
+   * @return false if log.txt could not be written, now or since it was opened
+   */
+  public synchronized boolean syncLog() {
+    try {
+      logFileWriter.sync();
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * Get the log that commands are written to, so its flush policy can be changed
+   * 
+   * @return the command log
+   */
+  public synchronized CommandLog getCommandLog() {
+    return logFileWriter;
+  }
+
+  /**
+   * Writes any buffered log entries and closes log.txt. Commands made afterwards are not logged.
+   * 
+   * @return false if log.txt could not be written, now or since it was opened
+   */
+  public synchronized boolean close() {
+    try {
+      logFileWriter.close();
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
   /**
    * Helper method to check if a new user is valid
    * 
    * @param name name of user
    * @return true if valid; false otherwise
    */
-  private boolean isValidUser(String name) {
+  static boolean isValidUser(String name) {
 	// Loop through all characters in name and check that each one is legal
     for (int i = 0; i < name.length(); i++) {
       Character letter = name.charAt(i);
@@ -296,19 +1265,17 @@ public class SocialNetwork implements SocialNetworkADT {
 
   /**
    * Create Create File Writer
-   * @return the PrintWriter
+   * @return the command log
    */
-  private PrintWriter createLogFileWriter() {
+  private CommandLog createLogFileWriter() {
     File file = new File("log.txt");
-    PrintWriter writer = null;
+    CommandLog writer = null;
 
     
     try {
-      // Try to create file, and return if successful
+      // Try to create an empty log file, and return if successful
       // Otherwise print errors
-      file.createNewFile();
-      writer = new PrintWriter(file);
-      writer.print("");
+      writer = new CommandLog(file);
 
     } catch (IOException e) {
       e.printStackTrace();
@@ -0,0 +1,274 @@
+package application;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs imports and queries of a social network on worker threads so that the thread asking for
+ * them, such as the JavaFX application thread, is not held up. Each task holds the network's lock
+ * while it runs, and its result is delivered through the callback executor, so anything chained
+ * onto the returned futures runs there too. For the user interface the callback executor is
+ * Platform::runLater.
+ * <p>
+ * Shortest paths, mutual friends, neighborhoods and group counts only hold the lock long enough
+ * to take the changes since the network's last frozen graph. Applying them to make a new frozen
+ * graph, and searching that, is done without the lock, so neither holds up changes to the
+ * network. Imports take the lock for one batch of lines at a time. Shortest paths and
+ * mutual friends are checked against the network's query caches first, and what is found is kept
+ * there.
+ * <p>
+ * Tasks run on virtual threads when the Java version has them, and otherwise on daemon threads.
+ * Cancelling a returned future before its task starts stops the task from running, and
+ * cancelling an import stops it after the current batch of lines.
+ *
+ * @author Team 70
+ *
+ */
+public class SocialNetworkService {
+  // Fields
+  private SocialNetwork socialNetwork;
+  private Executor callbackExecutor;
+  private ExecutorService workers;
+
+  /**
+   * Initialize values
+   *
+   * @param socialNetwork    the network to run tasks on
+   * @param callbackExecutor runs the code that delivers each result
+   */
+  public SocialNetworkService(SocialNetwork socialNetwork, Executor callbackExecutor) {
+    this.socialNetwork = socialNetwork;
+    this.callbackExecutor = callbackExecutor;
+    this.workers = createWorkers();
+  }
+
+  /**
+   * Imports a file on a worker thread
+   *
+   * @param fileName   the file to import
+   * @param onProgress receives the fraction of the file read so far, through the callback
+   *                   executor, or null
+   * @return the result of the import
+   */
+  public CompletableFuture<ImportResult> importFile(String fileName, DoubleConsumer onProgress) {
+    CompletableFuture<ImportResult> result = new CompletableFuture<ImportResult>();
+    ImportProgress progress = new ImportProgress() {
+      @Override
+      public void update(int linesRead, long bytesRead, long totalBytes) {
+        if (onProgress != null && totalBytes > 0) {
+          double fraction = (double) bytesRead / totalBytes;
+          callbackExecutor.execute(() -> onProgress.accept(fraction));
+        }
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return result.isCancelled();
+      }
+    };
+
+    return execute(result, () -> socialNetwork.importFile(fileName, progress));
+  }
+
+  /**
+   * Finds the shortest path between two users on a worker thread
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   * @return the users on the path, or an empty list if there is none
+   */
+  public CompletableFuture<List<String>> getShortestPath(String user1, String user2) {
+    return execute(new CompletableFuture<List<String>>(), () -> {
+      GraphChanges changes;
+      boolean bidirectional;
+      synchronized (socialNetwork) {
+        LinkedList<String> cached = socialNetwork.findCachedShortestPath(user1, user2);
+        if (cached != null) {
+          return new LinkedList<String>(cached);
+        }
+        changes = socialNetwork.getGraphChanges();
+        bidirectional = socialNetwork.isBidirectionalSearch();
+      }
+      FrozenGraph graph = socialNetwork.freeze(changes);
+      LinkedList<String> path = bidirectional ? graph.bidirectionalShortestPath(user1, user2)
+          : graph.shortestPath(user1, user2);
+      socialNetwork.cacheShortestPath(user1, user2, graph, bidirectional, path);
+      return new LinkedList<String>(path);
+    });
+  }
+
+  /**
+   * Finds the mutual friends of two users on a worker thread
+   *
+   * @param user1 the first user
+   * @param user2 the second user
+   * @return the users who are friends with both
+   */
+  public CompletableFuture<List<String>> getMutualFriends(String user1, String user2) {
+    return execute(new CompletableFuture<List<String>>(), () -> {
+      GraphChanges changes;
+      synchronized (socialNetwork) {
+        List<String> cached = socialNetwork.findCachedMutualFriends(user1, user2);
+        if (cached != null) {
+          return new ArrayList<String>(cached);
+        }
+        changes = socialNetwork.getGraphChanges();
+      }
+      FrozenGraph graph = socialNetwork.freeze(changes);
+      List<String> mutualFriends = graph.getMutualFriends(user1, user2);
+      socialNetwork.cacheMutualFriends(user1, user2, graph, mutualFriends);
+      return new ArrayList<String>(mutualFriends);
+    });
+  }
+
+  /**
+   * Finds everyone within a number of hops of a user on a worker thread
+   *
+   * @param user the user
+   * @param hops largest number of hops
+   * @return the members at each hop
+   */
+  public CompletableFuture<Neighborhood> getNeighborhood(String user, int hops) {
+    return execute(new CompletableFuture<Neighborhood>(),
+        () -> socialNetwork.getNeighborhood(user, hops));
+  }
+
+  /**
+   * Counts the groups in the network on a worker thread. While the network knows the count it is
+   * returned straight away; after a removal the groups are counted on the frozen graph.
+   *
+   * @return the number of groups
+   */
+  public CompletableFuture<Integer> getGroups() {
+    return execute(new CompletableFuture<Integer>(), () -> {
+      GraphChanges changes;
+      synchronized (socialNetwork) {
+        int groups = socialNetwork.findKnownGroups();
+        if (groups >= 0) {
+          return groups;
+        }
+        changes = socialNetwork.getGraphChanges();
+      }
+      return socialNetwork.freeze(changes).getConnectedComponents();
+    });
+  }
+
+  /**
+   * Suggests people the central user may know on a worker thread
+   *
+   * @param limit most suggestions to return
+   * @return names of suggested users, best suggestion first
+   */
+  public CompletableFuture<List<String>> getFriendSuggestions(int limit) {
+    return submit(network -> network.getFriendSuggestions(limit));
+  }
+
+  /**
+   * Finds the users whose names start with some text on a worker thread, or if there are none,
+   * the users whose names are one typing mistake away
+   *
+   * @param text  what has been typed
+   * @param limit largest number of users to return
+   * @return the matching users
+   */
+  public CompletableFuture<List<String>> completeUser(String text, int limit) {
+    return submit(network -> {
+      List<String> matches = network.completeUser(text, limit);
+      return matches.isEmpty() ? network.findSimilarUsers(text, limit) : matches;
+    });
+  }
+
+  /**
+   * Runs any task on the network on a worker thread
+   *
+   * @param <T>  type of the result
+   * @param task the task, which is given the network
+   * @return the result of the task
+   */
+  public <T> CompletableFuture<T> submit(Function<SocialNetwork, T> task) {
+    return submit(new CompletableFuture<T>(), task);
+  }
+
+  /**
+   * Stops accepting tasks. Tasks already running are left to finish.
+   */
+  public void shutdown() {
+    workers.shutdown();
+  }
+
+  /**
+   * Runs a task on a worker thread and completes a future with its result through the callback
+   * executor
+   *
+   * @param <T>    type of the result
+   * @param result the future to complete
+   * @param task   the task, which is given the network
+   * @return the future
+   */
+  private <T> CompletableFuture<T> submit(CompletableFuture<T> result,
+      Function<SocialNetwork, T> task) {
+    return execute(result, () -> {
+      synchronized (socialNetwork) {
+        return task.apply(socialNetwork);
+      }
+    });
+  }
+
+  /**
+   * Runs a task that does its own locking on a worker thread and completes a future with its
+   * result through the callback executor
+   *
+   * @param <T>    type of the result
+   * @param result the future to complete
+   * @param task   the task
+   * @return the future
+   */
+  private <T> CompletableFuture<T> execute(CompletableFuture<T> result, Supplier<T> task) {
+    workers.execute(() -> {
+      if (result.isDone()) {
+        return;
+      }
+
+      try {
+        T value = task.get();
+        callbackExecutor.execute(() -> result.complete(value));
+
+      } catch (Throwable e) {
+        // Errors such as running out of memory must still complete the future, or whoever waits
+        // on it, like the import dialog, waits forever
+        callbackExecutor.execute(() -> result.completeExceptionally(e));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Creates the executor that runs tasks, using virtual threads if they are available
+   *
+   * @return the executor
+   */
+  private static ExecutorService createWorkers() {
+    try {
+      // Virtual threads were added in Java 21, so look the method up rather than calling it
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "social-network-worker");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+}
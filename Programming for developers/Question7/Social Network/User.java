@@ -1,39 +1,73 @@
 package application;
 
-import javafx.scene.image.Image;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * GraphNodes hold string information and information about successors
  */
 public class User {
+  // The descriptions users are given at random
+  private static final String[] DESCRIPTIONS = {"Today is a great day :)", "Never give up!",
+      "What is your favorite TV show?", "Strive to be the best", "Excited for finals week!"};
+  // Number of default avatars users are given at random, one for each of
+  // AvatarCache.DEFAULT_AVATARS
+  public static final int AVATAR_COUNT = 5;
+  // Header, the two byte fields, id and four references
+  private static final int SHALLOW_BYTES = 12 + 1 + 1 + 4 + 4 * 4;
+
   // instance fields
-  private Image image;
+  // Which of the default avatars and descriptions the user has
+  private byte avatar;
+  private byte description;
   private String name;
-  private String description;
-  private ArrayList<User> friends = new ArrayList<User>();
+  private int id;
+  // Insertion ordered so friends are listed in the order they were added, while checking for and
+  // removing a friend takes constant time no matter how many friends a user has
+  private LinkedHashSet<User> friends;
+  private Set<User> friendsView;
+  // Ids of the friends in increasing order, built when first needed after the friends change
+  private int[] sortedFriendIds = null;
 
   /**
    * Initialize with the vertex value
    *
    * @param name user name
+   * @param id   position of the user in the graph, which never changes
    */
-  public User(String name) {
-    this.name = name;
+  public User(String name, int id) {
+    this(name, id, new LinkedHashSet<User>());
+  }
 
-    Random rand = new Random();
-    this.image = getRandomImage(rand);
-    this.description = getRandomDescription(rand);
+  /**
+   * Initialize a user whose name or friends may be stored by a subclass instead
+   *
+   * @param name    user name, or null if a subclass stores it
+   * @param id      position of the user in the graph, which never changes
+   * @param friends set to store the friends in, or null if a subclass stores them
+   */
+  protected User(String name, int id, LinkedHashSet<User> friends) {
+    this.name = name;
+    this.id = id;
+    this.friends = friends;
+    this.friendsView = friends == null ? null : Collections.unmodifiableSet(friends);
 
+    Random rand = ThreadLocalRandom.current();
+    this.avatar = (byte) rand.nextInt(AVATAR_COUNT);
+    this.description = (byte) rand.nextInt(DESCRIPTIONS.length);
   }
 
   /**
-   * Get Image
-   * @return Image
+   * Get which of the default avatars the user has. The user interface loads the image itself
+   * through AvatarCache.getAvatar.
+   * @return position in AvatarCache.DEFAULT_AVATARS
    */
-  public Image getImage() {
-    return image;
+  public int getAvatar() {
+    return avatar;
   }
 
   /**
@@ -44,58 +78,122 @@ public class User {
     return name;
   }
 
+  /**
+   * Get User Id
+   * @return id
+   */
+  public int getId() {
+    return id;
+  }
+
   /**
    * Get Profile Description  
    * @return Description
    */
   public String getDescription() {
-    return description;
+    return DESCRIPTIONS[description];
   }
 
   /**
    * Get Friends
-   * @return List of friends
+   * @return read-only Set of friends
    */
-  public ArrayList<User> getFriends() {
-    return friends;
+  public Set<User> getFriends() {
+    return friendsView;
   }
 
   /**
-   * Updates to random image
-   * @param rand - instance of random
-   * @return Image
+   * Add a friend
+   * @param friend the new friend
+   * @return true if they were not already a friend
    */
-  private Image getRandomImage(Random rand) {
-	// Create list of picture strings
-    String[] defaultDisplayPictures = new String[5];
-    defaultDisplayPictures[0] = "default1.jpg";
-    defaultDisplayPictures[1] = "default2.jpg";
-    defaultDisplayPictures[2] = "default3.jpg";
-    defaultDisplayPictures[3] = "default4.jpg";
-    defaultDisplayPictures[4] = "default5.jpg";
+  public boolean addFriend(User friend) {
+    boolean added = friends.add(friend);
+    if (added) {
+      friendsChanged();
+    }
+    return added;
+  }
 
-    // Randomly Select
-    int num = rand.nextInt(5);
-    return new Image("file:" + defaultDisplayPictures[num]);
+  /**
+   * Remove a friend
+   * @param friend the friend to remove
+   * @return true if they were a friend
+   */
+  public boolean removeFriend(User friend) {
+    boolean removed = friends.remove(friend);
+    if (removed) {
+      friendsChanged();
+    }
+    return removed;
   }
 
   /**
-   * Gets a random Description 
-   * @param rand - instance of random
-   * @return random Description
+   * Remove every friend
    */
-  private String getRandomDescription(Random rand) {
-	// Create List of Strings
-    String[] defaultDescriptions = new String[5];
-    defaultDescriptions[0] = "Today is a great day :)";
-    defaultDescriptions[1] = "Never give up!";
-    defaultDescriptions[2] = "What is your favorite TV show?";
-    defaultDescriptions[3] = "Strive to be the best";
-    defaultDescriptions[4] = "Excited for finals week!";
+  public void clearFriends() {
+    friendsChanged();
+    friends.clear();
+  }
+
+  /**
+   * Get the ids of all friends in increasing order. The array is shared until the friends change,
+   * so it must not be modified.
+   * @return sorted friend ids
+   */
+  public int[] getSortedFriendIds() {
+    if (sortedFriendIds == null) {
+      int[] ids = copyFriendIds();
+      Arrays.sort(ids);
+      sortedFriendIds = ids;
+    }
+    return sortedFriendIds;
+  }
 
-    // Randomly select string from list
-    int num = rand.nextInt(5);
-    return defaultDescriptions[num];
+  /**
+   * Copies the ids of all friends
+   * @return friend ids in the order the friends were added
+   */
+  protected int[] copyFriendIds() {
+    int[] ids = new int[friends.size()];
+    int i = 0;
+    for (User friend : friends) {
+      ids[i++] = friend.getId();
+    }
+    return ids;
+  }
+
+  /**
+   * Must be called whenever the friends change, so the sorted ids are built again
+   */
+  protected void friendsChanged() {
+    sortedFriendIds = null;
+  }
+
+  /**
+   * Estimates the memory used by the user object, not counting its name or friends
+   * @return estimated bytes
+   */
+  long estimateBytes() {
+    return MemoryFootprint.objectBytes(SHALLOW_BYTES);
+  }
+
+  /**
+   * Estimates the memory used to store the user's friends
+   * @return estimated bytes
+   */
+  long estimateFriendBytes() {
+    // The set, the map it is built on, and the read-only view
+    return MemoryFootprint.objectBytes(16) + MemoryFootprint.linkedHashMapBytes(friends.size())
+        + MemoryFootprint.objectBytes(16) + estimateSortedIdBytes();
+  }
+
+  /**
+   * Estimates the memory used by the sorted friend ids, if they have been built
+   * @return estimated bytes
+   */
+  protected long estimateSortedIdBytes() {
+    return sortedFriendIds == null ? 0 : MemoryFootprint.intArrayBytes(sortedFriendIds.length);
   }
 
 }
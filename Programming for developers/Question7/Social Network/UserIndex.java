@@ -0,0 +1,390 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds users by name: whether a name is taken, the names that start with some text for
+ * autocomplete, and the names within one typing mistake of some text. Names are kept in a radix
+ * tree, a trie that stores a run of letters with no branches on a single edge, so a lookup only
+ * follows one edge per branch point and adding or removing a name only changes the edges on its
+ * own path.
+ * <p>
+ * Names are listed in the order String.compareTo puts them in. The index is not thread safe; a
+ * Graph keeps one and it is only used while the network's lock is held.
+ *
+ * @author Team 70
+ *
+ */
+public class UserIndex {
+  // Names this many edits (inserted, removed or changed letters) away are similar
+  public static final int MAX_EDITS = 1;
+  private static final Node[] NO_CHILDREN = new Node[0];
+
+  // Fields
+  private final Node root = new Node("");
+  private int size = 0;
+
+  /**
+   * Adds a name
+   *
+   * @param name the name
+   * @return true if the name was not in the index already
+   */
+  public boolean add(String name) {
+    Node node = root;
+    int i = 0;
+    while (i < name.length()) {
+      int at = node.findChild(name.charAt(i));
+      if (at < 0) {
+        // Nothing shares the rest of the name, so it goes on one new edge
+        Node leaf = new Node(name.substring(i));
+        leaf.user = true;
+        node.insertChild(-at - 1, leaf);
+        size++;
+        return true;
+      }
+
+      Node child = node.children[at];
+      int common = commonLength(child.label, name, i);
+      if (common < child.label.length()) {
+        // Split the edge where the name leaves it
+        Node middle = new Node(child.label.substring(0, common));
+        child.label = child.label.substring(common);
+        middle.insertChild(0, child);
+        node.children[at] = middle;
+        child = middle;
+      }
+      node = child;
+      i += common;
+    }
+
+    if (node.user) {
+      return false;
+    }
+    node.user = true;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes a name, joining edges that no longer branch
+   *
+   * @param name the name
+   * @return true if the name was in the index
+   */
+  public boolean remove(String name) {
+    Node parent = null;
+    Node node = root;
+    int at = -1;
+    int i = 0;
+    while (i < name.length()) {
+      int next = node.findChild(name.charAt(i));
+      if (next < 0 || !name.startsWith(node.children[next].label, i)) {
+        return false;
+      }
+      parent = node;
+      at = next;
+      node = node.children[next];
+      i += node.label.length();
+    }
+    if (!node.user) {
+      return false;
+    }
+    node.user = false;
+    size--;
+
+    // Every node other than the root either ends a name or branches
+    if (parent == null) {
+      return true;
+    }
+    if (node.childCount == 0) {
+      parent.removeChild(at);
+      if (parent != root && !parent.user && parent.childCount == 1) {
+        parent.mergeWithChild();
+      }
+    } else if (node.childCount == 1) {
+      node.mergeWithChild();
+    }
+    return true;
+  }
+
+  /**
+   * Checks for a name
+   *
+   * @param name the name
+   * @return true if the name is in the index
+   */
+  public boolean contains(String name) {
+    Node node = root;
+    int i = 0;
+    while (i < name.length()) {
+      int at = node.findChild(name.charAt(i));
+      if (at < 0 || !name.startsWith(node.children[at].label, i)) {
+        return false;
+      }
+      node = node.children[at];
+      i += node.label.length();
+    }
+    return node.user;
+  }
+
+  /**
+   * Get the number of names
+   *
+   * @return number of names in the index
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the first names that start with some text, for autocomplete
+   *
+   * @param prefix text the names must start with
+   * @param limit  largest number of names to return
+   * @return the names in order, or an empty list if none start with the text
+   */
+  public List<String> complete(String prefix, int limit) {
+    List<String> names = new ArrayList<String>();
+    if (limit <= 0) {
+      return names;
+    }
+
+    Node node = root;
+    StringBuilder path = new StringBuilder();
+    int i = 0;
+    while (i < prefix.length()) {
+      int at = node.findChild(prefix.charAt(i));
+      if (at < 0) {
+        return names;
+      }
+      Node child = node.children[at];
+      int common = commonLength(child.label, prefix, i);
+      // The prefix may end part way along an edge, but must not leave it
+      if (common < child.label.length() && i + common < prefix.length()) {
+        return names;
+      }
+      path.append(child.label);
+      node = child;
+      i += common;
+    }
+
+    collect(node, path, names, limit);
+    return names;
+  }
+
+  /**
+   * Finds the first names that are at most MAX_EDITS inserted, removed or changed letters away
+   * from some text, including the text itself if it is a name. Only the parts of the tree whose
+   * letters so far can still be within MAX_EDITS of the text are searched.
+   *
+   * @param text  the text, such as a misspelled name
+   * @param limit largest number of names to return
+   * @return the names in order
+   */
+  public List<String> findSimilar(String text, int limit) {
+    List<String> names = new ArrayList<String>();
+    if (limit <= 0) {
+      return names;
+    }
+
+    // Row d holds the edit distances from the first d letters of a name to each prefix of the
+    // text, capped at MAX_EDITS + 1. A search deeper than the text by more than MAX_EDITS letters
+    // has turned back, so one row per depth can be reused by every branch.
+    int[][] rows = new int[text.length() + MAX_EDITS + 2][text.length() + 1];
+    for (int[] row : rows) {
+      Arrays.fill(row, MAX_EDITS + 1);
+    }
+    for (int j = 0; j <= Math.min(text.length(), MAX_EDITS); j++) {
+      rows[0][j] = j;
+    }
+    if (root.user && rows[0][text.length()] <= MAX_EDITS) {
+      names.add("");
+    }
+    StringBuilder path = new StringBuilder();
+    for (int c = 0; c < root.childCount && names.size() < limit; c++) {
+      collectSimilar(root.children[c], text, rows, 0, path, names, limit);
+    }
+    return names;
+  }
+
+  /**
+   * Estimates how much memory the index takes up
+   *
+   * @return bytes used by the nodes, their labels and their child arrays
+   */
+  public long estimateBytes() {
+    long bytes = MemoryFootprint.objectBytes(12 + 4 + 4);
+    List<Node> stack = new ArrayList<Node>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      // Header, three references, child count and user flag
+      bytes += MemoryFootprint.objectBytes(12 + 4 + 4 + 4 + 1)
+          + MemoryFootprint.stringBytes(node.label)
+          + (node.children == NO_CHILDREN ? 0
+              : MemoryFootprint.referenceArrayBytes(node.children.length));
+      for (int c = 0; c < node.childCount; c++) {
+        stack.add(node.children[c]);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Counts the letters at the start of a label that match some text
+   *
+   * @param label  letters on an edge
+   * @param text   the text
+   * @param offset where in the text to start matching
+   * @return number of matching letters
+   */
+  private static int commonLength(String label, String text, int offset) {
+    int length = 0;
+    while (length < label.length() && offset + length < text.length()
+        && label.charAt(length) == text.charAt(offset + length)) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * Adds the names at and below a node, in order, until there are enough
+   *
+   * @param node  the node
+   * @param path  letters from the root to the node, which are put back as they were
+   * @param names names found so far
+   * @param limit largest number of names to find
+   */
+  private static void collect(Node node, StringBuilder path, List<String> names, int limit) {
+    if (node.user) {
+      names.add(path.toString());
+    }
+    for (int c = 0; c < node.childCount && names.size() < limit; c++) {
+      Node child = node.children[c];
+      int length = path.length();
+      path.append(child.label);
+      collect(child, path, names, limit);
+      path.setLength(length);
+    }
+  }
+
+  /**
+   * Adds the similar names at and below a node, in order, until there are enough. Each letter on
+   * the way fills in the next row of the edit distance table, and the search turns back once no
+   * entry in the row is within MAX_EDITS. A name d letters long is at least |d - j| edits from the
+   * first j letters of the text, so only the entries within MAX_EDITS of the diagonal are filled
+   * in; the rest stay at MAX_EDITS + 1.
+   *
+   * @param node  the node
+   * @param text  the text names are compared with
+   * @param rows  edit distance table, filled in up to the node's parent
+   * @param depth number of letters from the root to the node's parent
+   * @param path  letters from the root to the node's parent, which are put back as they were
+   * @param names names found so far
+   * @param limit largest number of names to find
+   */
+  private static void collectSimilar(Node node, String text, int[][] rows, int depth,
+      StringBuilder path, List<String> names, int limit) {
+    int d = depth;
+    for (int k = 0; k < node.label.length(); k++) {
+      char letter = node.label.charAt(k);
+      int[] row = rows[d];
+      int[] next = rows[++d];
+      int best = MAX_EDITS + 1;
+      for (int j = Math.max(0, d - MAX_EDITS); j <= Math.min(text.length(), d + MAX_EDITS); j++) {
+        int distance = row[j] + 1;
+        if (j > 0) {
+          int change = text.charAt(j - 1) == letter ? 0 : 1;
+          distance = Math.min(distance, Math.min(next[j - 1] + 1, row[j - 1] + change));
+        }
+        next[j] = Math.min(distance, MAX_EDITS + 1);
+        best = Math.min(best, next[j]);
+      }
+      if (best > MAX_EDITS) {
+        return;
+      }
+    }
+
+    int length = path.length();
+    path.append(node.label);
+    if (node.user && rows[d][text.length()] <= MAX_EDITS) {
+      names.add(path.toString());
+    }
+    for (int c = 0; c < node.childCount && names.size() < limit; c++) {
+      collectSimilar(node.children[c], text, rows, d, path, names, limit);
+    }
+    path.setLength(length);
+  }
+
+  /**
+   * A point in the tree where names branch or end
+   */
+  private static class Node {
+    // Letters on the edge from the parent to this node
+    private String label;
+    // Sorted by the first letter of their labels, which is different for every child
+    private Node[] children = NO_CHILDREN;
+    private int childCount = 0;
+    // True if a name ends here
+    private boolean user = false;
+
+    private Node(String label) {
+      this.label = label;
+    }
+
+    /**
+     * Finds the child whose label starts with a letter
+     *
+     * @param first the letter
+     * @return the child's position, or -(position it would go in) - 1 if there is none
+     */
+    private int findChild(char first) {
+      int low = 0;
+      int high = childCount - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        char letter = children[middle].label.charAt(0);
+        if (letter < first) {
+          low = middle + 1;
+        } else if (letter > first) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+      return -low - 1;
+    }
+
+    private void insertChild(int at, Node child) {
+      if (childCount == children.length) {
+        children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+      }
+      System.arraycopy(children, at, children, at + 1, childCount - at);
+      children[at] = child;
+      childCount++;
+    }
+
+    private void removeChild(int at) {
+      System.arraycopy(children, at + 1, children, at, childCount - at - 1);
+      children[--childCount] = null;
+      if (childCount == 0) {
+        children = NO_CHILDREN;
+      }
+    }
+
+    /**
+     * Joins this node with its only child, which takes its place
+     */
+    private void mergeWithChild() {
+      Node child = children[0];
+      label = label + child.label;
+      children = child.children;
+      childCount = child.childCount;
+      user = child.user;
+    }
+  }
+
+}